@@ -1,20 +1,59 @@
+import models.IncrementalResult;
 import models.Movie;
 import models.User;
-import models.UserRecommendation;
 import parsers.MovieParser;
 import parsers.UserParser;
+import parsers.UserReader;
+import services.CatalogReloader;
+import services.CatalogSnapshot;
+import services.ParseCache;
+import services.RecommendationCache;
 import services.RecommendationEngine;
+import services.RecommendationPipeline;
+import services.RecommendationServer;
 import services.RecommendationWriter;
+import validators.ValidationReport;
 import exceptions.ValidationException;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.Map;
 import java.util.Scanner;
 
 
 public class MovieRecommendationApp {
+    private static final String REPORT_FILE = "validation_report.txt";
+    private static final String PARSE_CACHE_FILE = ".parse-cache";
 
     public static void main(String[] args) {
+        if (args.length == 2 && args[0].equals("--compile-catalog")) {
+            compileCatalog(args[1]);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--report")) {
+            writeReport(args[1], args[2]);
+            return;
+        }
+        if ((args.length == 3 || args.length == 4) && args[0].equals("--serve")) {
+            int port = RecommendationServer.DEFAULT_PORT;
+            if (args.length == 4) {
+                try {
+                    port = Integer.parseInt(args[3]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 0 || port > 65535) {
+                    System.err.println("Usage: --serve <movies file> <users file> [port 0-65535]");
+                    return;
+                }
+            }
+            serve(args[1], args[2], port);
+            return;
+        }
+        if (args.length == 3 && args[0].equals("--incremental")) {
+            runIncremental(args[1], args[2]);
+            return;
+        }
     	
         Scanner scanner = new Scanner(System.in);
         System.out.print("Enter the movies file path: ");
@@ -29,24 +68,53 @@ public class MovieRecommendationApp {
         RecommendationWriter writer = new RecommendationWriter();
 
         try {
-            MovieParser movieParser = new MovieParser();
-            List<Movie> movies = movieParser.parseMovies(moviesFile);
+            ParseCache cache = new ParseCache(PARSE_CACHE_FILE, false);
+            RecommendationEngine engine = loadCatalog(cache, moviesFile);
 
-            UserParser userParser = new UserParser();
-            List<User> users = userParser.parseUsers(usersFile);
+            RecommendationPipeline pipeline = new RecommendationPipeline(engine, writer);
 
-            RecommendationEngine engine = new RecommendationEngine(movies);
-            List<UserRecommendation> recommendations = new ArrayList<>();
+            // Seen user ids beyond a quarter of the heap are spilled to temporary files. A users
+            // file that validated on an earlier run and is unchanged since is not checked again.
+            UserParser userParser = cache.userParser(usersFile, Runtime.getRuntime().maxMemory() / 4);
+            pipeline.runCheckpointed(userParser, usersFile, outputFile,
+                    Runtime.getRuntime().availableProcessors());
+            cache.validated(usersFile);
 
-            for (User user : users) {
-                UserRecommendation rec = engine.generateRecommendations(user);
-                recommendations.add(rec);
+            System.out.println("Recommendations generated successfully!");
+            System.out.println(cache.summary());
+
+        } catch (ValidationException e) {
+            try {
+                writer.writeError(outputFile, e.getMessage());
+                System.out.println("Validation error: " + e.getMessage());
+            } catch (IOException ioException) {
+                System.err.println("Failed to write error: " + ioException.getMessage());
             }
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
 
-            writer.writeRecommendations(outputFile, recommendations);
+    // Same output as the interactive run, but users whose line and genres are unchanged since
+    // the last incremental run are copied from the previous recommendations.txt.
+    private static void runIncremental(String moviesFile, String usersFile) {
+        String outputFile = "recommendations.txt";
+        RecommendationWriter writer = new RecommendationWriter();
 
-            System.out.println("Recommendations generated successfully!");
+        try {
+            ParseCache cache = new ParseCache(PARSE_CACHE_FILE, false);
+            RecommendationEngine engine = loadCatalog(cache, moviesFile);
 
+            IncrementalResult result;
+            try (UserReader users = cache.userParser(usersFile, Runtime.getRuntime().maxMemory() / 4)
+                    .openUsers(usersFile)) {
+                result = new RecommendationPipeline(engine, writer).runIncremental(users, outputFile);
+            }
+            cache.validated(usersFile);
+
+            System.out.println("Recommendations generated successfully!");
+            System.out.println("Recomputed " + result.getRecomputed() + " of " + result.getUsers()
+                    + " users, copied " + result.getCopiedBytes() + " bytes (" + cache.summary() + ")");
         } catch (ValidationException e) {
             try {
                 writer.writeError(outputFile, e.getMessage());
@@ -58,4 +126,93 @@ public class MovieRecommendationApp {
             System.err.println("File error: " + e.getMessage());
         }
     }
+
+    // Loads the catalog and users once and answers requests until the process is stopped.
+    private static void serve(String moviesFile, String usersFile, int port) {
+        // Before any HttpServer exists; see RecommendationServer.NO_DELAY.
+        if (System.getProperty(RecommendationServer.NO_DELAY) == null) {
+            System.setProperty(RecommendationServer.NO_DELAY, "true");
+        }
+        try {
+            ParseCache cache = new ParseCache(PARSE_CACHE_FILE, false);
+            RecommendationEngine engine = loadCatalog(cache, moviesFile);
+
+            Map<String, User> users = new HashMap<>();
+            try (UserReader reader = cache.userParser(usersFile, Runtime.getRuntime().maxMemory() / 4)
+                    .openUsers(usersFile)) {
+                User user;
+                while ((user = reader.readUser()) != null) {
+                    users.put(user.getId(), user);
+                }
+            }
+            cache.validated(usersFile);
+
+            // Edits to the catalog (or a recompiled snapshot) are picked up without a restart.
+            CatalogReloader catalog = new CatalogReloader(moviesFile, engine);
+            // Popular liked sets are answered from memory; a reload empties the cache.
+            RecommendationCache results = RecommendationCache.withMaxBytes(Runtime.getRuntime().maxMemory() / 8);
+            RecommendationServer server = RecommendationServer.start(catalog, users, port, results);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("Served " + server.summary() + ", catalog reloaded "
+                        + catalog.getReloadCount() + " times");
+                server.close();
+                try {
+                    catalog.close();
+                } catch (IOException e) {
+                    System.err.println("File error: " + e.getMessage());
+                }
+            }));
+            System.out.println("Serving " + users.size() + " users on http://localhost:" + server.getPort()
+                    + " (" + cache.summary() + ")");
+        } catch (ValidationException e) {
+            System.out.println("Validation error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+
+    private static RecommendationEngine loadCatalog(ParseCache cache, String moviesFile)
+            throws ValidationException, IOException {
+        String snapshotFile = moviesFile + ".snapshot";
+        RecommendationEngine engine = cache.loadCatalog(snapshotFile, moviesFile);
+        if (engine == null) {
+            MovieParser movieParser = new MovieParser();
+            List<Movie> movies = movieParser.parseMovies(moviesFile);
+            engine = new RecommendationEngine(movies);
+            writeSnapshot(cache, snapshotFile, moviesFile, movies);
+        }
+        return engine;
+    }
+
+    private static void compileCatalog(String moviesFile) {
+        try {
+            List<Movie> movies = CatalogSnapshot.compile(moviesFile, moviesFile + ".snapshot");
+            System.out.println("Compiled " + movies.size() + " movies to " + moviesFile + ".snapshot");
+        } catch (ValidationException e) {
+            System.out.println("Validation error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+
+    // Checks both files completely and lists every error instead of stopping at the first.
+    private static void writeReport(String moviesFile, String usersFile) {
+        try {
+            ValidationReport movies = new MovieParser().validateMovies(moviesFile);
+            ValidationReport users = new UserParser(Runtime.getRuntime().maxMemory() / 4).validateUsers(usersFile);
+            new RecommendationWriter().writeReport(REPORT_FILE, movies, users);
+            System.out.println(moviesFile + ": " + movies.getErrorCount() + " errors, "
+                    + usersFile + ": " + users.getErrorCount() + " errors (see " + REPORT_FILE + ")");
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+        }
+    }
+
+    private static void writeSnapshot(ParseCache cache, String snapshotFile, String moviesFile, List<Movie> movies) {
+        try {
+            cache.storeCatalog(snapshotFile, moviesFile, movies);
+        } catch (IOException e) {
+            System.err.println("Could not write catalog snapshot: " + e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package exceptions;
+
+// Every way a movie, user or catalog change record can fail validation, with the message of the matching
+// exception. A validation report keeps one of these per error instead of an exception.
+public enum ErrorCode {
+    MOVIE_FORMAT("Invalid movie format", null),
+    MISSING_GENRES("Missing genres line", null),
+    MOVIE_TITLE("ERROR: Movie Title ", " is wrong"),
+    MOVIE_ID_LETTERS("ERROR: Movie Id letters ", " are wrong"),
+    MOVIE_ID_NUMBERS("ERROR: Movie Id numbers ", " aren't unique"),
+    USER_FORMAT("Invalid user format", null),
+    MISSING_LIKED_MOVIES("Missing liked movies line", null),
+    USER_NAME("ERROR: User Name ", " is wrong"),
+    USER_ID("ERROR: User Id ", " is wrong"),
+    DUPLICATE_USER_ID("ERROR: User Id ", " is wrong"),
+    CHANGE_FORMAT("Invalid catalog change format", null),
+    MOVIE_EXISTS("ERROR: Movie Id ", " is already in the catalog"),
+    UNKNOWN_MOVIE("ERROR: Movie Id ", " is not in the catalog");
+
+    private final String prefix;
+    private final String suffix;
+
+    ErrorCode(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    // `value` is the offending title, id or name; messages without one ignore it.
+    public String message(String value) {
+        return suffix == null ? prefix : prefix + value + suffix;
+    }
+}
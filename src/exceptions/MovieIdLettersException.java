@@ -2,6 +2,6 @@ package exceptions;
 
 public class MovieIdLettersException extends ValidationException {
     public MovieIdLettersException(String movieId) {
-        super("ERROR: Movie Id letters " + movieId + " are wrong");
+        super(ErrorCode.MOVIE_ID_LETTERS, movieId);
     }
 }
\ No newline at end of file
@@ -2,6 +2,6 @@ package exceptions;
 
 public class MovieIdNumbersException extends ValidationException {
     public MovieIdNumbersException(String movieId) {
-        super("ERROR: Movie Id numbers " + movieId + " aren't unique");
+        super(ErrorCode.MOVIE_ID_NUMBERS, movieId);
     }
 }
\ No newline at end of file
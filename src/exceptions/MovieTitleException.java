@@ -2,6 +2,6 @@ package exceptions;
 
 public class MovieTitleException extends ValidationException {
     public MovieTitleException(String title) {
-        super("ERROR: Movie Title " + title + " is wrong");
+        super(ErrorCode.MOVIE_TITLE, title);
     }
 }
\ No newline at end of file
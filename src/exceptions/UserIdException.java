@@ -2,6 +2,11 @@ package exceptions;
 
 public class UserIdException extends ValidationException {
     public UserIdException(String userId) {
-        super("ERROR: User Id " + userId + " is wrong");
+        super(ErrorCode.USER_ID, userId);
+    }
+
+    // code is USER_ID or DUPLICATE_USER_ID; both have the same message.
+    public UserIdException(ErrorCode code, String userId) {
+        super(code, userId);
     }
 }
\ No newline at end of file
@@ -2,6 +2,6 @@ package exceptions;
 
 public class UserNameException extends ValidationException {
     public UserNameException(String userName) {
-        super("ERROR: User Name " + userName + " is wrong");
+        super(ErrorCode.USER_NAME, userName);
     }
 }
\ No newline at end of file
@@ -1,7 +1,24 @@
 package exceptions;
 
 public class ValidationException extends Exception {
+    private final ErrorCode code;
+
     public ValidationException(String message) {
         super(message);
+        this.code = null;
+    }
+
+    public ValidationException(ErrorCode code) {
+        this(code, null);
+    }
+
+    public ValidationException(ErrorCode code, String value) {
+        super(code.message(value));
+        this.code = code;
+    }
+
+    // Null when the exception was created from a bare message.
+    public ErrorCode getCode() {
+        return code;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package models;
+
+import java.util.List;
+
+// One entry of a catalog change log: a movie added, a movie removed, or the genres of a
+// movie replaced. Title is only set for ADD, genres only for ADD and GENRES.
+public class CatalogChange {
+    public enum Kind { ADD, REMOVE, GENRES }
+
+    private Kind kind;
+    private String movieId;
+    private String title;
+    private List<String> genres;
+
+    public CatalogChange(Kind kind, String movieId, String title, List<String> genres) {
+        this.kind = kind;
+        this.movieId = movieId;
+        this.title = title;
+        this.genres = genres;
+    }
+
+    public static CatalogChange add(Movie movie) {
+        return new CatalogChange(Kind.ADD, movie.getId(), movie.getTitle(), movie.getGenres());
+    }
+
+    public static CatalogChange remove(String movieId) {
+        return new CatalogChange(Kind.REMOVE, movieId, null, null);
+    }
+
+    public static CatalogChange genres(String movieId, List<String> genres) {
+        return new CatalogChange(Kind.GENRES, movieId, null, genres);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public List<String> getGenres() {
+        return genres;
+    }
+}
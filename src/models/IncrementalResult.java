@@ -0,0 +1,26 @@
+package models;
+
+public class IncrementalResult {
+    private final int users;
+    private final int recomputed;
+    private final long copiedBytes;
+
+    public IncrementalResult(int users, int recomputed, long copiedBytes) {
+        this.users = users;
+        this.recomputed = recomputed;
+        this.copiedBytes = copiedBytes;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    // Users whose recommendations were generated again; the rest were copied.
+    public int getRecomputed() {
+        return recomputed;
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+}
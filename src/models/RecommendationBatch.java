@@ -0,0 +1,25 @@
+package models;
+
+import java.util.List;
+
+public class RecommendationBatch {
+    private List<UserRecommendation> recommendations;
+    private int distinctSignatures;
+
+    public RecommendationBatch(List<UserRecommendation> recommendations, int distinctSignatures) {
+        this.recommendations = recommendations;
+        this.distinctSignatures = distinctSignatures;
+    }
+
+    public List<UserRecommendation> getRecommendations() {
+        return recommendations;
+    }
+
+    public int getDistinctSignatures() {
+        return distinctSignatures;
+    }
+
+    public int getSharedComputations() {
+        return recommendations.size() - distinctSignatures;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package parsers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+class AsciiSlice implements CharSequence {
+    private final ByteBuffer buffer;
+    private int start;
+    private int end;
+
+    AsciiSlice(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    AsciiSlice set(int start, int end) {
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    AsciiSlice trim() {
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return this;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new AsciiSlice(buffer).set(start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    static boolean isAscii(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package parsers;
+
+import models.CatalogChange;
+import validators.MovieValidator;
+import exceptions.ErrorCode;
+import exceptions.ValidationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Parses an append-only catalog change log. Each entry is one of
+//
+//   ADD <title>,<movie id>        followed by a genres line, as in the movies file
+//   REMOVE <movie id>
+//   GENRES <movie id>             followed by the movie's new genres line
+//
+// Entries are validated as they are read (see MovieValidator.validateChange).
+public class ChangeLogParser {
+    private MovieValidator validator;
+
+    public ChangeLogParser() {
+        this.validator = new MovieValidator();
+    }
+
+    public List<CatalogChange> parseChanges(String filename) throws ValidationException, IOException {
+        List<CatalogChange> changes = new ArrayList<>();
+        try (ChangeLogReader reader = new ChangeLogReader(new OffsetLineReader(filename, 0), this, false)) {
+            CatalogChange change;
+            while ((change = reader.readChange()) != null) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    // Starts at `offset`, a position previously reported by ChangeLogReader.position(), so a
+    // log that is appended to can be followed without reading it again from the start. An
+    // entry still being written at the end of the log is left for a later reader.
+    public ChangeLogReader openChanges(String filename, long offset) throws IOException {
+        return new ChangeLogReader(new OffsetLineReader(filename, offset), this, true);
+    }
+
+    CatalogChange toChange(String header, String genresLine) throws ValidationException {
+        String[] kindRest = header.trim().split(" ", 2);
+        CatalogChange.Kind kind;
+        try {
+            kind = CatalogChange.Kind.valueOf(kindRest[0]);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(ErrorCode.CHANGE_FORMAT);
+        }
+        String rest = kindRest.length == 2 ? kindRest[1].trim() : "";
+
+        CatalogChange change;
+        if (kind == CatalogChange.Kind.ADD) {
+            String[] titleIdParts = rest.split(",", 2);
+            if (titleIdParts.length != 2) {
+                throw new ValidationException(ErrorCode.MOVIE_FORMAT);
+            }
+            change = new CatalogChange(kind, titleIdParts[1].trim(), titleIdParts[0].trim(), genres(genresLine));
+        } else {
+            change = new CatalogChange(kind, rest, null,
+                    kind == CatalogChange.Kind.GENRES ? genres(genresLine) : null);
+        }
+
+        validator.validateChange(change);
+        return change;
+    }
+
+    static boolean hasGenresLine(String header) {
+        return !header.trim().startsWith("REMOVE");
+    }
+
+    private static List<String> genres(String line) {
+        return line == null ? null : MovieParser.parseGenres(line);
+    }
+}
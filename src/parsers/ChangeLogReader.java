@@ -0,0 +1,51 @@
+package parsers;
+
+import models.CatalogChange;
+import exceptions.ValidationException;
+import java.io.Closeable;
+import java.io.IOException;
+
+public class ChangeLogReader implements Closeable {
+    private OffsetLineReader reader;
+    private ChangeLogParser parser;
+    private boolean follow;
+
+    // With `follow`, the log may still be being appended to: an entry whose lines are not
+    // all ended by a line terminator yet is left unread, and readChange returns null with
+    // position() at the start of that entry.
+    ChangeLogReader(OffsetLineReader reader, ChangeLogParser parser, boolean follow) {
+        this.reader = reader;
+        this.parser = parser;
+        this.follow = follow;
+    }
+
+    public CatalogChange readChange() throws ValidationException, IOException {
+        if (!follow) {
+            String header = reader.readLine();
+            if (header == null) {
+                return null;
+            }
+            String genres = ChangeLogParser.hasGenresLine(header) ? reader.readLine() : null;
+            return parser.toChange(header, genres);
+        }
+
+        reader.mark();
+        String header = reader.readFinishedLine();
+        String genres = header != null && ChangeLogParser.hasGenresLine(header) ? reader.readFinishedLine() : null;
+        if (header == null || genres == null && ChangeLogParser.hasGenresLine(header)) {
+            reader.reset();
+            return null;
+        }
+        return parser.toChange(header, genres);
+    }
+
+    // Byte offset in the log just past the last entry readChange returned or rejected.
+    public long position() {
+        return reader.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
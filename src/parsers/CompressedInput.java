@@ -0,0 +1,26 @@
+package parsers;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+// Input files whose name ends in ".gz" are read through a streaming gzip decompressor.
+// They cannot be memory-mapped, so the mapped and parallel parsers read them sequentially.
+class CompressedInput {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    static boolean isGzip(String filename) {
+        return filename.endsWith(".gz");
+    }
+
+    static InputStream open(String filename) throws IOException {
+        FileInputStream file = new FileInputStream(filename);
+        try {
+            return new GZIPInputStream(file, BUFFER_SIZE);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+}
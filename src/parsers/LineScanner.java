@@ -0,0 +1,86 @@
+package parsers;
+
+import java.nio.ByteBuffer;
+
+// Splits a byte buffer into lines the way BufferedReader.readLine does: a line ends
+// at '\n', '\r' or "\r\n". When the buffer is only a window of a larger file, a line
+// that runs into the end of the window is reported as incomplete instead.
+class LineScanner {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final boolean endOfInput;
+    private int position;
+    private int lineStart;
+    private int lineEnd;
+
+    LineScanner(ByteBuffer buffer, int position, int limit, boolean endOfInput) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+        this.endOfInput = endOfInput;
+    }
+
+    boolean nextLine() {
+        if (position >= limit) {
+            return false;
+        }
+
+        for (int i = position; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                lineStart = position;
+                lineEnd = i;
+                position = i + 1;
+                return true;
+            }
+            if (b == '\r') {
+                if (i + 1 < limit) {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+                    return true;
+                }
+                if (!endOfInput) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = i;
+                position = i + 1;
+                return true;
+            }
+        }
+
+        if (!endOfInput) {
+            return false;
+        }
+        lineStart = position;
+        lineEnd = limit;
+        position = limit;
+        return true;
+    }
+
+    int lineStart() {
+        return lineStart;
+    }
+
+    int lineEnd() {
+        return lineEnd;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void reset(int position) {
+        this.position = position;
+    }
+
+    static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -2,55 +2,217 @@ package parsers;
 
 import models.Movie;
 import validators.MovieValidator;
+import validators.ValidationReport;
+import exceptions.ErrorCode;
 import exceptions.ValidationException;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.ArrayList;
 
 public class MovieParser {
+    private static final long MAP_WINDOW = 1L << 30;
+
     private MovieValidator validator;
+    private long mapWindow;
 
     public MovieParser() {
+        this(MAP_WINDOW);
+    }
+
+    MovieParser(long mapWindow) {
         this.validator = new MovieValidator();
+        this.mapWindow = mapWindow;
     }
 
     public List<Movie> parseMovies(String filename)
             throws ValidationException, IOException {
         List<Movie> movies = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        BufferedReader reader = CompressedInput.isGzip(filename)
+                ? new BufferedReader(new InputStreamReader(CompressedInput.open(filename)))
+                : new BufferedReader(new FileReader(filename));
 
         String line;
         while ((line = reader.readLine()) != null) {
             String[] titleIdParts = line.split(",", 2);
             if (titleIdParts.length != 2) {
                 reader.close();
-                throw new ValidationException("Invalid movie format");
+                throw new ValidationException(ErrorCode.MOVIE_FORMAT);
             }
 
             String title = titleIdParts[0].trim();
             String id = titleIdParts[1].trim();
 
-            validator.validateTitle(title);
-            validator.validateMovieId(title, id);
+            validator.validateMovie(title, id);
 
             line = reader.readLine();
             if (line == null) {
                 reader.close();
-                throw new ValidationException("Missing genres line");
-            }
-
-            String[] genreArray = line.split(",");
-            List<String> genres = new ArrayList<>();
-            for (String genre : genreArray) {
-                genres.add(genre.trim());
+                throw new ValidationException(ErrorCode.MISSING_GENRES);
             }
 
-            movies.add(new Movie(title, id, genres));
+            movies.add(new Movie(title, id, parseGenres(line)));
         }
 
         reader.close();
         return movies;
     }
+
+    // Report mode: checks every record and returns all errors with their line numbers
+    // instead of stopping at the first. The parse methods stay fail-first.
+    public ValidationReport validateMovies(String filename) throws IOException {
+        return validateMovies(filename, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ValidationReport validateMovies(String filename, int parallelism) throws IOException {
+        return new ReportScanner(parallelism, 0, ValidationReport.DEFAULT_LIMIT, UserIdSet.UNLIMITED)
+                .scan(filename, this::checkMovie);
+    }
+
+    void checkMovie(String titleIdLine, String genresLine, long line, ReportScanner.Chunk chunk) {
+        String[] titleIdParts = titleIdLine.split(",", 2);
+        if (titleIdParts.length != 2) {
+            chunk.fail(line, ReportScanner.STAGE_FIELDS, ErrorCode.MOVIE_FORMAT, null);
+            return;
+        }
+
+        String title = titleIdParts[0].trim();
+        String id = titleIdParts[1].trim();
+
+        // The id is only checked against a valid title, since its letters come from the title.
+        ErrorCode error = validator.checkTitle(title);
+        if (error != null) {
+            chunk.fail(line, ReportScanner.STAGE_FIELDS, error, title);
+        } else if ((error = validator.checkMovieId(title, id)) != null) {
+            chunk.fail(line, ReportScanner.STAGE_ID, error, id);
+        }
+
+        if (genresLine == null) {
+            chunk.fail(line, ReportScanner.STAGE_SECOND_LINE, ErrorCode.MISSING_GENRES, null);
+        }
+    }
+
+    public List<Movie> parseMoviesMapped(String filename)
+            throws ValidationException, IOException {
+        if (CompressedInput.isGzip(filename)) {
+            return parseMovies(filename);
+        }
+        List<Movie> movies = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+
+            while (position < size) {
+                long length = Math.min(mapWindow, size - position);
+                boolean endOfInput = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int consumed = parseWindow(buffer, (int) length, endOfInput, movies);
+                if (consumed == 0) {
+                    throw new IOException("Movie record at byte " + position
+                            + " does not fit in a " + mapWindow + " byte mapping window");
+                }
+                position += consumed;
+            }
+        }
+
+        return movies;
+    }
+
+    private int parseWindow(ByteBuffer buffer, int limit, boolean endOfInput, List<Movie> movies)
+            throws ValidationException {
+        LineScanner lines = new LineScanner(buffer, 0, limit, endOfInput);
+        AsciiSlice title = new AsciiSlice(buffer);
+        AsciiSlice id = new AsciiSlice(buffer);
+
+        int recordStart = 0;
+        while (lines.nextLine()) {
+            int titleIdStart = lines.lineStart();
+            int titleIdEnd = lines.lineEnd();
+
+            boolean hasGenres = lines.nextLine();
+            if (!hasGenres && !endOfInput) {
+                return recordStart;
+            }
+
+            int comma = LineScanner.indexOf(buffer, titleIdStart, titleIdEnd, (byte) ',');
+            if (comma < 0) {
+                throw new ValidationException(ErrorCode.MOVIE_FORMAT);
+            }
+
+            int genresStart = lines.lineStart();
+            int genresEnd = lines.lineEnd();
+
+            if (!AsciiSlice.isAscii(buffer, titleIdStart, titleIdEnd)) {
+                String[] titleIdParts = AsciiSlice.decode(buffer, titleIdStart, titleIdEnd).split(",", 2);
+                String decodedTitle = titleIdParts[0].trim();
+                String decodedId = titleIdParts[1].trim();
+
+                validator.validateMovie(decodedTitle, decodedId);
+
+                if (!hasGenres) {
+                    throw new ValidationException(ErrorCode.MISSING_GENRES);
+                }
+                movies.add(new Movie(decodedTitle, decodedId, parseGenres(buffer, genresStart, genresEnd)));
+            } else {
+                title.set(titleIdStart, comma).trim();
+                id.set(comma + 1, titleIdEnd).trim();
+
+                validator.validateMovie(buffer, title.start(), title.end(), id.start(), id.end());
+
+                if (!hasGenres) {
+                    throw new ValidationException(ErrorCode.MISSING_GENRES);
+                }
+                movies.add(new Movie(title.toString(), id.toString(), parseGenres(buffer, genresStart, genresEnd)));
+            }
+
+            recordStart = lines.position();
+        }
+
+        return recordStart;
+    }
+
+    // Mirrors parseGenres(String): split(",") drops trailing empty fields, then each field is trimmed.
+    private List<String> parseGenres(ByteBuffer buffer, int start, int end) {
+        if (!AsciiSlice.isAscii(buffer, start, end)) {
+            return parseGenres(AsciiSlice.decode(buffer, start, end));
+        }
+
+        List<String> genres = new ArrayList<>();
+        if (LineScanner.indexOf(buffer, start, end, (byte) ',') < 0) {
+            genres.add(new AsciiSlice(buffer).set(start, end).trim().toString());
+            return genres;
+        }
+
+        while (end > start && buffer.get(end - 1) == ',') {
+            end--;
+        }
+
+        AsciiSlice genre = new AsciiSlice(buffer);
+        int fieldStart = start;
+        while (fieldStart < end) {
+            int comma = LineScanner.indexOf(buffer, fieldStart, end, (byte) ',');
+            int fieldEnd = comma < 0 ? end : comma;
+            genres.add(genre.set(fieldStart, fieldEnd).trim().toString());
+            fieldStart = fieldEnd + 1;
+        }
+        return genres;
+    }
+
+    static List<String> parseGenres(String line) {
+        String[] genreArray = line.split(",");
+        List<String> genres = new ArrayList<>();
+        for (String genre : genreArray) {
+            genres.add(genre.trim());
+        }
+        return genres;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package parsers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Reads UTF-8 lines from a file with the same line endings as BufferedReader.readLine,
+// and knows the byte offset of the next unread line, so a reader can be reopened exactly
+// where an earlier one stopped. For a gzip file the offsets count uncompressed bytes.
+class OffsetLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private long bufferOffset;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    // Buffer index that reset() goes back to, or -1; fill() keeps the bytes from it on.
+    private int mark = -1;
+
+    OffsetLineReader(String filename, long offset) throws IOException {
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.bufferOffset = offset;
+
+        if (CompressedInput.isGzip(filename)) {
+            InputStream in = CompressedInput.open(filename);
+            this.channel = Channels.newChannel(in);
+            try {
+                skip(in, offset);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        } else {
+            FileChannel file = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            file.position(offset);
+            this.channel = file;
+        }
+    }
+
+    String readLine() throws IOException {
+        while (true) {
+            LineScanner lines = new LineScanner(buffer, position, limit, endOfInput);
+            if (lines.nextLine()) {
+                position = lines.position();
+                return AsciiSlice.decode(buffer, lines.lineStart(), lines.lineEnd());
+            }
+            if (endOfInput) {
+                return null;
+            }
+            fill();
+        }
+    }
+
+    // Like readLine, but for a file that may still be written to: a last line not yet ended
+    // by a line terminator is left unread and null returned. A '\r' at the very end counts
+    // as unfinished too, since a '\n' may follow it.
+    String readFinishedLine() throws IOException {
+        while (true) {
+            LineScanner lines = new LineScanner(buffer, position, limit, false);
+            if (lines.nextLine()) {
+                position = lines.position();
+                return AsciiSlice.decode(buffer, lines.lineStart(), lines.lineEnd());
+            }
+            if (endOfInput) {
+                return null;
+            }
+            fill();
+        }
+    }
+
+    // Remembers the current position for reset().
+    void mark() {
+        mark = position;
+    }
+
+    // Goes back to the position of the last mark(), so the lines read since are read again.
+    void reset() {
+        position = mark;
+    }
+
+    // Byte offset in the file of the first line readLine has not returned yet.
+    long position() {
+        return bufferOffset + position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void skip(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Offset is past the end of the input");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private void fill() throws IOException {
+        int start = mark >= 0 ? Math.min(mark, position) : position;
+        int remaining = limit - start;
+        if (remaining == buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.position(start).limit(limit);
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            buffer.position(start).limit(limit);
+            buffer.compact();
+        }
+        bufferOffset += start;
+        position -= start;
+        if (mark >= 0) {
+            mark -= start;
+        }
+        limit = remaining;
+
+        buffer.limit(buffer.capacity()).position(limit);
+        int read = channel.read(buffer);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+}
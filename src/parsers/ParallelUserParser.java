@@ -0,0 +1,221 @@
+package parsers;
+
+import models.User;
+import exceptions.UserIdException;
+import exceptions.ErrorCode;
+import exceptions.ValidationException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+// Parses users.txt on a ForkJoin pool. Every chunk validates its own records and stops
+// at its first error; user ids are then checked for uniqueness in parallel buckets keyed
+// by id hash, each bucket walking its ids in file order. The error that would have been
+// hit first by the sequential parser is the one with the smallest record offset.
+class ParallelUserParser {
+    private static final long MIN_CHUNK = 1L << 20;
+
+    // Within one record the sequential parser checks name and id, then uniqueness,
+    // then the liked movies line.
+    private static final int STAGE_NAME_ID = 0;
+    private static final int STAGE_UNIQUE_ID = 1;
+    private static final int STAGE_LIKED_LINE = 2;
+
+    private final UserParser parser;
+    private final int parallelism;
+    private final int chunks;
+
+    ParallelUserParser(UserParser parser, int parallelism, int chunks) {
+        this.parser = parser;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunks = chunks;
+    }
+
+    List<User> parse(String filename) throws ValidationException, IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = chunks > 0 ? chunks
+                    : (int) Math.max(1, Math.min(parallelism * 4L, size / MIN_CHUNK));
+            long[] bounds = new RecordSplitter(channel, pool).split(chunkCount);
+
+            List<Callable<Chunk>> parseTasks = new ArrayList<>();
+            for (int k = 0; k + 1 < bounds.length; k++) {
+                long start = bounds[k];
+                long end = bounds[k + 1];
+                parseTasks.add(() -> parseChunk(channel, start, end));
+            }
+            List<Chunk> parsed = RecordSplitter.invokeAll(pool, parseTasks);
+
+            int lastChunk = 0;
+            while (lastChunk < parsed.size() - 1 && parsed.get(lastChunk).error == null) {
+                lastChunk++;
+            }
+            int stop = lastChunk;
+
+            // Without validation no ids were collected, so there is nothing to check.
+            List<Callable<Failure>> uniqueTasks = new ArrayList<>();
+            for (int b = 0; parser.validates() && b < parallelism; b++) {
+                int bucket = b;
+                uniqueTasks.add(() -> findDuplicate(parsed, stop, bucket));
+            }
+
+            Failure first = parsed.get(stop).error;
+            for (Failure duplicate : RecordSplitter.invokeAll(pool, uniqueTasks)) {
+                if (duplicate != null && (first == null || duplicate.before(first))) {
+                    first = duplicate;
+                }
+            }
+            if (first != null) {
+                throw first.exception;
+            }
+
+            List<User> users = new ArrayList<>();
+            for (Chunk chunk : parsed) {
+                users.addAll(chunk.users);
+            }
+            return users;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Chunk parseChunk(FileChannel channel, long start, long end) throws IOException {
+        Chunk chunk = new Chunk(parallelism);
+        if (start == end) {
+            return chunk;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        LineScanner lines = new LineScanner(buffer, 0, (int) (end - start), true);
+
+        while (lines.nextLine()) {
+            long offset = start + lines.lineStart();
+            int nameIdStart = lines.lineStart();
+            int nameIdEnd = lines.lineEnd();
+            String likedLine = lines.nextLine()
+                    ? AsciiSlice.decode(buffer, lines.lineStart(), lines.lineEnd())
+                    : null;
+
+            String[] nameId;
+            try {
+                nameId = parseNameId(buffer, nameIdStart, nameIdEnd);
+            } catch (ValidationException e) {
+                chunk.error = new Failure(offset, STAGE_NAME_ID, e);
+                return chunk;
+            }
+
+            if (parser.validates()) {
+                chunk.add(offset, nameId[1]);
+            }
+
+            try {
+                chunk.users.add(parser.toUser(nameId[0], nameId[1], likedLine));
+            } catch (ValidationException e) {
+                chunk.error = new Failure(offset, STAGE_LIKED_LINE, e);
+                return chunk;
+            }
+        }
+        return chunk;
+    }
+
+    // Same result as UserParser.parseNameId on the decoded line, but name and id are
+    // validated straight from the mapped bytes. A comma byte never occurs inside a UTF-8
+    // multi-byte sequence, and trimming bytes up to ' ' trims the same characters as
+    // String.trim, so splitting and trimming before decoding changes nothing.
+    private String[] parseNameId(ByteBuffer buffer, int start, int end) throws ValidationException {
+        int comma = LineScanner.indexOf(buffer, start, end, (byte) ',');
+        if (comma < 0) {
+            throw new ValidationException(ErrorCode.USER_FORMAT);
+        }
+
+        if (parser.validates()) {
+            parser.getValidator().validateUser(buffer, start, comma, comma + 1, end);
+        }
+
+        AsciiSlice name = new AsciiSlice(buffer).set(start, comma).trim();
+        AsciiSlice id = new AsciiSlice(buffer).set(comma + 1, end).trim();
+        return new String[] {
+                AsciiSlice.decode(buffer, name.start(), name.end()),
+                AsciiSlice.decode(buffer, id.start(), id.end())
+        };
+    }
+
+    private Failure findDuplicate(List<Chunk> parsed, int stop, int bucket) throws IOException {
+        try (UserIdSet userIds = new UserIdSet(parser.getUserIdMemoryBudget() / parallelism)) {
+            return findDuplicate(parsed, stop, bucket, userIds);
+        }
+    }
+
+    private Failure findDuplicate(List<Chunk> parsed, int stop, int bucket, UserIdSet userIds) {
+        for (int k = 0; k <= stop; k++) {
+            Bucket ids = parsed.get(k).buckets[bucket];
+            for (int i = 0; i < ids.size; i++) {
+                try {
+                    parser.getValidator().validateUniqueUserId(ids.ids[i], userIds);
+                } catch (UserIdException e) {
+                    return new Failure(ids.offsets[i], STAGE_UNIQUE_ID, e);
+                }
+                userIds.add(ids.ids[i]);
+            }
+        }
+        return null;
+    }
+
+    private static class Chunk {
+        final List<User> users = new ArrayList<>();
+        final Bucket[] buckets;
+        Failure error;
+
+        Chunk(int bucketCount) {
+            buckets = new Bucket[bucketCount];
+            for (int b = 0; b < bucketCount; b++) {
+                buckets[b] = new Bucket();
+            }
+        }
+
+        void add(long offset, String id) {
+            buckets[Math.floorMod(id.hashCode(), buckets.length)].add(offset, id);
+        }
+    }
+
+    private static class Bucket {
+        String[] ids = new String[16];
+        long[] offsets = new long[16];
+        int size;
+
+        void add(long offset, String id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            size++;
+        }
+    }
+
+    private static class Failure {
+        final long offset;
+        final int stage;
+        final ValidationException exception;
+
+        Failure(long offset, int stage, ValidationException exception) {
+            this.offset = offset;
+            this.stage = stage;
+            this.exception = exception;
+        }
+
+        boolean before(Failure other) {
+            return offset < other.offset || (offset == other.offset && stage < other.stage);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package parsers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Splits a file of two-line records into byte ranges that each start at a record.
+// A line alone cannot tell whether it is the first or second line of a record, so
+// the chunks first count their line terminators in parallel; the running count then
+// gives the parity of the line at every chunk boundary, and each boundary moves
+// forward to the next line with an even index.
+class RecordSplitter {
+    static final long MAX_CHUNK = 1L << 30;
+
+    private final FileChannel channel;
+    private final ForkJoinPool pool;
+
+    RecordSplitter(FileChannel channel, ForkJoinPool pool) {
+        this.channel = channel;
+        this.pool = pool;
+    }
+
+    long[] split(int chunks) throws IOException {
+        long size = channel.size();
+        chunks = (int) Math.max(chunks, (size + MAX_CHUNK - 1) / MAX_CHUNK);
+        chunks = (int) Math.max(1, Math.min(chunks, size));
+
+        List<Callable<LineCount>> tasks = new ArrayList<>();
+        for (int k = 0; k < chunks; k++) {
+            long start = size * k / chunks;
+            long end = size * (k + 1) / chunks;
+            tasks.add(() -> countLines(start, end, size));
+        }
+        List<LineCount> counts = invokeAll(pool, tasks);
+
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+
+        long linesBefore = 0;
+        for (int k = 0; k < chunks; k++) {
+            LineCount count = counts.get(k);
+            if (k > 0) {
+                long line = count.startsLine ? linesBefore : linesBefore + 1;
+                if (line % 2 == 1) {
+                    line++;
+                }
+                bounds[k] = lineStart(counts, k, linesBefore, line, size);
+            }
+            linesBefore += count.terminators;
+        }
+
+        for (int k = 1; k <= chunks; k++) {
+            bounds[k] = Math.max(bounds[k], bounds[k - 1]);
+        }
+        return bounds;
+    }
+
+    // Position where line number `line` starts, given that it starts at or after chunk k.
+    private long lineStart(List<LineCount> counts, int k, long linesBefore, long line, long size) {
+        if (line == linesBefore && counts.get(k).startsLine) {
+            return size * k / counts.size();
+        }
+
+        long terminator = line - 1;
+        for (int j = k; j < counts.size(); j++) {
+            LineCount count = counts.get(j);
+            long index = terminator - linesBefore;
+            if (index < count.terminators) {
+                return count.firstLineStarts[(int) index];
+            }
+            linesBefore += count.terminators;
+        }
+        return size;
+    }
+
+    private LineCount countLines(long start, long end, long size) throws IOException {
+        long from = Math.max(0, start - 1);
+        long to = Math.min(size, end + 1);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int offset = (int) (start - from);
+        int limit = (int) (end - from);
+
+        LineCount count = new LineCount();
+        if (start == 0) {
+            count.startsLine = true;
+        } else {
+            byte previous = buffer.get(offset - 1);
+            count.startsLine = previous == '\n' || (previous == '\r' && buffer.get(offset) != '\n');
+        }
+
+        for (int i = offset; i < limit; i++) {
+            byte b = buffer.get(i);
+            boolean terminator = b == '\n'
+                    || (b == '\r' && (i + 1 >= buffer.limit() || buffer.get(i + 1) != '\n'));
+            if (terminator) {
+                if (count.terminators < 2) {
+                    count.firstLineStarts[(int) count.terminators] = from + i + 1;
+                }
+                count.terminators++;
+            }
+        }
+        return count;
+    }
+
+    static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+
+    private static class LineCount {
+        boolean startsLine;
+        long terminators;
+        long[] firstLineStarts = new long[2];
+    }
+}
@@ -0,0 +1,299 @@
+package parsers;
+
+import validators.ValidationReport;
+import exceptions.ErrorCode;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+// Scans a whole file of two-line records and collects every validation error instead of
+// stopping at the first. The chunks from RecordSplitter are checked in parallel, each
+// numbering its lines from zero; the line counts of the chunks before it then make those
+// numbers absolute. Nothing is thrown: the checks return error codes.
+//
+// User ids are checked for duplicates after the chunks are done, in parallel buckets keyed
+// by id hash, each bucket walking its ids in file order, as in ParallelUserParser. Until
+// then each id is held packed into a long (UserIdSet.pack) with its line number; only ids
+// that do not pack are held as strings.
+class ReportScanner {
+    private static final long MIN_CHUNK = 1L << 20;
+
+    // Order of the checks within one record, matching the order of the fail-first parser.
+    static final int STAGE_FIELDS = 0;
+    static final int STAGE_ID = 1;
+    static final int STAGE_DUPLICATE = 2;
+    static final int STAGE_SECOND_LINE = 3;
+
+    interface RecordCheck {
+        // `second` is null when the file ends after `first`; `line` is the chunk-relative
+        // index of `first`.
+        void check(String first, String second, long line, Chunk chunk);
+    }
+
+    private final int parallelism;
+    private final int chunks;
+    private final int limit;
+    private final long userIdMemoryBudget;
+
+    // chunks = 0 picks a count from the file size.
+    ReportScanner(int parallelism, int chunks, int limit, long userIdMemoryBudget) {
+        this.parallelism = Math.max(1, parallelism);
+        this.chunks = chunks;
+        this.limit = limit;
+        this.userIdMemoryBudget = userIdMemoryBudget;
+    }
+
+    ValidationReport scan(String filename, RecordCheck check) throws IOException {
+        List<Chunk> chunks = CompressedInput.isGzip(filename)
+                ? List.of(scanSequential(filename, check))
+                : scanParallel(filename, check);
+
+        long lines = 0;
+        List<Failure> failures = new ArrayList<>();
+        Map<ErrorCode, Long> dropped = new EnumMap<>(ErrorCode.class);
+        for (Chunk chunk : chunks) {
+            chunk.firstLine = lines;
+            lines += chunk.lines;
+            // Duplicates only add errors, so anything past the first `limit` in chunk order
+            // cannot make it into the report.
+            for (Failure failure : chunk.failures) {
+                if (failures.size() < limit) {
+                    failure.line += chunk.firstLine;
+                    failures.add(failure);
+                } else {
+                    dropped.merge(failure.code, 1L, Long::sum);
+                }
+            }
+            chunk.dropped.forEach((code, count) -> dropped.merge(code, count, Long::sum));
+        }
+
+        if (chunks.stream().anyMatch(chunk -> chunk.hasIds)) {
+            for (Bucket duplicates : findDuplicates(chunks)) {
+                for (int i = 0; i < duplicates.size; i++) {
+                    failures.add(new Failure(duplicates.lines[i], STAGE_DUPLICATE,
+                            ErrorCode.DUPLICATE_USER_ID, duplicates.ids[i]));
+                }
+                duplicates.dropped.forEach((code, count) -> dropped.merge(code, count, Long::sum));
+            }
+        }
+
+        failures.sort(Comparator.comparingLong((Failure failure) -> failure.line)
+                .thenComparingInt(failure -> failure.stage));
+
+        ValidationReport report = new ValidationReport(filename, limit);
+        for (Failure failure : failures) {
+            report.add(failure.line + 1, failure.code, failure.value);
+        }
+        dropped.forEach(report::count);
+        return report;
+    }
+
+    private Chunk scanSequential(String filename, RecordCheck check) throws IOException {
+        Chunk chunk = new Chunk(parallelism, limit);
+        try (OffsetLineReader reader = new OffsetLineReader(filename, 0)) {
+            String first;
+            while ((first = reader.readLine()) != null) {
+                String second = reader.readLine();
+                check.check(first, second, chunk.lines, chunk);
+                chunk.lines += second == null ? 1 : 2;
+            }
+        }
+        return chunk;
+    }
+
+    private List<Chunk> scanParallel(String filename, RecordCheck check) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = chunks > 0 ? chunks
+                    : (int) Math.max(1, Math.min(parallelism * 4L, size / MIN_CHUNK));
+            long[] bounds = new RecordSplitter(channel, pool).split(chunkCount);
+
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int k = 0; k + 1 < bounds.length; k++) {
+                long start = bounds[k];
+                long end = bounds[k + 1];
+                tasks.add(() -> scanChunk(channel, start, end, check));
+            }
+            return RecordSplitter.invokeAll(pool, tasks);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Chunk scanChunk(FileChannel channel, long start, long end, RecordCheck check) throws IOException {
+        Chunk chunk = new Chunk(parallelism, limit);
+        if (start == end) {
+            return chunk;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        LineScanner lines = new LineScanner(buffer, 0, (int) (end - start), true);
+        while (lines.nextLine()) {
+            String first = AsciiSlice.decode(buffer, lines.lineStart(), lines.lineEnd());
+            String second = lines.nextLine()
+                    ? AsciiSlice.decode(buffer, lines.lineStart(), lines.lineEnd())
+                    : null;
+            check.check(first, second, chunk.lines, chunk);
+            chunk.lines += second == null ? 1 : 2;
+        }
+        return chunk;
+    }
+
+    private List<Bucket> findDuplicates(List<Chunk> chunks) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Bucket>> tasks = new ArrayList<>();
+            for (int b = 0; b < parallelism; b++) {
+                int bucket = b;
+                tasks.add(() -> findDuplicates(chunks, bucket));
+            }
+            return RecordSplitter.invokeAll(pool, tasks);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Bucket findDuplicates(List<Chunk> chunks, int bucket) throws IOException {
+        Bucket duplicates = new Bucket(limit);
+        try (UserIdSet userIds = new UserIdSet(userIdMemoryBudget / parallelism)) {
+            // A packed id never equals one that does not pack, so the two kinds can be
+            // checked one after the other.
+            for (Chunk chunk : chunks) {
+                IdBucket ids = chunk.buckets[bucket];
+                for (int i = 0; i < ids.keyCount; i++) {
+                    if (!userIds.addPacked(ids.keys[i])) {
+                        duplicates.add(chunk.firstLine + ids.keyLines[i], UserIdSet.unpack(ids.keys[i]));
+                    }
+                }
+                for (int i = 0; i < ids.otherCount; i++) {
+                    if (!userIds.add(ids.others[i])) {
+                        duplicates.add(chunk.firstLine + ids.otherLines[i], ids.others[i]);
+                    }
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    static class Chunk {
+        private final int limit;
+        private final List<Failure> failures = new ArrayList<>();
+        private final Map<ErrorCode, Long> dropped = new EnumMap<>(ErrorCode.class);
+        private final IdBucket[] buckets;
+        private boolean hasIds;
+        private long lines;
+        private long firstLine;
+
+        Chunk(int bucketCount, int limit) {
+            this.limit = limit;
+            this.buckets = new IdBucket[bucketCount];
+            for (int b = 0; b < bucketCount; b++) {
+                buckets[b] = new IdBucket();
+            }
+        }
+
+        // Keeps the first `limit` errors of the chunk; later ones are only counted, since
+        // the report will not keep them either.
+        void fail(long line, int stage, ErrorCode code, String value) {
+            if (failures.size() < limit) {
+                failures.add(new Failure(line, stage, code, value));
+            } else {
+                dropped.merge(code, 1L, Long::sum);
+            }
+        }
+
+        // A valid user id to check for duplicates once all chunks are scanned.
+        void addId(long line, String id) {
+            hasIds = true;
+            long key = UserIdSet.pack(id);
+            if (key >= 0) {
+                long hash = key * 0x9E3779B97F4A7C15L;
+                buckets[(int) ((hash >>> 32) % buckets.length)].add(line, key);
+            } else {
+                buckets[Math.floorMod(id.hashCode(), buckets.length)].add(line, id);
+            }
+        }
+    }
+
+    // The ids of one chunk for one bucket, in file order: packed keys and, apart from them,
+    // ids that do not pack.
+    private static class IdBucket {
+        long[] keys = new long[16];
+        long[] keyLines = new long[16];
+        int keyCount;
+        String[] others = new String[0];
+        long[] otherLines = new long[0];
+        int otherCount;
+
+        void add(long line, long key) {
+            if (keyCount == keys.length) {
+                keys = Arrays.copyOf(keys, keyCount * 2);
+                keyLines = Arrays.copyOf(keyLines, keyCount * 2);
+            }
+            keys[keyCount] = key;
+            keyLines[keyCount] = line;
+            keyCount++;
+        }
+
+        void add(long line, String id) {
+            if (otherCount == others.length) {
+                others = Arrays.copyOf(others, Math.max(16, otherCount * 2));
+                otherLines = Arrays.copyOf(otherLines, Math.max(16, otherCount * 2));
+            }
+            others[otherCount] = id;
+            otherLines[otherCount] = line;
+            otherCount++;
+        }
+    }
+
+    private static class Bucket {
+        final int limit;
+        final Map<ErrorCode, Long> dropped = new EnumMap<>(ErrorCode.class);
+        String[] ids = new String[16];
+        long[] lines = new long[16];
+        int size;
+
+        Bucket(int limit) {
+            this.limit = limit;
+        }
+
+        void add(long line, String id) {
+            if (size == limit) {
+                dropped.merge(ErrorCode.DUPLICATE_USER_ID, 1L, Long::sum);
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            ids[size] = id;
+            lines[size] = line;
+            size++;
+        }
+    }
+
+    private static class Failure {
+        long line;
+        final int stage;
+        final ErrorCode code;
+        final String value;
+
+        Failure(long line, int stage, ErrorCode code, String value) {
+            this.line = line;
+            this.stage = stage;
+            this.code = code;
+            this.value = value;
+        }
+    }
+}
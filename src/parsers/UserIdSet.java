@@ -0,0 +1,499 @@
+package parsers;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Set of user ids for the uniqueness check. A valid id (eight ASCII digits followed by an
+// ASCII digit or letter) is packed into one long and kept in an open-addressing table of
+// primitive longs; any other string goes to a plain HashSet on the side.
+//
+// The table never grows past the memory budget. When it is full its keys are sorted and
+// written to a run, which is memory-mapped and binary searched from then on, and the table
+// starts again empty. Runs are merged in tiers: a spilled run is in tier 0, and MAX_RUNS
+// runs of one tier are merged into one run of the next. So there are at most MAX_RUNS - 1
+// runs per tier and log base MAX_RUNS of (ids / table size) tiers, a lookup costs one table
+// probe plus a binary search per run, and each id is rewritten once per tier. A run is
+// stored as files of at most MAX_FILE_KEYS keys each, since one mapping cannot pass 2 GB.
+class UserIdSet extends AbstractSet<String> implements Closeable {
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final int MAX_RUNS = 4;
+    private static final int MIN_CAPACITY = 1 << 10;
+    private static final long EMPTY = -1;
+    private static final long MAX_FILE_KEYS = Integer.MAX_VALUE / 8;
+
+    private final long memoryBudget;
+    private final long maxFileKeys;
+    private final Set<String> others = new HashSet<>();
+    private final List<Run> runs = new ArrayList<>();
+
+    private long[] table;
+    private int tableSize;
+    private int size;
+
+    UserIdSet() {
+        this(UNLIMITED);
+    }
+
+    // memoryBudget is in bytes and bounds the packed table, which takes 8 bytes per slot.
+    UserIdSet(long memoryBudget) {
+        this(memoryBudget, MAX_FILE_KEYS);
+    }
+
+    UserIdSet(long memoryBudget, long maxFileKeys) {
+        this.memoryBudget = Math.max(memoryBudget, MIN_CAPACITY * 8L);
+        this.maxFileKeys = maxFileKeys;
+        this.table = emptyTable(MIN_CAPACITY);
+    }
+
+    // Packs "dddddddd" + digit or letter into (eight digits) * 64 + code of the last
+    // character; returns -1 for anything else.
+    static long pack(String id) {
+        if (id.length() != 9) {
+            return -1;
+        }
+        long digits = 0;
+        for (int i = 0; i < 8; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            digits = digits * 10 + (c - '0');
+        }
+
+        char last = id.charAt(8);
+        int code;
+        if (last >= '0' && last <= '9') {
+            code = last - '0';
+        } else if (last >= 'A' && last <= 'Z') {
+            code = 10 + last - 'A';
+        } else if (last >= 'a' && last <= 'z') {
+            code = 36 + last - 'a';
+        } else {
+            return -1;
+        }
+        return digits << 6 | code;
+    }
+
+    static String unpack(long key) {
+        int code = (int) (key & 63);
+        char last = code < 10 ? (char) ('0' + code)
+                : code < 36 ? (char) ('A' + code - 10)
+                : (char) ('a' + code - 36);
+
+        char[] id = new char[9];
+        long digits = key >>> 6;
+        for (int i = 7; i >= 0; i--) {
+            id[i] = (char) ('0' + digits % 10);
+            digits /= 10;
+        }
+        id[8] = last;
+        return new String(id);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        long key = pack((String) o);
+        if (key < 0) {
+            return others.contains(o);
+        }
+        if (table[slot(key)] == key) {
+            return true;
+        }
+        for (Run run : runs) {
+            if (run.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(String id) {
+        long key = pack(id);
+        if (key < 0) {
+            if (!others.add(id)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        return addPacked(key);
+    }
+
+    // Adds an id already packed by pack().
+    boolean addPacked(long key) {
+        int slot = slot(key);
+        if (table[slot] == key) {
+            return false;
+        }
+        for (Run run : runs) {
+            if (run.contains(key)) {
+                return false;
+            }
+        }
+
+        table[slot] = key;
+        tableSize++;
+        size++;
+        if (tableSize > table.length / 4 * 3) {
+            makeRoom();
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int runCount() {
+        return runs.size();
+    }
+
+    int runFileCount() {
+        int files = 0;
+        for (Run run : runs) {
+            files += run.files.length;
+        }
+        return files;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private final Iterator<String> other = others.iterator();
+            private int index;
+            private int run = -1;
+            private Cursor cursor;
+            private long next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0 || other.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (next >= 0) {
+                    String id = unpack(next);
+                    next = advance();
+                    return id;
+                }
+                return other.next();
+            }
+
+            // Table slots first, then each run in turn; -1 once all packed keys are done.
+            private long advance() {
+                while (run < 0 && index < table.length) {
+                    long key = table[index++];
+                    if (key != EMPTY) {
+                        return key;
+                    }
+                }
+                while (cursor == null || !cursor.hasNext()) {
+                    if (++run >= runs.size()) {
+                        return -1;
+                    }
+                    cursor = new Cursor(runs.get(run));
+                }
+                return cursor.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        deleteRuns();
+    }
+
+    private void deleteRuns() throws IOException {
+        IOException failure = null;
+        for (Run run : runs) {
+            try {
+                run.delete();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void makeRoom() {
+        if (table.length * 16L <= memoryBudget) {
+            long[] old = table;
+            table = emptyTable(old.length * 2);
+            for (long key : old) {
+                if (key != EMPTY) {
+                    table[slot(key)] = key;
+                }
+            }
+            return;
+        }
+
+        try {
+            spill();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill user ids to disk", e);
+        }
+    }
+
+    private void spill() throws IOException {
+        long[] keys = new long[tableSize];
+        int count = 0;
+        for (long key : table) {
+            if (key != EMPTY) {
+                keys[count++] = key;
+            }
+        }
+        Arrays.sort(keys);
+
+        runs.add(Run.write(new SortedKeys(keys), 0, maxFileKeys));
+        Arrays.fill(table, EMPTY);
+        tableSize = 0;
+
+        for (int tier = 0; ; tier++) {
+            List<Run> full = new ArrayList<>();
+            for (Run run : runs) {
+                if (run.tier == tier) {
+                    full.add(run);
+                }
+            }
+            if (full.size() < MAX_RUNS) {
+                return;
+            }
+            Run merged = Run.write(new MergedKeys(full), tier + 1, maxFileKeys);
+            runs.removeAll(full);
+            runs.add(merged);
+            for (Run run : full) {
+                run.delete();
+            }
+        }
+    }
+
+    private int slot(long key) {
+        int mask = table.length - 1;
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long[] emptyTable(int capacity) {
+        long[] table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    // Ascending keys to write into a run.
+    private interface KeySource {
+        boolean hasNext();
+
+        long next();
+    }
+
+    private static class SortedKeys implements KeySource {
+        private final long[] keys;
+        private int index;
+
+        SortedKeys(long[] keys) {
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < keys.length;
+        }
+
+        @Override
+        public long next() {
+            return keys[index++];
+        }
+    }
+
+    // Runs never share a key, so merging only has to pick the smallest head each time.
+    private static class MergedKeys implements KeySource {
+        private final Cursor[] cursors;
+
+        MergedKeys(List<Run> runs) {
+            cursors = new Cursor[runs.size()];
+            for (int r = 0; r < cursors.length; r++) {
+                cursors[r] = new Cursor(runs.get(r));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Cursor cursor : cursors) {
+                if (cursor.hasNext()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public long next() {
+            Cursor smallest = null;
+            for (Cursor cursor : cursors) {
+                if (cursor.hasNext() && (smallest == null || cursor.peek() < smallest.peek())) {
+                    smallest = cursor;
+                }
+            }
+            if (smallest == null) {
+                throw new NoSuchElementException();
+            }
+            return smallest.next();
+        }
+    }
+
+    // The keys of a run in order, across its files.
+    private static class Cursor implements KeySource {
+        private final LongBuffer[] files;
+        private int file;
+
+        Cursor(Run run) {
+            files = new LongBuffer[run.keys.length];
+            for (int f = 0; f < files.length; f++) {
+                files[f] = run.keys[f].duplicate();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (file < files.length && !files[file].hasRemaining()) {
+                file++;
+            }
+            return file < files.length;
+        }
+
+        long peek() {
+            return files[file].get(files[file].position());
+        }
+
+        @Override
+        public long next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return files[file].get();
+        }
+    }
+
+    // Sorted keys in one or more files, each holding keys above those of the one before.
+    private static class Run {
+        final Path[] files;
+        final LongBuffer[] keys;
+        final long[] firstKeys;
+        final int tier;
+
+        private Run(List<Path> files, List<LongBuffer> keys, int tier) {
+            this.files = files.toArray(new Path[0]);
+            this.keys = keys.toArray(new LongBuffer[0]);
+            this.firstKeys = new long[this.keys.length];
+            for (int f = 0; f < firstKeys.length; f++) {
+                firstKeys[f] = this.keys[f].get(0);
+            }
+            this.tier = tier;
+        }
+
+        static Run write(KeySource source, int tier, long maxFileKeys) throws IOException {
+            List<Path> files = new ArrayList<>();
+            List<LongBuffer> keys = new ArrayList<>();
+            try {
+                while (source.hasNext()) {
+                    Path file = Files.createTempFile("user-ids", ".run");
+                    files.add(file);
+                    try (DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+                        for (long count = 0; count < maxFileKeys && source.hasNext(); count++) {
+                            out.writeLong(source.next());
+                        }
+                    }
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        keys.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer());
+                    }
+                }
+                return new Run(files, keys, tier);
+            } catch (IOException | RuntimeException e) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+                throw e;
+            }
+        }
+
+        boolean contains(long key) {
+            // The last file starting at or below the key is the only one that can hold it.
+            int low = 0;
+            int high = firstKeys.length - 1;
+            int file = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (firstKeys[mid] <= key) {
+                    file = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return file >= 0 && contains(keys[file], key);
+        }
+
+        private static boolean contains(LongBuffer keys, long key) {
+            int low = 0;
+            int high = keys.limit() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long value = keys.get(mid);
+                if (value < key) {
+                    low = mid + 1;
+                } else if (value > key) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void delete() throws IOException {
+            IOException failure = null;
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -2,60 +2,170 @@ package parsers;
 
 import models.User;
 import validators.UserValidator;
+import validators.ValidationReport;
+import exceptions.ErrorCode;
 import exceptions.ValidationException;
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Set;
-import java.util.HashSet;
 
 public class UserParser {
     private UserValidator validator;
+    private long userIdMemoryBudget;
+    private boolean validate;
 
     public UserParser() {
+        this(UserIdSet.UNLIMITED);
+    }
+
+    // Ids seen so far are kept packed in memory up to userIdMemoryBudget bytes; past that
+    // they are spilled to sorted temporary files, so any number of users can be checked
+    // for duplicate ids in bounded memory.
+    public UserParser(long userIdMemoryBudget) {
+        this(userIdMemoryBudget, true);
+    }
+
+    // With validate false, names and ids are taken as they are and no ids are collected for
+    // the uniqueness check; only a missing comma or liked movies line is still an error.
+    // Meant for a file already known to be valid, such as one found in a ParseCache.
+    public UserParser(long userIdMemoryBudget, boolean validate) {
         this.validator = new UserValidator();
+        this.userIdMemoryBudget = userIdMemoryBudget;
+        this.validate = validate;
     }
 
     public List<User> parseUsers(String filename)
             throws ValidationException, IOException {
         List<User> users = new ArrayList<>();
-        Set<String> userIds = new HashSet<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
-
-        String line;
-        while ((line = reader.readLine()) != null) {
-            String[] nameIdParts = line.split(",", 2);
-            if (nameIdParts.length != 2) {
-                reader.close();
-                throw new ValidationException("Invalid user format");
+
+        try (UserReader reader = openUsers(filename)) {
+            User user;
+            while ((user = reader.readUser()) != null) {
+                users.add(user);
             }
+        }
 
-            String name = nameIdParts[0].trim();
-            String id = nameIdParts[1].trim();
+        return users;
+    }
 
-            validator.validateUserName(nameIdParts[0]);
-            validator.validateUserId(nameIdParts[1]);
-            validator.validateUniqueUserId(id, userIds);
-            userIds.add(id);
+    public UserReader openUsers(String filename) throws IOException {
+        return new UserReader(new OffsetLineReader(filename, 0), this,
+                validate ? new UserIdSet(userIdMemoryBudget) : null);
+    }
 
-            line = reader.readLine();
-            if (line == null) {
-                reader.close();
-                throw new ValidationException("Missing liked movies line");
-            }
+    // Continues reading at `offset`, a position previously reported by UserReader.position().
+    // The records before it were validated by the earlier reader; only their ids are
+    // collected again so that uniqueness is still checked against them.
+    public UserReader openUsers(String filename, long offset) throws IOException {
+        if (!validate) {
+            return new UserReader(new OffsetLineReader(filename, offset), this, null);
+        }
 
-            String[] movieIdArray = line.split(",");
-            List<String> likedMovieIds = new ArrayList<>();
-            for (String movieId : movieIdArray) {
-                likedMovieIds.add(movieId.trim());
+        UserIdSet userIds = new UserIdSet(userIdMemoryBudget);
+        try (OffsetLineReader prefix = new OffsetLineReader(filename, 0)) {
+            String line;
+            while (prefix.position() < offset && (line = prefix.readLine()) != null) {
+                String[] nameIdParts = line.split(",", 2);
+                if (nameIdParts.length == 2) {
+                    userIds.add(nameIdParts[1].trim());
+                }
+                prefix.readLine();
             }
+        } catch (UncheckedIOException e) {
+            userIds.close();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            userIds.close();
+            throw e;
+        }
+        return new UserReader(new OffsetLineReader(filename, offset), this, userIds);
+    }
+
+    public List<User> parseUsersParallel(String filename)
+            throws ValidationException, IOException {
+        return parseUsersParallel(filename, Runtime.getRuntime().availableProcessors());
+    }
 
-            users.add(new User(name, id, likedMovieIds));
+    public List<User> parseUsersParallel(String filename, int parallelism)
+            throws ValidationException, IOException {
+        if (CompressedInput.isGzip(filename)) {
+            return parseUsers(filename);
         }
+        return new ParallelUserParser(this, parallelism, 0).parse(filename);
+    }
 
-        reader.close();
-        return users;
+    // Report mode: checks every record and returns all errors with their line numbers
+    // instead of stopping at the first. The parse methods stay fail-first.
+    public ValidationReport validateUsers(String filename) throws IOException {
+        return validateUsers(filename, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ValidationReport validateUsers(String filename, int parallelism) throws IOException {
+        return new ReportScanner(parallelism, 0, ValidationReport.DEFAULT_LIMIT, userIdMemoryBudget)
+                .scan(filename, this::checkUser);
+    }
+
+    void checkUser(String nameIdLine, String likedLine, long line, ReportScanner.Chunk chunk) {
+        String[] nameIdParts = nameIdLine.split(",", 2);
+        if (nameIdParts.length != 2) {
+            chunk.fail(line, ReportScanner.STAGE_FIELDS, ErrorCode.USER_FORMAT, null);
+            return;
+        }
+
+        ErrorCode error = validator.checkUserName(nameIdParts[0]);
+        if (error != null) {
+            chunk.fail(line, ReportScanner.STAGE_FIELDS, error, nameIdParts[0]);
+        }
+        error = validator.checkUserId(nameIdParts[1]);
+        if (error != null) {
+            chunk.fail(line, ReportScanner.STAGE_ID, error, nameIdParts[1]);
+        } else {
+            chunk.addId(line, nameIdParts[1].trim());
+        }
+
+        if (likedLine == null) {
+            chunk.fail(line, ReportScanner.STAGE_SECOND_LINE, ErrorCode.MISSING_LIKED_MOVIES, null);
+        }
+    }
+
+    UserValidator getValidator() {
+        return validator;
+    }
+
+    long getUserIdMemoryBudget() {
+        return userIdMemoryBudget;
+    }
+
+    boolean validates() {
+        return validate;
+    }
+
+    // Validates the "name,id" line and returns the trimmed name and id.
+    String[] parseNameId(String line) throws ValidationException {
+        String[] nameIdParts = line.split(",", 2);
+        if (nameIdParts.length != 2) {
+            throw new ValidationException(ErrorCode.USER_FORMAT);
+        }
+
+        if (validate) {
+            validator.validateUser(nameIdParts[0], nameIdParts[1]);
+        }
+
+        return new String[] {nameIdParts[0].trim(), nameIdParts[1].trim()};
+    }
+
+    User toUser(String name, String id, String likedLine) throws ValidationException {
+        if (likedLine == null) {
+            throw new ValidationException(ErrorCode.MISSING_LIKED_MOVIES);
+        }
+
+        String[] movieIdArray = likedLine.split(",");
+        List<String> likedMovieIds = new ArrayList<>();
+        for (String movieId : movieIdArray) {
+            likedMovieIds.add(movieId.trim());
+        }
+
+        return new User(name, id, likedMovieIds);
     }
 }
\ No newline at end of file
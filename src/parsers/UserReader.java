@@ -0,0 +1,55 @@
+package parsers;
+
+import models.User;
+import exceptions.ValidationException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public class UserReader implements Closeable {
+    private OffsetLineReader reader;
+    private UserParser parser;
+    private UserIdSet userIds;  // null when the parser does not validate
+
+    UserReader(OffsetLineReader reader, UserParser parser, UserIdSet userIds) {
+        this.reader = reader;
+        this.parser = parser;
+        this.userIds = userIds;
+    }
+
+    public User readUser() throws ValidationException, IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        String[] nameId = parser.parseNameId(line);
+        if (userIds != null) {
+            parser.getValidator().validateUniqueUserId(nameId[1], userIds);
+            try {
+                userIds.add(nameId[1]);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        return parser.toUser(nameId[0], nameId[1], reader.readLine());
+    }
+
+    // Byte offset in the users file just past the last record readUser returned; a reader
+    // opened at this offset continues with the next record.
+    public long position() {
+        return reader.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } finally {
+            if (userIds != null) {
+                userIds.close();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package services;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Reusable scratch bitset over dense movie ids. Genre bitmaps are ORed into it, liked
+// movies are cleared from it, and drain() hands back the remaining ids in ascending order
+// while resetting only the 65536-id chunks that were touched. The engine pools instances
+// so generating recommendations allocates nothing here.
+class CandidateSet {
+    final long[] words;
+
+    private final boolean[] touched;
+    private final int[] touchedChunks;
+    private int touchedCount;
+
+    private final int[] genreMarks;
+    private int genrePass;
+
+    CandidateSet(int movieCount, int genreCount) {
+        int chunks = (movieCount + 0xFFFF) >>> 16;
+        words = new long[chunks * RoaringBitmap.BITMAP_WORDS];
+        touched = new boolean[chunks];
+        touchedChunks = new int[chunks];
+        genreMarks = new int[genreCount];
+    }
+
+    // Starts a new user; markGenre then returns true only the first time it sees a genre.
+    void beginGenres() {
+        genrePass++;
+        if (genrePass == 0) {
+            Arrays.fill(genreMarks, 0);
+            genrePass = 1;
+        }
+    }
+
+    boolean markGenre(int genre) {
+        if (genreMarks[genre] == genrePass) {
+            return false;
+        }
+        genreMarks[genre] = genrePass;
+        return true;
+    }
+
+    boolean isGenreMarked(int genre) {
+        return genreMarks[genre] == genrePass;
+    }
+
+    void or(RoaringBitmap bitmap) {
+        bitmap.orInto(this);
+    }
+
+    void remove(int id) {
+        words[id >>> 6] &= ~(1L << id);
+    }
+
+    void touch(int chunk) {
+        if (!touched[chunk]) {
+            touched[chunk] = true;
+            touchedChunks[touchedCount++] = chunk;
+        }
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int c = 0; c < touchedCount; c++) {
+            int base = touchedChunks[c] * RoaringBitmap.BITMAP_WORDS;
+            for (int w = base; w < base + RoaringBitmap.BITMAP_WORDS; w++) {
+                cardinality += Long.bitCount(words[w]);
+            }
+        }
+        return cardinality;
+    }
+
+    void drain(IntConsumer action) {
+        Arrays.sort(touchedChunks, 0, touchedCount);
+        for (int c = 0; c < touchedCount; c++) {
+            int chunk = touchedChunks[c];
+            int base = chunk * RoaringBitmap.BITMAP_WORDS;
+            for (int w = base; w < base + RoaringBitmap.BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+                words[w] = 0;
+            }
+            touched[chunk] = false;
+        }
+        touchedCount = 0;
+    }
+}
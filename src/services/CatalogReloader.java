@@ -0,0 +1,229 @@
+package services;
+
+import models.CatalogChange;
+import models.Movie;
+import parsers.ChangeLogParser;
+import parsers.ChangeLogReader;
+import parsers.MovieParser;
+import exceptions.ValidationException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+// Keeps the current RecommendationEngine and replaces it when the catalog changes on disk.
+// A background thread watches the directory of the movies file for changes to the file or
+// its snapshot, waits until writes to them have stopped, then builds a new engine (from
+// the snapshot when it is up to date, otherwise by parsing the text) and publishes it with
+// one reference swap. Readers call get() once per request and keep using that engine, so
+// a request that started before a reload finishes on the old catalog and nobody waits on
+// a lock. A catalog that fails to load leaves the current engine in place.
+//
+// Small updates go to the change log beside the catalog (<movies file>.changes, see
+// ChangeLogParser) instead. Entries appended to it are applied to the current engine
+// without reloading the catalog (RecommendationEngine.apply), and a full reload applies
+// the whole log again on top of the catalog. An entry that does not validate against the
+// catalog is skipped and reported through getLastError().
+public class CatalogReloader implements Supplier<RecommendationEngine>, Closeable {
+    private static final long QUIET_MILLIS = 100;
+
+    private final String moviesFile;
+    private final String snapshotFile;
+    private final String changeLog;
+    private final AtomicReference<RecommendationEngine> current;
+    private final WatchService watcher;
+    private final Thread thread;
+    private volatile int reloads;
+    private volatile int appliedChanges;
+    private volatile String lastError;
+    private long changeLogOffset;
+    // Entries applied by the last withChanges, counted once its engine is published.
+    private int newlyApplied;
+
+    // Starts watching right away. `initial` is the catalog without the change log, which is
+    // applied to it before the constructor returns.
+    public CatalogReloader(String moviesFile, RecommendationEngine initial) throws IOException {
+        this.moviesFile = moviesFile;
+        this.snapshotFile = moviesFile + ".snapshot";
+        this.changeLog = moviesFile + ".changes";
+        this.current = new AtomicReference<>(initial);
+        applyChanges();
+
+        Path directory = Paths.get(moviesFile).toAbsolutePath().getParent();
+        this.watcher = FileSystems.getDefault().newWatchService();
+        try {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+        this.thread = WorkerThreads.factory("catalog-reload").newThread(this::watch);
+        thread.start();
+    }
+
+    @Override
+    public RecommendationEngine get() {
+        return current.get();
+    }
+
+    // Loads the catalog now, on the calling thread. Returns false and keeps the current
+    // engine if it does not validate or cannot be read, or if loading fails unexpectedly.
+    public synchronized boolean reload() {
+        long offset = changeLogOffset;
+        try {
+            RecommendationEngine engine = CatalogSnapshot.load(snapshotFile, moviesFile);
+            if (engine == null) {
+                List<Movie> movies = new MovieParser().parseMovies(moviesFile);
+                engine = new RecommendationEngine(movies);
+            }
+            lastError = null;
+            changeLogOffset = 0;
+            current.set(withChanges(engine));
+            appliedChanges += newlyApplied;
+            reloads++;
+            return true;
+        } catch (ValidationException | IOException e) {
+            changeLogOffset = offset;
+            lastError = e.getMessage();
+            return false;
+        } catch (RuntimeException e) {
+            changeLogOffset = offset;
+            lastError = e.toString();
+            return false;
+        }
+    }
+
+    // Applies the entries appended to the change log since the last call. If that fails the
+    // entries are tried again on the next call.
+    public synchronized void applyChanges() {
+        long offset = changeLogOffset;
+        try {
+            current.set(withChanges(current.get()));
+            appliedChanges += newlyApplied;
+        } catch (IOException e) {
+            changeLogOffset = offset;
+            lastError = e.getMessage();
+        } catch (RuntimeException e) {
+            changeLogOffset = offset;
+            lastError = e.toString();
+        }
+    }
+
+    // Reads the change log from changeLogOffset on and applies it to `engine`, in one step
+    // when every entry is valid and one entry at a time otherwise.
+    private RecommendationEngine withChanges(RecommendationEngine engine) throws IOException {
+        newlyApplied = 0;
+        if (!Files.isRegularFile(Paths.get(changeLog))) {
+            return engine;
+        }
+
+        List<CatalogChange> changes = new ArrayList<>();
+        boolean skipped = false;
+        try (ChangeLogReader reader = new ChangeLogParser().openChanges(changeLog, changeLogOffset)) {
+            while (true) {
+                try {
+                    CatalogChange change = reader.readChange();
+                    if (change == null) {
+                        break;
+                    }
+                    changes.add(change);
+                } catch (ValidationException e) {
+                    lastError = e.getMessage();
+                    skipped = true;
+                }
+            }
+            changeLogOffset = reader.position();
+        }
+        if (changes.isEmpty()) {
+            return engine;
+        }
+
+        try {
+            engine = engine.apply(changes);
+            newlyApplied = changes.size();
+            if (!skipped) {
+                lastError = null;
+            }
+            return engine;
+        } catch (ValidationException e) {
+            lastError = e.getMessage();
+        }
+        for (CatalogChange change : changes) {
+            try {
+                engine = engine.apply(Collections.singletonList(change));
+                newlyApplied++;
+            } catch (ValidationException e) {
+                lastError = e.getMessage();
+            }
+        }
+        return engine;
+    }
+
+    public int getReloadCount() {
+        return reloads;
+    }
+
+    // Change log entries applied since this reloader started, counting them again after
+    // each full reload.
+    public int getAppliedChangeCount() {
+        return appliedChanges;
+    }
+
+    // Why the last reload or change failed, or null if it succeeded.
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+
+    private void watch() {
+        String movies = Paths.get(moviesFile).getFileName().toString();
+        String snapshot = Paths.get(snapshotFile).getFileName().toString();
+        String changes = Paths.get(changeLog).getFileName().toString();
+        try {
+            while (true) {
+                boolean changed = false;
+                boolean logged = false;
+                // An editor or a copy may write the file in several steps; reload once
+                // the directory has been quiet for a moment.
+                for (WatchKey key = watcher.take(); key != null;
+                     key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object name = event.context();
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || name != null && (name.toString().equals(movies) || name.toString().equals(snapshot))) {
+                            changed = true;
+                        } else if (name != null && name.toString().equals(changes)) {
+                            logged = true;
+                        }
+                    }
+                    key.reset();
+                }
+                if (changed) {
+                    reload();
+                } else if (logged) {
+                    applyChanges();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped by close().
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package services;
+
+import models.Movie;
+import parsers.MovieParser;
+import exceptions.ValidationException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary snapshot of a validated catalog and its genre index.
+//
+// Layout (big-endian):
+//   int magic, int version, long source size, long source last-modified millis,
+//   int movie count, movies as (id, title, int genre count, dense genre ids...),
+//   int genre count, genres as (name, RoaringBitmap of dense movie ids),
+//   long CRC32 of every byte before it.
+// Strings are an int byte length followed by UTF-8 bytes. A snapshot is stale when the
+// source file's size or modification time differ from the ones recorded in it.
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x4D524353;
+    private static final int VERSION = 2;
+
+    public static List<Movie> compile(String moviesFile, String snapshotFile)
+            throws ValidationException, IOException {
+        Path source = Paths.get(moviesFile);
+        long sourceSize = Files.size(source);
+        long sourceModified = Files.getLastModifiedTime(source).toMillis();
+
+        List<Movie> movies = new MovieParser().parseMoviesMapped(moviesFile);
+        write(snapshotFile, movies, sourceSize, sourceModified);
+        return movies;
+    }
+
+    // Writes the snapshot of a catalog parsed from a source file that had this size and
+    // modification time when parsing began, so a file edited meanwhile reads as stale.
+    public static void write(String snapshotFile, List<Movie> movies, long sourceSize, long sourceModified)
+            throws IOException {
+        Path target = Paths.get(snapshotFile);
+        Path temp = Paths.get(snapshotFile + ".tmp");
+
+        MovieIndex index = MovieIndex.build(movies);
+
+        FileOutputStream file = new FileOutputStream(temp.toFile());
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+
+            index.write(out);
+
+            out.flush();
+            new DataOutputStream(file).writeLong(checked.getChecksum().getValue());
+        } finally {
+            out.close();
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns null when the snapshot is missing, stale, from another format version or corrupt.
+    public static RecommendationEngine load(String snapshotFile, String moviesFile) throws IOException {
+        Path source = Paths.get(moviesFile);
+        Path snapshot = Paths.get(snapshotFile);
+        if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(source)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 32 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != Files.size(source)
+                    || buffer.getLong() != Files.getLastModifiedTime(source).toMillis()) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer content = buffer.duplicate();
+            content.position(0).limit((int) size - 8);
+            crc.update(content);
+            if (buffer.getLong((int) size - 8) != crc.getValue()) {
+                return null;
+            }
+
+            return new RecommendationEngine(MovieIndex.read(buffer));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // Truncated or malformed content that still passed the checksum.
+            return null;
+        }
+    }
+}
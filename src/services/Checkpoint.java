@@ -0,0 +1,113 @@
+package services;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+// Progress record of a checkpointed run, rewritten atomically after the output up to
+// `outputOffset` has been forced to disk.
+//
+// Layout (big-endian):
+//   int magic, int version, long users file size, long users file last-modified millis,
+//   long catalog fingerprint, int limit, long input offset, int users done,
+//   long output offset, long CRC32 of every byte before it.
+// A checkpoint only applies to the same users file, catalog and limit it was written for.
+class Checkpoint {
+    private static final int MAGIC = 0x4D52434B;
+    private static final int VERSION = 1;
+    private static final int SIZE = 64;
+
+    private final Path file;
+    private final long usersSize;
+    private final long usersModified;
+    private final long catalog;
+    private final int limit;
+
+    private RecommendationStream output;
+    private long inputOffset;
+    private int usersDone;
+    private long outputOffset;
+
+    Checkpoint(String checkpointFile, String usersFile, long catalog, int limit) throws IOException {
+        Path users = Paths.get(usersFile);
+        this.file = Paths.get(checkpointFile);
+        this.usersSize = Files.size(users);
+        this.usersModified = Files.getLastModifiedTime(users).toMillis();
+        this.catalog = catalog;
+        this.limit = limit;
+    }
+
+    // Loads the saved progress; false when there is none or it belongs to another run.
+    boolean load() throws IOException {
+        if (!Files.isRegularFile(file) || Files.size(file) != SIZE) {
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, SIZE - 8);
+        if (buffer.getLong(SIZE - 8) != crc.getValue()
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != usersSize || buffer.getLong() != usersModified
+                || buffer.getLong() != catalog || buffer.getInt() != limit) {
+            return false;
+        }
+
+        inputOffset = buffer.getLong();
+        usersDone = buffer.getInt();
+        outputOffset = buffer.getLong();
+        return true;
+    }
+
+    // The stream whose position save() records.
+    void track(RecommendationStream output) {
+        this.output = output;
+    }
+
+    void save(long inputOffset, int usersDone) throws IOException {
+        output.force();
+        long outputOffset = output.position();
+
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putLong(usersSize).putLong(usersModified)
+                .putLong(catalog).putInt(limit)
+                .putLong(inputOffset).putInt(usersDone).putLong(outputOffset);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, SIZE - 8);
+        buffer.putLong(crc.getValue());
+
+        Path temp = Paths.get(file + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile())))) {
+            out.write(buffer.array());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        this.inputOffset = inputOffset;
+        this.usersDone = usersDone;
+        this.outputOffset = outputOffset;
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    long inputOffset() {
+        return inputOffset;
+    }
+
+    int usersDone() {
+        return usersDone;
+    }
+
+    long outputOffset() {
+        return outputOffset;
+    }
+}
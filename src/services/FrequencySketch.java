@@ -0,0 +1,74 @@
+package services;
+
+// Approximate access counts for cache admission, in the style of TinyLFU: a count-min
+// sketch of 4-bit counters, sixteen to a long and one long per expected key. Each key has
+// four counters and its frequency is the smallest of them, so collisions only ever
+// overestimate. Once the number of increments reaches ten times the expected number of
+// keys every counter is halved, so counts describe recent traffic rather than all of it.
+// Not thread-safe.
+class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+    private static final long HALF_MASK = 0x7777777777777777L;
+
+    private long[] table;
+    private int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedKeys) {
+        resize(expectedKeys);
+    }
+
+    // Grows the sketch for more keys, starting its counts over.
+    void ensureCapacity(int expectedKeys) {
+        if (expectedKeys > table.length) {
+            resize(expectedKeys);
+        }
+    }
+
+    int frequency(int hash) {
+        int frequency = 15;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = index(hash, row);
+            int shift = (int) (h & 15) << 2;
+            frequency = Math.min(frequency, (int) (table[(int) (h >>> 32) & (table.length - 1)] >>> shift) & 15);
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = index(hash, row);
+            int shift = (int) (h & 15) << 2;
+            int word = (int) (h >>> 32) & (table.length - 1);
+            if ((table[word] >>> shift & 15) < 15) {
+                table[word] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    // Halves every counter.
+    void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = table[i] >>> 1 & HALF_MASK;
+        }
+        additions /= 2;
+    }
+
+    private void resize(int expectedKeys) {
+        int words = Integer.highestOneBit(Math.max(16, Math.min(1 << 26, expectedKeys)) * 2 - 1);
+        table = new long[words];
+        sampleSize = words * 10;
+        additions = 0;
+    }
+
+    private static long index(int hash, int row) {
+        long h = (hash + SEEDS[row]) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
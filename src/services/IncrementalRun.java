@@ -0,0 +1,140 @@
+package services;
+
+import models.IncrementalResult;
+import models.User;
+import parsers.UserReader;
+import exceptions.ValidationException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Writes the output again from the previous one, generating only the users whose
+// recommendations may have changed and copying every other record forward as bytes.
+//
+// A user's recommendations depend on its own line and, through the catalog, on the
+// genres of its liked movies and on every movie in those genres. The hash saved per user
+// (IncrementalState) covers exactly that: name, id and liked ids, the dense id and genres
+// of each liked movie, and for each of those genres a hash over its members' dense ids,
+// movie ids and titles. So a catalog change recomputes the users who touch the genres it
+// changed, and nobody else. Dense ids are part of the hash because output order and ties
+// follow them; a removed movie keeps its dense id, but a catalog rebuilt from scratch
+// renumbers the movies after any removed one and recomputes most users.
+class IncrementalRun {
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final RecommendationPipeline pipeline;
+    private final MovieIndex index;
+    private final int limit;
+    private final long[] genreHashes;
+
+    IncrementalRun(RecommendationPipeline pipeline, MovieIndex index, int limit) {
+        this.pipeline = pipeline;
+        this.index = index;
+        this.limit = limit;
+        this.genreHashes = new long[index.genreCount()];
+        for (int genre = 0; genre < genreHashes.length; genre++) {
+            long[] hash = {mix(SEED, genre)};
+            index.genreMovies(genre).forEach(movie -> {
+                // String caches its hashCode, so this costs one pass over the catalog once.
+                hash[0] = mix(mix(mix(hash[0], movie), index.id(movie).hashCode()), index.title(movie).hashCode());
+            });
+            genreHashes[genre] = hash[0];
+        }
+    }
+
+    // The state goes to outputFile + ".state"; without a usable one every user is generated.
+    // The new output is written beside outputFile and renamed over it when complete.
+    IncrementalResult run(UserReader users, String outputFile) throws ValidationException, IOException {
+        if (outputFile.endsWith(".gz")) {
+            throw new IllegalArgumentException("Incremental runs need uncompressed output: " + outputFile);
+        }
+        String stateFile = outputFile + ".state";
+        Path partial = Paths.get(outputFile + ".partial");
+        IncrementalState previous = IncrementalState.load(stateFile, outputFile, limit);
+
+        int count = 0;
+        int recomputed = 0;
+        long copiedBytes = 0;
+        IncrementalState.Writer state = new IncrementalState.Writer(stateFile);
+        try {
+            try (FileChannel old = previous == null ? null : FileChannel.open(Paths.get(outputFile), StandardOpenOption.READ);
+                 RecommendationStream out = new RecommendationStream(partial.toString())) {
+                // Consecutive copied records that were consecutive before go in one transfer.
+                long copyStart = 0;
+                long copyEnd = 0;
+                User user;
+                while ((user = users.readUser()) != null) {
+                    long hash = hash(user);
+                    long key = RecommendationStore.packUserId(user.getId());
+                    int record = previous == null || key < 0 ? -1 : previous.find(key);
+                    state.add(key, hash, out.position() + copyEnd - copyStart);
+
+                    if (record >= 0 && previous.hash(record) == hash) {
+                        long start = previous.offset(record);
+                        if (start != copyEnd) {
+                            out.copy(old, copyStart, copyEnd - copyStart);
+                            copiedBytes += copyEnd - copyStart;
+                            copyStart = start;
+                            copyEnd = start;
+                        }
+                        copyEnd += previous.length(record);
+                    } else {
+                        if (copyEnd > copyStart) {
+                            out.copy(old, copyStart, copyEnd - copyStart);
+                            copiedBytes += copyEnd - copyStart;
+                            copyStart = copyEnd;
+                        }
+                        out.write(pipeline.recommend(user));
+                        recomputed++;
+                    }
+                    count++;
+                }
+                if (copyEnd > copyStart) {
+                    out.copy(old, copyStart, copyEnd - copyStart);
+                    copiedBytes += copyEnd - copyStart;
+                }
+                out.force();
+            }
+            Files.move(partial, Paths.get(outputFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            state.publish(stateFile, outputFile, limit);
+        } finally {
+            state.close();
+            Files.deleteIfExists(partial);
+        }
+        return new IncrementalResult(count, recomputed, copiedBytes);
+    }
+
+    private long hash(User user) {
+        long hash = mix(mix(SEED, user.getName()), user.getId());
+        for (String likedMovieId : user.getLikedMovieIds()) {
+            int movie = index.denseId(likedMovieId);
+            hash = mix(mix(hash, likedMovieId), movie);
+            if (movie >= 0) {
+                for (int genre : index.genres(movie)) {
+                    hash = mix(mix(hash, genre), genreHashes[genre]);
+                }
+            }
+        }
+        return hash;
+    }
+
+    // 64-bit FNV-1a over the chars, then the length, so that adjacent strings cannot run
+    // into each other.
+    static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash, value.length());
+    }
+
+    static long mix(long hash, long value) {
+        hash ^= value * 0x9E3779B97F4A7C15L;
+        hash = Long.rotateLeft(hash, 29) * 0xBF58476D1CE4E5B9L;
+        return hash ^ (hash >>> 32);
+    }
+}
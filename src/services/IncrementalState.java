@@ -0,0 +1,151 @@
+package services;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// What an incremental run needs to know about the previous output: for every user, in
+// output order, the packed user id (RecommendationStore.packUserId), the hash of
+// everything its recommendations depend on, and the offset of its record in the output.
+// A record ends where the next one starts, the last one at the end of the output.
+//
+// Layout (big-endian): count records of long key, long hash, long offset, then a trailer
+// of int magic, int version, int limit, int count, long output size, long output
+// last-modified millis. The trailer pins the state to the output file it describes, so a
+// run that died between replacing the output and replacing the state is not trusted.
+//
+// The file is mapped rather than read, so only the lookup table is on the heap.
+class IncrementalState {
+    private static final int MAGIC = 0x4D52494E;
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 24;
+    private static final int TRAILER_SIZE = 32;
+
+    private final MappedByteBuffer records;
+    private final int count;
+    private final long outputSize;
+    private final int[] slots;  // record + 1, 0 when empty
+    private final int slotBits;
+
+    private IncrementalState(MappedByteBuffer records, int count, long outputSize) {
+        this.records = records;
+        this.count = count;
+        this.outputSize = outputSize;
+        this.slotBits = Math.max(4, 64 - Long.numberOfLeadingZeros(count * 2L));
+        this.slots = new int[1 << slotBits];
+        for (int record = 0; record < count; record++) {
+            long key = key(record);
+            int slot = (int) RecommendationStore.slotOf(key, slotBits);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = record + 1;
+        }
+    }
+
+    // The state saved beside outputFile by the last run with this limit, or null if there
+    // is none, it was written for another limit, or the output has changed since.
+    static IncrementalState load(String stateFile, String outputFile, int limit) throws IOException {
+        Path state = Paths.get(stateFile);
+        Path output = Paths.get(outputFile);
+        if (!Files.isRegularFile(state) || !Files.isRegularFile(output)) {
+            return null;
+        }
+        long size = Files.size(state);
+        if (size < TRAILER_SIZE || size > Integer.MAX_VALUE || (size - TRAILER_SIZE) % RECORD_SIZE != 0) {
+            return null;
+        }
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(state, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        buffer.position((int) size - TRAILER_SIZE);
+        int count = (int) ((size - TRAILER_SIZE) / RECORD_SIZE);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != limit
+                || buffer.getInt() != count
+                || buffer.getLong() != Files.size(output)
+                || buffer.getLong() != Files.getLastModifiedTime(output).toMillis()) {
+            return null;
+        }
+        return new IncrementalState(buffer, count, Files.size(output));
+    }
+
+    // Record of a packed user id, or -1.
+    int find(long key) {
+        int slot = (int) RecommendationStore.slotOf(key, slotBits);
+        while (slots[slot] != 0) {
+            int record = slots[slot] - 1;
+            if (key(record) == key) {
+                return record;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    long hash(int record) {
+        return records.getLong(record * RECORD_SIZE + 8);
+    }
+
+    long offset(int record) {
+        return records.getLong(record * RECORD_SIZE + 16);
+    }
+
+    long length(int record) {
+        long end = record + 1 < count ? offset(record + 1) : outputSize;
+        return end - offset(record);
+    }
+
+    private long key(int record) {
+        return records.getLong(record * RECORD_SIZE);
+    }
+
+    // Collects the records of a new output and saves them once it is complete.
+    static class Writer implements AutoCloseable {
+        private final Path temp;
+        private final DataOutputStream out;
+        private int count;
+
+        Writer(String stateFile) throws IOException {
+            this.temp = Paths.get(stateFile + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile()), 1 << 16));
+        }
+
+        void add(long key, long hash, long offset) throws IOException {
+            out.writeLong(key);
+            out.writeLong(hash);
+            out.writeLong(offset);
+            count++;
+        }
+
+        // Writes the trailer for `outputFile`, which must be final by now, and moves the
+        // state into place.
+        void publish(String stateFile, String outputFile, int limit) throws IOException {
+            Path output = Paths.get(outputFile);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(limit);
+            out.writeInt(count);
+            out.writeLong(Files.size(output));
+            out.writeLong(Files.getLastModifiedTime(output).toMillis());
+            out.close();
+            Files.move(temp, Paths.get(stateFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // Drops an unpublished state.
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A file of any size memory-mapped as a series of segments, since a single mapping is
+// limited to 2 GB. Big-endian values that straddle two segments are assembled byte by byte.
+class MappedFile implements Closeable {
+    static final int SEGMENT_BITS = 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int segmentBits;
+    private final long segmentMask;
+    private final long size;
+
+    private MappedFile(FileChannel channel, FileChannel.MapMode mode, long size, int segmentBits)
+            throws IOException {
+        this.channel = channel;
+        this.size = size;
+        this.segmentBits = segmentBits;
+        this.segmentMask = (1L << segmentBits) - 1;
+
+        int count = (int) ((size + segmentMask) >>> segmentBits);
+        this.segments = new MappedByteBuffer[count];
+        for (int s = 0; s < count; s++) {
+            long start = (long) s << segmentBits;
+            segments[s] = channel.map(mode, start, Math.min(1L << segmentBits, size - start));
+        }
+    }
+
+    static MappedFile openReadOnly(Path file) throws IOException {
+        return openReadOnly(file, SEGMENT_BITS);
+    }
+
+    static MappedFile openReadOnly(Path file, int segmentBits) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size(), segmentBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Creates (or replaces) `file` with `size` zero bytes, mapped for writing.
+    static MappedFile create(Path file, long size, int segmentBits) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            if (size > 0) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            return new MappedFile(channel, FileChannel.MapMode.READ_WRITE, size, segmentBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    byte get(long position) {
+        checkIndex(position, 1);
+        return segments[(int) (position >>> segmentBits)].get((int) (position & segmentMask));
+    }
+
+    int getInt(long position) {
+        checkIndex(position, 4);
+        int offset = (int) (position & segmentMask);
+        MappedByteBuffer segment = segments[(int) (position >>> segmentBits)];
+        if (offset + 4 <= segment.limit()) {
+            return segment.getInt(offset);
+        }
+        return (int) getSlow(position, 4);
+    }
+
+    long getLong(long position) {
+        checkIndex(position, 8);
+        int offset = (int) (position & segmentMask);
+        MappedByteBuffer segment = segments[(int) (position >>> segmentBits)];
+        if (offset + 8 <= segment.limit()) {
+            return segment.getLong(offset);
+        }
+        return getSlow(position, 8);
+    }
+
+    void get(long position, byte[] target) {
+        checkIndex(position, target.length);
+        int copied = 0;
+        while (copied < target.length) {
+            MappedByteBuffer segment = segments[(int) ((position + copied) >>> segmentBits)];
+            int offset = (int) ((position + copied) & segmentMask);
+            int length = Math.min(target.length - copied, segment.limit() - offset);
+            ByteBuffer view = segment.duplicate();
+            view.position(offset);
+            view.get(target, copied, length);
+            copied += length;
+        }
+    }
+
+    void putInt(long position, int value) {
+        checkIndex(position, 4);
+        int offset = (int) (position & segmentMask);
+        MappedByteBuffer segment = segments[(int) (position >>> segmentBits)];
+        if (offset + 4 <= segment.limit()) {
+            segment.putInt(offset, value);
+            return;
+        }
+        putSlow(position, value, 4);
+    }
+
+    void putLong(long position, long value) {
+        checkIndex(position, 8);
+        int offset = (int) (position & segmentMask);
+        MappedByteBuffer segment = segments[(int) (position >>> segmentBits)];
+        if (offset + 8 <= segment.limit()) {
+            segment.putLong(offset, value);
+            return;
+        }
+        putSlow(position, value, 8);
+    }
+
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long getSlow(long position, int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | (get(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private void putSlow(long position, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            long at = position + i;
+            segments[(int) (at >>> segmentBits)].put((int) (at & segmentMask), (byte) (value >>> (8 * (bytes - 1 - i))));
+        }
+    }
+
+    private void checkIndex(long position, int length) {
+        if (position < 0 || position > size - length) {
+            throw new IndexOutOfBoundsException("Offset " + position + " is outside the file");
+        }
+    }
+}
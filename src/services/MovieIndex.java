@@ -0,0 +1,418 @@
+package services;
+
+import models.CatalogChange;
+import models.Movie;
+import exceptions.ErrorCode;
+import exceptions.ValidationException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Catalog index with dense int ids. Movie ids are numbered in order of first appearance
+// in the catalog, genres likewise, and every genre keeps its movies as a RoaringBitmap of
+// dense movie ids. When the catalog repeats a movie id, the last movie wins for title and
+// genres while every copy still counts towards genre membership, as the String-keyed maps
+// the engine used before behaved.
+//
+// An index never changes once built; apply() returns a new one with catalog changes. The
+// new index shares everything the changes did not touch: per-movie data lives in paged
+// arrays and genre bitmaps share containers, so only the touched pages and containers are
+// copied. Ids changed since the last full build sit in an IdOverlay in front of the base
+// id map: one small immutable map per apply(), merged with older ones so that each change
+// is copied O(log changes) times rather than on every apply. A removed movie keeps its
+// dense id with no title and no genres; added movies get new ids at the end, so they come
+// last in catalog order as if appended to the file. The overlay is folded into the base
+// map once it outgrows an eighth of the catalog, and the removed ids are dropped by a
+// rebuild once they pass a quarter, so each fold is paid for by that many changes.
+class MovieIndex {
+    private static final int REMOVED = -1;
+    private static final int MIN_OVERLAY = 1024;
+
+    private Map<String, Integer> movieIds;
+    private IdOverlay changedIds;
+    // Ids changed by the apply() in progress; null otherwise.
+    private Map<String, Integer> batchIds;
+    private PagedArray<String> ids;
+    private PagedArray<String> titles;
+    private PagedArray<int[]> movieGenres;
+    private String[] genreNames;
+    private Map<String, Integer> genreIds;
+    private RoaringBitmap[] genreMovies;
+    private int removed;
+
+    // Genre bitmaps this index has already copied during apply().
+    private boolean[] ownedGenres;
+
+    private MovieIndex(Map<String, Integer> movieIds, IdOverlay changedIds, PagedArray<String> ids,
+                       PagedArray<String> titles, PagedArray<int[]> movieGenres, String[] genreNames,
+                       Map<String, Integer> genreIds, RoaringBitmap[] genreMovies, int removed) {
+        this.movieIds = movieIds;
+        this.changedIds = changedIds;
+        this.ids = ids;
+        this.titles = titles;
+        this.movieGenres = movieGenres;
+        this.genreNames = genreNames;
+        this.genreIds = genreIds;
+        this.genreMovies = genreMovies;
+        this.removed = removed;
+    }
+
+    static MovieIndex build(List<Movie> movies) {
+        Map<String, Integer> movieIds = new HashMap<>();
+        Map<String, Integer> genreIds = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<int[]> movieGenres = new ArrayList<>();
+        List<String> genreNames = new ArrayList<>();
+        List<RoaringBitmap> genreMovies = new ArrayList<>();
+
+        for (Movie movie : movies) {
+            Integer id = movieIds.get(movie.getId());
+            if (id == null) {
+                id = ids.size();
+                movieIds.put(movie.getId(), id);
+                ids.add(movie.getId());
+                titles.add(null);
+                movieGenres.add(null);
+            }
+
+            int[] genres = new int[movie.getGenres().size()];
+            int genreCount = 0;
+            for (String genre : movie.getGenres()) {
+                Integer g = genreIds.get(genre);
+                if (g == null) {
+                    g = genreNames.size();
+                    genreIds.put(genre, g);
+                    genreNames.add(genre);
+                    genreMovies.add(new RoaringBitmap());
+                }
+                if (!contains(genres, genreCount, g)) {
+                    genres[genreCount++] = g;
+                }
+                genreMovies.get(g).add(id);
+            }
+
+            titles.set(id, movie.getTitle());
+            movieGenres.set(id, Arrays.copyOf(genres, genreCount));
+        }
+
+        return new MovieIndex(movieIds, null, PagedArray.of(ids.toArray(new String[0])),
+                PagedArray.of(titles.toArray(new String[0])), PagedArray.of(movieGenres.toArray(new int[0][])),
+                genreNames.toArray(new String[0]), genreIds, genreMovies.toArray(new RoaringBitmap[0]), 0);
+    }
+
+    // Changes are validated (MovieValidator.validateChange) before they get here; this checks
+    // them against the catalog. Either every change applies or a ValidationException is
+    // thrown and nothing changes, this index included.
+    MovieIndex apply(List<CatalogChange> changes) throws ValidationException {
+        MovieIndex next = new MovieIndex(movieIds, changedIds, ids.copy(), titles.copy(),
+                movieGenres.copy(), genreNames.clone(), new HashMap<>(genreIds), genreMovies.clone(), removed);
+        next.batchIds = new HashMap<>();
+        next.ownedGenres = new boolean[genreNames.length];
+
+        for (CatalogChange change : changes) {
+            String movieId = change.getMovieId();
+            int movie = next.denseId(movieId);
+            switch (change.getKind()) {
+                case ADD:
+                    if (movie >= 0) {
+                        throw new ValidationException(ErrorCode.MOVIE_EXISTS, movieId);
+                    }
+                    next.add(movieId, change.getTitle(), change.getGenres());
+                    break;
+                case REMOVE:
+                    if (movie < 0) {
+                        throw new ValidationException(ErrorCode.UNKNOWN_MOVIE, movieId);
+                    }
+                    next.setGenres(movie, null);
+                    next.titles.set(movie, null);
+                    next.batchIds.put(movieId, REMOVED);
+                    next.removed++;
+                    break;
+                default:
+                    if (movie < 0) {
+                        throw new ValidationException(ErrorCode.UNKNOWN_MOVIE, movieId);
+                    }
+                    next.setGenres(movie, change.getGenres());
+                    break;
+            }
+        }
+        next.ownedGenres = null;
+        next.changedIds = IdOverlay.push(changedIds, next.batchIds);
+        next.batchIds = null;
+
+        if (next.removed > 0 && next.removed * 4L > next.size()) {
+            return build(next.liveMovies());
+        }
+        if (next.changedIds != null && next.changedIds.size > Math.max(MIN_OVERLAY, next.movieIds.size() / 8)) {
+            Map<String, Integer> merged = new HashMap<>(next.movieIds);
+            next.changedIds.foldInto(merged);
+            next.movieIds = merged;
+            next.changedIds = null;
+        }
+        return next;
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    int genreCount() {
+        return genreNames.length;
+    }
+
+    // Dense id of a movie id, or -1 if it is not in the catalog.
+    int denseId(String movieId) {
+        Integer id = batchIds == null ? null : batchIds.get(movieId);
+        if (id == null && changedIds != null) {
+            id = changedIds.get(movieId);
+        }
+        if (id == null) {
+            id = movieIds.get(movieId);
+        }
+        return id == null || id == REMOVED ? -1 : id;
+    }
+
+    String id(int movie) {
+        return ids.get(movie);
+    }
+
+    // Null for a removed movie.
+    String title(int movie) {
+        return titles.get(movie);
+    }
+
+    int[] genres(int movie) {
+        return movieGenres.get(movie);
+    }
+
+    String genreName(int genre) {
+        return genreNames[genre];
+    }
+
+    RoaringBitmap genreMovies(int genre) {
+        return genreMovies[genre];
+    }
+
+    // CRC32 of the serialized index: equal for catalogs that produce the same recommendations.
+    long fingerprint() {
+        CRC32 crc = new CRC32();
+        try {
+            write(new DataOutputStream(new CheckedOutputStream(OutputStream.nullOutputStream(), crc)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return crc.getValue();
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        // A removed movie is written with an empty title, which no valid movie has.
+        out.writeInt(ids.size());
+        for (int m = 0; m < ids.size(); m++) {
+            writeString(out, ids.get(m));
+            writeString(out, titles.get(m) == null ? "" : titles.get(m));
+            int[] genres = movieGenres.get(m);
+            out.writeInt(genres.length);
+            for (int g : genres) {
+                out.writeInt(g);
+            }
+        }
+
+        out.writeInt(genreNames.length);
+        for (int g = 0; g < genreNames.length; g++) {
+            writeString(out, genreNames[g]);
+            genreMovies[g].write(out);
+        }
+    }
+
+    static MovieIndex read(ByteBuffer buffer) {
+        int movieCount = buffer.getInt();
+        Map<String, Integer> movieIds = new HashMap<>(movieCount * 2);
+        String[] ids = new String[movieCount];
+        String[] titles = new String[movieCount];
+        int[][] movieGenres = new int[movieCount][];
+        int removed = 0;
+        for (int m = 0; m < movieCount; m++) {
+            ids[m] = readString(buffer);
+            titles[m] = readString(buffer);
+            movieGenres[m] = new int[buffer.getInt()];
+            for (int i = 0; i < movieGenres[m].length; i++) {
+                movieGenres[m][i] = buffer.getInt();
+            }
+            if (titles[m].isEmpty()) {
+                titles[m] = null;
+                removed++;
+            } else {
+                movieIds.put(ids[m], m);
+            }
+        }
+
+        int genreCount = buffer.getInt();
+        String[] genreNames = new String[genreCount];
+        Map<String, Integer> genreIds = new HashMap<>(genreCount * 2);
+        RoaringBitmap[] genreMovies = new RoaringBitmap[genreCount];
+        for (int g = 0; g < genreCount; g++) {
+            genreNames[g] = readString(buffer);
+            genreIds.put(genreNames[g], g);
+            genreMovies[g] = RoaringBitmap.read(buffer);
+        }
+
+        return new MovieIndex(movieIds, null, PagedArray.of(ids), PagedArray.of(titles),
+                PagedArray.of(movieGenres), genreNames, genreIds, genreMovies, removed);
+    }
+
+    private void add(String movieId, String title, List<String> genres) {
+        int movie = ids.size();
+        ids.add(movieId);
+        titles.add(title);
+        movieGenres.add(new int[0]);
+        batchIds.put(movieId, movie);
+        setGenres(movie, genres);
+    }
+
+    // Replaces the movie's genres; null leaves it in none. Every genre is checked for the
+    // movie, since a repeated id in the catalog can put it in genres it no longer lists.
+    private void setGenres(int movie, List<String> genres) {
+        for (int g = 0; g < genreMovies.length; g++) {
+            if (genreMovies[g].contains(movie)) {
+                writableGenre(g).remove(movie);
+            }
+        }
+
+        int[] genreList = new int[genres == null ? 0 : genres.size()];
+        int genreCount = 0;
+        if (genres != null) {
+            for (String genre : genres) {
+                int g = genreId(genre);
+                if (!contains(genreList, genreCount, g)) {
+                    genreList[genreCount++] = g;
+                }
+                writableGenre(g).add(movie);
+            }
+        }
+        movieGenres.set(movie, Arrays.copyOf(genreList, genreCount));
+    }
+
+    private int genreId(String genre) {
+        Integer g = genreIds.get(genre);
+        if (g == null) {
+            g = genreNames.length;
+            genreIds.put(genre, g);
+            genreNames = Arrays.copyOf(genreNames, g + 1);
+            genreNames[g] = genre;
+            genreMovies = Arrays.copyOf(genreMovies, g + 1);
+            genreMovies[g] = new RoaringBitmap();
+            ownedGenres = Arrays.copyOf(ownedGenres, g + 1);
+            ownedGenres[g] = true;
+        }
+        return g;
+    }
+
+    private RoaringBitmap writableGenre(int genre) {
+        if (!ownedGenres[genre]) {
+            genreMovies[genre] = genreMovies[genre].copy();
+            ownedGenres[genre] = true;
+        }
+        return genreMovies[genre];
+    }
+
+    private List<Movie> liveMovies() {
+        List<Movie> movies = new ArrayList<>(size() - removed);
+        for (int m = 0; m < size(); m++) {
+            if (titles.get(m) != null) {
+                List<String> genres = new ArrayList<>();
+                for (int g : movieGenres.get(m)) {
+                    genres.add(genreNames[g]);
+                }
+                movies.add(new Movie(titles.get(m), ids.get(m), genres));
+            }
+        }
+        return movies;
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Id changes, newest first: the changes of one apply() in front of an older overlay.
+    // Maps are never changed once pushed, so indexes can share the tail. A new map absorbs
+    // the older ones that are no bigger than it, which keeps the sizes along the chain at
+    // least doubling: the chain is O(log changes) long and each change is copied once per
+    // doubling rather than once per apply().
+    private static class IdOverlay {
+        final Map<String, Integer> ids;
+        final IdOverlay older;
+        // Entries along the chain, counting an id changed in several maps once per map.
+        final int size;
+
+        private IdOverlay(Map<String, Integer> ids, IdOverlay older) {
+            this.ids = ids;
+            this.older = older;
+            this.size = ids.size() + (older == null ? 0 : older.size);
+        }
+
+        static IdOverlay push(IdOverlay overlay, Map<String, Integer> ids) {
+            while (overlay != null && overlay.ids.size() <= ids.size()) {
+                Map<String, Integer> merged = new HashMap<>(overlay.ids);
+                merged.putAll(ids);
+                ids = merged;
+                overlay = overlay.older;
+            }
+            if (ids.isEmpty()) {
+                return overlay;
+            }
+            return new IdOverlay(ids, overlay);
+        }
+
+        Integer get(String movieId) {
+            for (IdOverlay overlay = this; overlay != null; overlay = overlay.older) {
+                Integer id = overlay.ids.get(movieId);
+                if (id != null) {
+                    return id;
+                }
+            }
+            return null;
+        }
+
+        // Applies the changes to `movieIds`, oldest first.
+        void foldInto(Map<String, Integer> movieIds) {
+            if (older != null) {
+                older.foldInto(movieIds);
+            }
+            ids.forEach((movieId, movie) -> {
+                if (movie == REMOVED) {
+                    movieIds.remove(movieId);
+                } else {
+                    movieIds.put(movieId, movie);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package services;
+
+import java.util.Arrays;
+
+// Array split into fixed-size pages so that a changed copy shares every page it did not
+// write to. copy() costs one reference per page; the first write to a page of the copy
+// clones that page. Once published a PagedArray must not be written again.
+final class PagedArray<T> {
+    static final int PAGE_BITS = 12;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private Object[][] pages;
+    private boolean[] owned;
+    private int size;
+
+    private PagedArray(Object[][] pages, boolean[] owned, int size) {
+        this.pages = pages;
+        this.owned = owned;
+        this.size = size;
+    }
+
+    static <T> PagedArray<T> of(T[] values) {
+        int pageCount = (values.length + PAGE_SIZE - 1) >>> PAGE_BITS;
+        Object[][] pages = new Object[Math.max(1, pageCount)][];
+        for (int p = 0; p < pageCount; p++) {
+            pages[p] = Arrays.copyOfRange(values, p << PAGE_BITS, Math.min(values.length, (p + 1) << PAGE_BITS),
+                    Object[].class);
+        }
+        boolean[] owned = new boolean[pages.length];
+        Arrays.fill(owned, true);
+        return new PagedArray<>(pages, owned, values.length);
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int i) {
+        return (T) pages[i >>> PAGE_BITS][i & (PAGE_SIZE - 1)];
+    }
+
+    PagedArray<T> copy() {
+        return new PagedArray<>(pages.clone(), new boolean[pages.length], size);
+    }
+
+    void set(int i, T value) {
+        writablePage(i >>> PAGE_BITS)[i & (PAGE_SIZE - 1)] = value;
+    }
+
+    void add(T value) {
+        int page = size >>> PAGE_BITS;
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+            owned = Arrays.copyOf(owned, pages.length);
+        }
+        if (pages[page] == null) {
+            pages[page] = new Object[PAGE_SIZE];
+            owned[page] = true;
+        }
+        Object[] values = writablePage(page);
+        if ((size & (PAGE_SIZE - 1)) == values.length) {
+            values = Arrays.copyOf(values, PAGE_SIZE);
+            pages[page] = values;
+        }
+        values[size & (PAGE_SIZE - 1)] = value;
+        size++;
+    }
+
+    private Object[] writablePage(int page) {
+        if (!owned[page]) {
+            pages[page] = pages[page].clone();
+            owned[page] = true;
+        }
+        return pages[page];
+    }
+}
@@ -0,0 +1,186 @@
+package services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// gzip output compressed in parallel blocks, the way pigz does it. The input is cut into
+// BLOCK_SIZE blocks, each deflated on its own thread with the previous 32 KB as its preset
+// dictionary, and every block but the last ends with a sync flush so the compressed blocks
+// concatenate into one ordinary deflate stream. The CRC32 and length for the trailer are
+// computed as the data arrives. Any gzip reader can read the result.
+public class ParallelGzipOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 1 << 17;
+
+    private static final int DICTIONARY_SIZE = 1 << 15;
+
+    private final OutputStream out;
+    private final ExecutorService pool;
+    private final int level;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private long size;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int count;
+    private byte[] dictionary;
+    private boolean closed;
+
+    public ParallelGzipOutputStream(OutputStream out, int threads) throws IOException {
+        this(out, threads, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelGzipOutputStream(OutputStream out, int threads, int level) throws IOException {
+        this.out = out;
+        this.level = level;
+        this.maxPending = 2 * Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Magic, deflate, no flags, no mtime, no extra flags, unknown OS.
+        out.write(new byte[] {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == BLOCK_SIZE) {
+            submit(false);
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (count == BLOCK_SIZE) {
+                submit(false);
+            }
+            int copied = Math.min(length, BLOCK_SIZE - count);
+            System.arraycopy(bytes, offset, block, count, copied);
+            count += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    // Ends the current block early and writes everything compressed so far.
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            submit(false);
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+
+            long crcValue = crc.getValue();
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (crcValue >>> (8 * i));
+                trailer[4 + i] = (byte) (size >>> (8 * i));
+            }
+            out.write(trailer);
+        } finally {
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] input = block;
+        int length = count;
+        byte[] preset = dictionary;
+
+        crc.update(input, 0, length);
+        size += length;
+        dictionary = tail(preset, input, length);
+
+        pending.add(pool.submit(() -> deflate(input, length, preset, last)));
+        block = new byte[BLOCK_SIZE];
+        count = 0;
+
+        while (pending.size() > maxPending) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private byte[] deflate(byte[] input, int length, byte[] preset, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (preset != null) {
+                deflater.setDictionary(preset);
+            }
+            deflater.setInput(input, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+
+            byte[] output = new byte[length + (length >>> 3) + 64];
+            int written = 0;
+            while (true) {
+                if (written == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int n = deflater.deflate(output, written, output.length - written,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                written += n;
+                if (last ? deflater.finished() : written < output.length) {
+                    return Arrays.copyOf(output, written);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // The last DICTIONARY_SIZE bytes of the data written so far.
+    private static byte[] tail(byte[] previous, byte[] input, int length) {
+        if (length >= DICTIONARY_SIZE) {
+            return Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+        }
+        int kept = previous == null ? 0 : Math.min(previous.length, DICTIONARY_SIZE - length);
+        byte[] tail = new byte[kept + length];
+        if (kept > 0) {
+            System.arraycopy(previous, previous.length - kept, tail, 0, kept);
+        }
+        System.arraycopy(input, 0, tail, kept, length);
+        return tail.length == 0 ? null : tail;
+    }
+}
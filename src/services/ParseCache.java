@@ -0,0 +1,191 @@
+package services;
+
+import models.Movie;
+import parsers.UserParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+// Remembers which input files already went through parsing and validation, keyed by a
+// fingerprint of each file: its size and modification time, plus a CRC32C of the content
+// when hashContent is set (which catches edits that keep both, at the cost of reading the
+// file once). For the catalog the cached result is the CatalogSnapshot; for the users file
+// only the fact that it validated is kept, and an unchanged users file is then read with a
+// parser that skips validation and the duplicate-id set.
+//
+// The cache file has one line per input: path, size, modification millis and CRC32C (-1
+// when content is not hashed), separated by tabs.
+public class ParseCache {
+    private static final long NOT_HASHED = -1;
+
+    private final Path cacheFile;
+    private final boolean hashContent;
+    private final Map<String, Fingerprint> validated = new HashMap<>();
+    private final Map<String, Fingerprint> pending = new HashMap<>();
+    private int hits;
+    private int misses;
+
+    public ParseCache(String cacheFile, boolean hashContent) throws IOException {
+        this.cacheFile = Paths.get(cacheFile);
+        this.hashContent = hashContent;
+        if (Files.isRegularFile(this.cacheFile)) {
+            load();
+        }
+    }
+
+    // The snapshot records the catalog's size and modification time itself; the cache entry
+    // is only needed to compare content hashes.
+    public RecommendationEngine loadCatalog(String snapshotFile, String moviesFile) throws IOException {
+        Fingerprint current = fingerprint(moviesFile);
+        RecommendationEngine engine = hashContent && !current.equals(validated.get(key(moviesFile)))
+                ? null
+                : CatalogSnapshot.load(snapshotFile, moviesFile);
+        if (engine == null) {
+            misses++;
+            pending.put(key(moviesFile), current);
+        } else {
+            hits++;
+        }
+        return engine;
+    }
+
+    // Writes the snapshot of a freshly validated catalog and records the catalog as validated.
+    // The snapshot is stamped with the fingerprint taken by loadCatalog, before the catalog
+    // was parsed, so an edit made during parsing leaves a stale snapshot behind.
+    public void storeCatalog(String snapshotFile, String moviesFile, List<Movie> movies) throws IOException {
+        Fingerprint fingerprint = pending.get(key(moviesFile));
+        if (fingerprint == null) {
+            fingerprint = fingerprint(moviesFile);
+        }
+        CatalogSnapshot.write(snapshotFile, movies, fingerprint.size, fingerprint.modified);
+        validated(moviesFile);
+    }
+
+    public UserParser userParser(String usersFile, long userIdMemoryBudget) throws IOException {
+        Fingerprint current = fingerprint(usersFile);
+        if (current.equals(validated.get(key(usersFile)))) {
+            hits++;
+            return new UserParser(userIdMemoryBudget, false);
+        }
+        misses++;
+        pending.put(key(usersFile), current);
+        return new UserParser(userIdMemoryBudget);
+    }
+
+    // Call once the file has been read through and passed validation. The fingerprint taken
+    // when the file was looked up is the one recorded, so a file that changed during the
+    // run is not mistaken for the validated one.
+    public void validated(String file) throws IOException {
+        Fingerprint fingerprint = pending.remove(key(file));
+        if (fingerprint == null) {
+            return;
+        }
+        validated.put(key(file), fingerprint);
+        save();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    public String summary() {
+        return "Parse cache: " + hits + (hits == 1 ? " hit, " : " hits, ")
+                + misses + (misses == 1 ? " miss" : " misses");
+    }
+
+    private Fingerprint fingerprint(String file) throws IOException {
+        Path path = Paths.get(file);
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        return new Fingerprint(size, modified, hashContent ? crc32c(path) : NOT_HASHED);
+    }
+
+    private static long crc32c(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static String key(String file) {
+        return Paths.get(file).toAbsolutePath().normalize().toString();
+    }
+
+    // A malformed cache file is treated as empty; it is rewritten on the next save.
+    private void load() throws IOException {
+        for (String line : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            if (fields.length != 4) {
+                validated.clear();
+                return;
+            }
+            try {
+                validated.put(fields[0], new Fingerprint(
+                        Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+            } catch (NumberFormatException e) {
+                validated.clear();
+                return;
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        Path temp = Paths.get(cacheFile + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Fingerprint> entry : validated.entrySet()) {
+                Fingerprint fingerprint = entry.getValue();
+                writer.write(entry.getKey() + "\t" + fingerprint.size + "\t" + fingerprint.modified
+                        + "\t" + fingerprint.crc);
+                writer.newLine();
+            }
+        }
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Fingerprint {
+        final long size;
+        final long modified;
+        final long crc;
+
+        Fingerprint(long size, long modified, long crc) {
+            this.size = size;
+            this.modified = modified;
+            this.crc = crc;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint that = (Fingerprint) other;
+            return size == that.size && modified == that.modified && crc == that.crc;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(modified) * 17 + Long.hashCode(crc);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// The manifest.txt of a partitioned output, written last so that a directory without one
+// is an unfinished run:
+//
+//   version=1
+//   partitioning=RANGE
+//   block=4096
+//   users=10000
+//   shards=2
+//   shard=part-00000.txt,5904,1c291ca3
+//   shard=part-00001.txt,4096,9a8b7c6d
+//
+// Each shard line is the file name, its record count and the CRC32 of its bytes in hex.
+class PartitionManifest {
+    static final String FILE_NAME = "manifest.txt";
+
+    private static final int VERSION = 1;
+
+    final Partitioning partitioning;
+    final int block;
+    final String[] files;
+    final int[] counts;
+    final long[] checksums;
+
+    PartitionManifest(Partitioning partitioning, int block, String[] files, int[] counts, long[] checksums) {
+        this.partitioning = partitioning;
+        this.block = block;
+        this.files = files;
+        this.counts = counts;
+        this.checksums = checksums;
+    }
+
+    static String shardFile(int shard) {
+        return String.format("part-%05d.txt", shard);
+    }
+
+    int users() {
+        int users = 0;
+        for (int count : counts) {
+            users += count;
+        }
+        return users;
+    }
+
+    void write(Path directory) throws IOException {
+        Path temp = directory.resolve(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write("version=" + VERSION + "\n");
+            out.write("partitioning=" + partitioning + "\n");
+            out.write("block=" + block + "\n");
+            out.write("users=" + users() + "\n");
+            out.write("shards=" + files.length + "\n");
+            for (int k = 0; k < files.length; k++) {
+                out.write("shard=" + files[k] + "," + counts[k] + "," + Long.toHexString(checksums[k]) + "\n");
+            }
+        }
+        Files.move(temp, directory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static PartitionManifest read(Path directory) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(directory.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+            if (Integer.parseInt(value(in, "version")) != VERSION) {
+                throw new IOException("Unsupported manifest version in " + directory);
+            }
+            Partitioning partitioning = Partitioning.valueOf(value(in, "partitioning"));
+            int block = Integer.parseInt(value(in, "block"));
+            int users = Integer.parseInt(value(in, "users"));
+            int shards = Integer.parseInt(value(in, "shards"));
+
+            String[] files = new String[shards];
+            int[] counts = new int[shards];
+            long[] checksums = new long[shards];
+            for (int k = 0; k < shards; k++) {
+                String[] parts = value(in, "shard").split(",");
+                if (parts.length != 3) {
+                    throw new IOException("Malformed shard entry in " + directory);
+                }
+                files[k] = parts[0];
+                counts[k] = Integer.parseInt(parts[1]);
+                checksums[k] = Long.parseLong(parts[2], 16);
+            }
+
+            PartitionManifest manifest = new PartitionManifest(partitioning, block, files, counts, checksums);
+            if (manifest.users() != users) {
+                throw new IOException("Manifest user count does not match its shards in " + directory);
+            }
+            return manifest;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed manifest in " + directory, e);
+        }
+    }
+
+    private static String value(BufferedReader in, String key) throws IOException {
+        String line = in.readLine();
+        if (line == null || !line.startsWith(key + "=")) {
+            throw new IOException("Expected " + key + " in manifest");
+        }
+        return line.substring(key.length() + 1);
+    }
+}
@@ -0,0 +1,123 @@
+package services;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+// Joins the shards listed in a manifest back into one recommendations.txt. Hash shards
+// are concatenated; range shards are read a block at a time in turn, which restores the
+// input order. Every shard's record count and CRC32 are checked against the manifest
+// before the merged file is renamed into place.
+class PartitionMerger {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    int merge(String directory, String outputFile) throws IOException {
+        Path dir = Paths.get(directory);
+        PartitionManifest manifest = PartitionManifest.read(dir);
+        Path temp = Paths.get(outputFile + ".tmp");
+
+        Shard[] shards = new Shard[manifest.files.length];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE)) {
+            for (int k = 0; k < shards.length; k++) {
+                shards[k] = new Shard(dir.resolve(manifest.files[k]), manifest.counts[k]);
+            }
+
+            if (manifest.partitioning == Partitioning.RANGE) {
+                boolean copied = true;
+                while (copied) {
+                    copied = false;
+                    for (Shard shard : shards) {
+                        copied |= shard.copyRecords(out, manifest.block) > 0;
+                    }
+                }
+            } else {
+                for (Shard shard : shards) {
+                    shard.copyRecords(out, Integer.MAX_VALUE);
+                }
+            }
+
+            for (int k = 0; k < shards.length; k++) {
+                shards[k].verify(manifest.checksums[k]);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            for (Shard shard : shards) {
+                if (shard != null) {
+                    shard.close();
+                }
+            }
+        }
+
+        Files.move(temp, Paths.get(outputFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return manifest.users();
+    }
+
+    private static class Shard {
+        final Path file;
+        final InputStream in;
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int position;
+        int limit;
+        int remaining;
+
+        Shard(Path file, int records) throws IOException {
+            this.file = file;
+            this.in = Files.newInputStream(file);
+            this.remaining = records;
+        }
+
+        // Copies up to `records` records (two lines each) and returns how many it copied.
+        int copyRecords(OutputStream out, int records) throws IOException {
+            int count = Math.min(records, remaining);
+            long lines = 2L * count;
+            while (lines > 0) {
+                if (position == limit && !fill()) {
+                    throw new IOException("Shard " + file + " has fewer records than its manifest");
+                }
+                int i = position;
+                while (i < limit && lines > 0) {
+                    if (buffer[i++] == '\n') {
+                        lines--;
+                    }
+                }
+                out.write(buffer, position, i - position);
+                crc.update(buffer, position, i - position);
+                position = i;
+            }
+            remaining -= count;
+            return count;
+        }
+
+        void verify(long checksum) throws IOException {
+            if (position < limit || fill()) {
+                throw new IOException("Shard " + file + " has more records than its manifest");
+            }
+            if (crc.getValue() != checksum) {
+                throw new IOException("Shard " + file + " does not match its checksum");
+            }
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package services;
+
+import models.UserRecommendation;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Recommendations sharded over `shards` files in one directory, each in the
+// recommendations.txt format. Every shard has its own stream, so shards can be written
+// concurrently as long as each one is written by a single thread. commit() closes the
+// shards and writes the manifest; until then the directory holds an unfinished output.
+public class PartitionedOutput implements Closeable {
+    static final int RANGE_BLOCK = 4096;
+
+    private final Path directory;
+    private final Partitioning partitioning;
+    private final RecommendationStream[] streams;
+    private final int[] counts;
+
+    PartitionedOutput(String directory, int shards, Partitioning partitioning) throws IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        this.directory = Paths.get(directory);
+        this.partitioning = partitioning;
+        this.streams = new RecommendationStream[shards];
+        this.counts = new int[shards];
+
+        Files.createDirectories(this.directory);
+        Files.deleteIfExists(this.directory.resolve(PartitionManifest.FILE_NAME));
+        try {
+            for (int k = 0; k < shards; k++) {
+                streams[k] = new RecommendationStream(
+                        this.directory.resolve(PartitionManifest.shardFile(k)).toString());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int shards() {
+        return streams.length;
+    }
+
+    // Shard of the `sequence`-th record of the input, whose user id is `userId`.
+    public int shardOf(long sequence, String userId) {
+        if (partitioning == Partitioning.HASH) {
+            return Math.floorMod(userId.hashCode(), streams.length);
+        }
+        return (int) ((sequence / RANGE_BLOCK) % streams.length);
+    }
+
+    public void write(int shard, UserRecommendation rec) throws IOException {
+        streams[shard].write(rec);
+        counts[shard]++;
+    }
+
+    public void commit() throws IOException {
+        String[] files = new String[streams.length];
+        long[] checksums = new long[streams.length];
+        for (int k = 0; k < streams.length; k++) {
+            streams[k].force();
+            files[k] = PartitionManifest.shardFile(k);
+            checksums[k] = streams[k].checksum();
+        }
+        close();
+
+        new PartitionManifest(partitioning, RANGE_BLOCK, files, counts.clone(), checksums).write(directory);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (RecommendationStream stream : streams) {
+            if (stream == null) {
+                continue;
+            }
+            try {
+                stream.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package services;
+
+import models.User;
+import parsers.UserReader;
+import exceptions.ValidationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+// The calling thread parses and routes each user to its shard's bounded queue; one worker
+// per shard generates and writes that shard's recommendations. Shards never wait for each
+// other, so there is no single writer to serialize on. A worker that fails keeps draining
+// its queue so the parser cannot block on it, and the first failure is rethrown once all
+// workers have stopped.
+class PartitionedRun {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final User STOP = new User(null, null, null);
+
+    private final RecommendationPipeline pipeline;
+    private final PartitionedOutput output;
+    private final List<BlockingQueue<User>> queues = new ArrayList<>();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    PartitionedRun(RecommendationPipeline pipeline, PartitionedOutput output) {
+        this.pipeline = pipeline;
+        this.output = output;
+        for (int k = 0; k < output.shards(); k++) {
+            queues.add(new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+        }
+    }
+
+    int run(UserReader users) throws ValidationException, IOException {
+        ThreadFactory threads = WorkerThreads.factory("shard");
+        List<Thread> started = new ArrayList<>();
+        int count = 0;
+
+        try {
+            for (int k = 0; k < queues.size(); k++) {
+                int shard = k;
+                Thread thread = threads.newThread(() -> writeShard(shard));
+                started.add(thread);
+                thread.start();
+            }
+
+            ValidationException invalid = null;
+            try {
+                User user;
+                while ((user = users.readUser()) != null) {
+                    queues.get(output.shardOf(count, user.getId())).put(user);
+                    count++;
+                }
+            } catch (ValidationException e) {
+                invalid = e;
+            }
+
+            for (BlockingQueue<User> queue : queues) {
+                queue.put(STOP);
+            }
+            for (Thread thread : started) {
+                thread.join();
+            }
+
+            Exception failed = failure.get();
+            if (failed instanceof IOException) {
+                throw (IOException) failed;
+            }
+            if (failed != null) {
+                throw (RuntimeException) failed;
+            }
+            if (invalid != null) {
+                throw invalid;
+            }
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating recommendations", e);
+        } finally {
+            for (Thread thread : started) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    private void writeShard(int shard) {
+        BlockingQueue<User> queue = queues.get(shard);
+        try {
+            User user;
+            while ((user = queue.take()) != STOP) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    output.write(shard, pipeline.recommend(user));
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shutting down.
+        }
+    }
+}
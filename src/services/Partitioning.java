@@ -0,0 +1,12 @@
+package services;
+
+// How a partitioned output assigns users to shards.
+public enum Partitioning {
+    // By user id hash: every shard gets an even share regardless of input order, and all
+    // records of one id land in the same shard. Merging groups records by shard.
+    HASH,
+
+    // By input range: consecutive blocks of records go to the shards in turn. Merging
+    // interleaves the blocks again and restores the input order exactly.
+    RANGE
+}
@@ -0,0 +1,196 @@
+package services;
+
+import models.User;
+import models.UserRecommendation;
+import parsers.UserReader;
+import exceptions.ValidationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+// One parser thread, `workers` recommendation threads and the calling thread as the only
+// writer, joined by bounded queues. The parser takes a permit per user and the writer
+// returns it once that user is written, so at most `window` users are between the two at
+// any time: a slow disk throttles parsing instead of filling the heap. Results are put
+// back into input order through a ring of `window` slots indexed by sequence number.
+class PipelinedRun {
+    private static final int DEPTH_PER_WORKER = 64;
+
+    private final RecommendationPipeline pipeline;
+    private final int workers;
+    private final int window;
+
+    private final BlockingQueue<Slot> pending;
+    private final BlockingQueue<Slot> done;
+    private final Semaphore inFlight;
+
+    PipelinedRun(RecommendationPipeline pipeline, int workers) {
+        this.pipeline = pipeline;
+        this.workers = Math.max(1, workers);
+        this.window = this.workers * DEPTH_PER_WORKER;
+        this.pending = new ArrayBlockingQueue<>(window);
+        this.done = new ArrayBlockingQueue<>(window + 1);
+        this.inFlight = new Semaphore(window);
+    }
+
+    int run(UserReader users, String outputFile) throws ValidationException, IOException {
+        try (RecommendationStream out = pipeline.open(outputFile)) {
+            return run(users, out, null, 0, 0);
+        }
+    }
+
+    // Writes to `out` and, when `checkpoint` is given, saves progress every `interval` users.
+    // `usersDone` users were already written by an earlier run; the returned count includes them.
+    int run(UserReader users, RecommendationSink out, Checkpoint checkpoint, int interval, int usersDone)
+            throws ValidationException, IOException {
+        ThreadFactory threads = WorkerThreads.factory("recommend");
+        List<Thread> started = new ArrayList<>();
+
+        try {
+            started.add(threads.newThread(() -> parse(users)));
+            for (int w = 0; w < workers; w++) {
+                started.add(threads.newThread(this::recommend));
+            }
+            for (Thread thread : started) {
+                thread.start();
+            }
+
+            return usersDone + write(out, checkpoint, interval, usersDone);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating recommendations", e);
+        } finally {
+            for (Thread thread : started) {
+                thread.interrupt();
+            }
+            for (Thread thread : started) {
+                joinQuietly(thread);
+            }
+        }
+    }
+
+    private void parse(UserReader users) {
+        int sequence = 0;
+        Exception failure = null;
+        try {
+            User user;
+            while (true) {
+                inFlight.acquire();
+                if ((user = users.readUser()) == null) {
+                    break;
+                }
+                pending.put(new Slot(sequence++, user, users.position()));
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (ValidationException | IOException | RuntimeException e) {
+            failure = e;
+        }
+
+        try {
+            for (int w = 0; w < workers; w++) {
+                pending.put(Slot.STOP);
+            }
+            done.put(Slot.end(sequence, failure));
+        } catch (InterruptedException e) {
+            // The writer has already given up.
+        }
+    }
+
+    private void recommend() {
+        try {
+            Slot slot;
+            while ((slot = pending.take()) != Slot.STOP) {
+                try {
+                    slot.recommendation = pipeline.recommend(slot.user);
+                } catch (RuntimeException e) {
+                    slot.failure = e;
+                }
+                done.put(slot);
+            }
+        } catch (InterruptedException e) {
+            // Shutting down.
+        }
+    }
+
+    private int write(RecommendationSink out, Checkpoint checkpoint, int interval, int usersDone)
+            throws InterruptedException, ValidationException, IOException {
+        Slot[] ring = new Slot[window];
+        int next = 0;
+
+        while (true) {
+            Slot slot;
+            while ((slot = ring[next % window]) == null) {
+                Slot arrived = done.take();
+                ring[arrived.sequence % window] = arrived;
+            }
+            ring[next % window] = null;
+
+            if (slot.failure != null) {
+                rethrow(slot.failure);
+            }
+            if (slot.user == null) {
+                return next;
+            }
+
+            out.write(slot.recommendation);
+            next++;
+            inFlight.release();
+
+            if (checkpoint != null && next % interval == 0) {
+                checkpoint.save(slot.inputOffset, usersDone + next);
+            }
+        }
+    }
+
+    private static void rethrow(Exception failure) throws ValidationException, IOException {
+        if (failure instanceof ValidationException) {
+            throw (ValidationException) failure;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+    private static void joinQuietly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Slot {
+        static final Slot STOP = new Slot(-1, null, -1);
+
+        final int sequence;
+        final User user;
+        final long inputOffset;
+        UserRecommendation recommendation;
+        Exception failure;
+
+        Slot(int sequence, User user, long inputOffset) {
+            this.sequence = sequence;
+            this.user = user;
+            this.inputOffset = inputOffset;
+        }
+
+        static Slot end(int sequence, Exception failure) {
+            Slot slot = new Slot(sequence, null, -1);
+            slot.failure = failure;
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package services;
+
+import models.User;
+import models.UserRecommendation;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded cache of recommendation results in front of an engine. Results depend only on
+// the set of liked movies that are in the catalog and on the limit, so users who like the
+// same movies in any order, with repeats or with unknown ids share one entry.
+//
+// The cache is split into stripes by key hash, each with its own lock and an even share
+// of the bound. Within a stripe eviction follows W-TinyLFU: new entries go into a small
+// LRU window (1% of the stripe); an entry leaving the window only enters the main LRU
+// space if it has been asked for more often than the entry it would evict there, going by
+// a FrequencySketch of recent lookups. A burst of one-off lookups therefore passes through
+// the window without flushing the popular entries.
+//
+// Each stripe belongs to one engine. The first lookup on a newer engine (a reloaded or
+// changed catalog, see RecommendationEngine.generation) empties every stripe, so results of
+// an old catalog are never returned for a new one, and a cached result, which refers to
+// its catalog's titles, does not keep an old catalog reachable from a stripe that is no
+// longer looked up. Lookups still running on an older engine bypass the cache.
+public class RecommendationCache {
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final long MIN_STRIPE_ENTRIES = 64;
+    private static final long MIN_STRIPE_BYTES = 1 << 20;
+
+    private final Stripe[] stripes;
+    private final boolean weighBytes;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private RecommendationCache(long capacity, boolean weighBytes) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        // Enough stripes that threads rarely meet on one, but each big enough for its
+        // eviction order to mean something.
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4) * 2 - 1);
+        long minStripe = weighBytes ? MIN_STRIPE_BYTES : MIN_STRIPE_ENTRIES;
+        count = Math.min(count, Integer.highestOneBit((int) Math.max(1, Math.min(1 << 30, capacity / minStripe))));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(capacity / count, weighBytes);
+        }
+        this.weighBytes = weighBytes;
+    }
+
+    // Holds at most `maxEntries` results.
+    public static RecommendationCache withMaxEntries(int maxEntries) {
+        return new RecommendationCache(maxEntries, false);
+    }
+
+    // Holds results up to an estimated `maxBytes` of heap, counting the key and the
+    // recommended movie ids but not the catalog titles they refer to.
+    public static RecommendationCache withMaxBytes(long maxBytes) {
+        return new RecommendationCache(maxBytes, true);
+    }
+
+    // The same as engine.generateRecommendations(user, limit), or without a limit when it
+    // is RecommendationPipeline.UNLIMITED.
+    public UserRecommendation recommend(RecommendationEngine engine, User user, int limit) {
+        advance(engine.generation());
+        Key key = new Key(engine.getIndex(), user.getLikedMovieIds(), limit);
+        Stripe stripe = stripes[key.hash & (stripes.length - 1)];
+
+        List<String> titles = stripe.get(engine.generation(), key);
+        if (titles != null) {
+            hits.increment();
+            return new UserRecommendation(user.getName(), user.getId(), titles);
+        }
+
+        misses.increment();
+        UserRecommendation recommendation = limit == RecommendationPipeline.UNLIMITED
+                ? engine.generateRecommendations(user)
+                : engine.generateRecommendations(user, limit);
+        List<String> computed = recommendation.getRecommendedMovieTitles();
+        long weight = weighBytes ? ENTRY_OVERHEAD + 4L * (key.movies.length + computed.size()) : 1;
+        evictions.add(stripe.put(engine.generation(), key, computed, weight));
+        return recommendation;
+    }
+
+    // Empties every stripe the first time a newer engine is seen.
+    private void advance(long engineGeneration) {
+        long seen;
+        while (engineGeneration > (seen = generation.get())) {
+            if (generation.compareAndSet(seen, engineGeneration)) {
+                for (Stripe stripe : stripes) {
+                    synchronized (stripe) {
+                        stripe.current(engineGeneration);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Entries dropped to stay within the bound, including new ones that were not admitted.
+    // Entries dropped because the catalog changed are not counted.
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.window.size() + stripe.main.size();
+            }
+        }
+        return size;
+    }
+
+    public String summary() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return size() + " cached results, " + hits + " hits, " + getMisses() + " misses ("
+                + (lookups == 0 ? 0 : hits * 100 / lookups) + "% hit rate), " + getEvictions() + " evictions";
+    }
+
+    // Sorted, distinct dense ids of the liked movies in the catalog, plus the limit.
+    private static class Key {
+        final int[] movies;
+        final int limit;
+        final int hash;
+
+        Key(MovieIndex index, List<String> likedMovieIds, int limit) {
+            int[] movies = new int[likedMovieIds.size()];
+            int count = 0;
+            for (String likedMovieId : likedMovieIds) {
+                int movie = index.denseId(likedMovieId);
+                if (movie >= 0) {
+                    movies[count++] = movie;
+                }
+            }
+            Arrays.sort(movies, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || movies[distinct - 1] != movies[i]) {
+                    movies[distinct++] = movies[i];
+                }
+            }
+            this.movies = Arrays.copyOf(movies, distinct);
+            this.limit = limit;
+            int h = Arrays.hashCode(this.movies) * 31 + limit;
+            h *= 0x9E3779B9;
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && limit == key.limit && Arrays.equals(movies, key.movies);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Entry {
+        final List<String> titles;
+        final long weight;
+
+        Entry(List<String> titles, long weight) {
+            this.titles = titles;
+            this.weight = weight;
+        }
+    }
+
+    // Both maps are in access order, least recently used first.
+    private static class Stripe {
+        final long capacity;
+        final long windowCapacity;
+        final Map<Key, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+        final Map<Key, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+        final FrequencySketch sketch;
+        long generation;
+        long windowWeight;
+        long mainWeight;
+
+        Stripe(long capacity, boolean weighBytes) {
+            this.capacity = Math.max(1, capacity);
+            this.windowCapacity = Math.max(1, this.capacity / 100);
+            this.sketch = new FrequencySketch(weighBytes ? 1024 : (int) Math.min(Integer.MAX_VALUE, this.capacity));
+        }
+
+        synchronized List<String> get(long engineGeneration, Key key) {
+            if (!current(engineGeneration)) {
+                return null;
+            }
+            sketch.increment(key.hash);
+            Entry entry = window.get(key);
+            if (entry == null) {
+                entry = main.get(key);
+            }
+            return entry == null ? null : entry.titles;
+        }
+
+        // Adds a result computed on the engine of that generation; returns how many entries
+        // were evicted to make room.
+        synchronized int put(long engineGeneration, Key key, List<String> titles, long weight) {
+            if (!current(engineGeneration) || window.containsKey(key) || main.containsKey(key)) {
+                return 0;
+            }
+            if (weight > capacity) {
+                return 1;
+            }
+
+            window.put(key, new Entry(titles, weight));
+            windowWeight += weight;
+            sketch.ensureCapacity(window.size() + main.size());
+
+            int evicted = 0;
+            while (windowWeight > windowCapacity && window.size() > 1) {
+                Iterator<Map.Entry<Key, Entry>> eldest = window.entrySet().iterator();
+                Map.Entry<Key, Entry> candidate = eldest.next();
+                eldest.remove();
+                windowWeight -= candidate.getValue().weight;
+                evicted += admit(candidate.getKey(), candidate.getValue());
+            }
+            return evicted;
+        }
+
+        // Moves an entry from the window into the main space if it is used more often than
+        // the main entries it would push out.
+        private int admit(Key key, Entry entry) {
+            long room = capacity - windowCapacity;
+            if (entry.weight > room) {
+                return 1;
+            }
+            int evicted = 0;
+            Iterator<Map.Entry<Key, Entry>> victims = main.entrySet().iterator();
+            if (mainWeight + entry.weight > room
+                    && sketch.frequency(key.hash) <= sketch.frequency(main.keySet().iterator().next().hash)) {
+                return 1;
+            }
+            while (mainWeight + entry.weight > room) {
+                Map.Entry<Key, Entry> victim = victims.next();
+                victims.remove();
+                mainWeight -= victim.getValue().weight;
+                evicted++;
+            }
+            main.put(key, entry);
+            mainWeight += entry.weight;
+            return evicted;
+        }
+
+        // True if the stripe holds results for this generation, after emptying it if the
+        // generation is newer than the one it held.
+        private boolean current(long engineGeneration) {
+            if (engineGeneration > generation) {
+                window.clear();
+                main.clear();
+                windowWeight = 0;
+                mainWeight = 0;
+                generation = engineGeneration;
+            }
+            return engineGeneration == generation;
+        }
+    }
+}
@@ -1,60 +1,338 @@
 package services;
 
+import models.CatalogChange;
 import models.Movie;
+import models.RecommendationBatch;
 import models.User;
 import models.UserRecommendation;
+import exceptions.ValidationException;
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Set;
-import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+// An engine never changes after construction, so one instance can serve any number of
+// threads at once without locking. The only mutable state is the scratch CandidateSet:
+// each call takes one from an idle pool and hands it back when done, so there are only as
+// many as calls ever ran at once, even when every request gets a fresh (virtual) thread.
 public class RecommendationEngine {
-    private Map<String, Movie> movieById;
-    private Map<String, Set<String>> genreToMovieIds;
+    private static final int SCORE_LIMIT = 0xFFFF;
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final MovieIndex index;
+    private final long generation = GENERATIONS.incrementAndGet();
+    private final ConcurrentLinkedQueue<CandidateSet> idleCandidates = new ConcurrentLinkedQueue<>();
 
     public RecommendationEngine(List<Movie> movies) {
-        this.movieById = new HashMap<>();
-        this.genreToMovieIds = new HashMap<>();
+        this(MovieIndex.build(movies));
+    }
+
+    RecommendationEngine(MovieIndex index) {
+        this.index = index;
+    }
+
+    MovieIndex getIndex() {
+        return index;
+    }
+
+    // Increases with every engine built, so an engine that replaces another (a reload or
+    // apply) always has the higher one.
+    long generation() {
+        return generation;
+    }
+
+    // Returns an engine for the catalog with the changes applied and leaves this one as it
+    // is, so requests running on it are unaffected. The new index shares everything the
+    // changes did not touch, so the cost grows with the changes rather than the catalog.
+    public RecommendationEngine apply(List<CatalogChange> changes) throws ValidationException {
+        return new RecommendationEngine(index.apply(changes));
+    }
+
+    // Titles come out in catalog order (the order in which movie ids first appear in the
+    // catalog), so the same inputs always produce the same line.
+    public UserRecommendation generateRecommendations(User user) {
+        CandidateSet recommended = borrowCandidates();
+        collectCandidates(recommended, likedMovies(user));
+        int[] movies = drain(recommended);
+        idleCandidates.offer(recommended);
 
-        for (Movie movie : movies) {
-            movieById.put(movie.getId(), movie);
+        return new UserRecommendation(user.getName(), user.getId(), new TitleList(index, movies));
+    }
+
+    // Returns at most `limit` recommendations, best first. A candidate ranks higher the more
+    // of the user's liked genres it has, then the more liked movies it shares a genre with;
+    // remaining ties go to the movie that comes first in the catalog.
+    public UserRecommendation generateRecommendations(User user, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
 
-            for (String genre : movie.getGenres()) {
-                genreToMovieIds
-                        .computeIfAbsent(genre, k -> new HashSet<>())
-                        .add(movie.getId());
+        CandidateSet recommended = borrowCandidates();
+        int[] likedMovies = likedMovies(user);
+        collectCandidates(recommended, likedMovies);
+
+        TopK best = new TopK(limit);
+        LikedGenres liked = new LikedGenres(likedMovies);
+        recommended.drain(movie -> best.offer(rankKey(recommended, liked, movie)));
+        idleCandidates.offer(recommended);
+
+        long[] ranked = best.sortedDescending();
+        int[] rankedMovies = new int[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            rankedMovies[i] = Integer.MAX_VALUE - (int) (ranked[i] & Integer.MAX_VALUE);
+        }
+
+        return new UserRecommendation(user.getName(), user.getId(), new TitleList(index, rankedMovies));
+    }
+
+    // Users whose liked movies cover the same set of genres share one candidate set, so the
+    // genre union is computed once per distinct signature and only the exclusion of each
+    // user's own liked movies is done per user. Results are in the same order as `users`
+    // and identical to calling generateRecommendations(User) for each of them.
+    public RecommendationBatch generateRecommendations(Collection<User> users) {
+        List<User> userList = new ArrayList<>(users);
+        Map<GenreSignature, List<Integer>> usersBySignature = new HashMap<>();
+        int[][] likedMovies = new int[userList.size()][];
+
+        for (int u = 0; u < userList.size(); u++) {
+            likedMovies[u] = likedMovies(userList.get(u));
+            usersBySignature
+                    .computeIfAbsent(signature(likedMovies[u]), k -> new ArrayList<>())
+                    .add(u);
+        }
+
+        UserRecommendation[] results = new UserRecommendation[userList.size()];
+        CandidateSet recommended = borrowCandidates();
+
+        for (Map.Entry<GenreSignature, List<Integer>> group : usersBySignature.entrySet()) {
+            recommended.beginGenres();
+            for (int genre : group.getKey().genres) {
+                recommended.or(index.genreMovies(genre));
+            }
+            int[] candidateMovies = drain(recommended);
+
+            for (int u : group.getValue()) {
+                User user = userList.get(u);
+                results[u] = new UserRecommendation(user.getName(), user.getId(),
+                        new TitleList(index, without(candidateMovies, likedMovies[u])));
             }
         }
+
+        idleCandidates.offer(recommended);
+        return new RecommendationBatch(Arrays.asList(results), usersBySignature.size());
     }
 
-    public UserRecommendation generateRecommendations(User user) {
-        Set<String> recommendedIds = new HashSet<>();
-        Set<String> likedIds = new HashSet<>(user.getLikedMovieIds());
+    // `movies` (ascending) minus `excluded`, which is sorted in place. Each excluded id is
+    // found by binary search and the runs between them are copied in bulk, so the cost is
+    // one copy of `movies` plus a search per excluded id, not a scan of `excluded` per movie.
+    private static int[] without(int[] movies, int[] excluded) {
+        Arrays.sort(excluded);
+        int[] kept = new int[movies.length];
+        int count = 0;
+        int from = 0;
+        for (int movie : excluded) {
+            int at = Arrays.binarySearch(movies, from, movies.length, movie);
+            if (at >= 0) {
+                System.arraycopy(movies, from, kept, count, at - from);
+                count += at - from;
+                from = at + 1;
+            }
+        }
+        System.arraycopy(movies, from, kept, count, movies.length - from);
+        count += movies.length - from;
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
+    }
+
+    // A set that was in use when a call failed may be left dirty, so it is not returned.
+    private CandidateSet borrowCandidates() {
+        CandidateSet candidates = idleCandidates.poll();
+        return candidates != null ? candidates : new CandidateSet(index.size(), index.genreCount());
+    }
+
+    private static int[] drain(CandidateSet recommended) {
+        int[] movies = new int[recommended.cardinality()];
+        int[] count = new int[1];
+        recommended.drain(movie -> movies[count[0]++] = movie);
+        return movies;
+    }
+
+    private GenreSignature signature(int[] likedMovies) {
+        int genreCount = 0;
+        for (int likedMovie : likedMovies) {
+            genreCount += index.genres(likedMovie).length;
+        }
+
+        int[] genres = new int[genreCount];
+        int i = 0;
+        for (int likedMovie : likedMovies) {
+            for (int genre : index.genres(likedMovie)) {
+                genres[i++] = genre;
+            }
+        }
+        Arrays.sort(genres);
 
+        int distinct = 0;
+        for (int j = 0; j < genres.length; j++) {
+            if (j == 0 || genres[j] != genres[j - 1]) {
+                genres[distinct++] = genres[j];
+            }
+        }
+        return new GenreSignature(Arrays.copyOf(genres, distinct));
+    }
+
+    // Distinct dense ids of the user's liked movies that are in the catalog, ascending.
+    private int[] likedMovies(User user) {
+        int[] likedMovies = new int[user.getLikedMovieIds().size()];
+        int count = 0;
         for (String likedMovieId : user.getLikedMovieIds()) {
-            Movie likedMovie = movieById.get(likedMovieId);
-            if (likedMovie == null) continue;
+            int likedMovie = index.denseId(likedMovieId);
+            if (likedMovie >= 0) {
+                likedMovies[count++] = likedMovie;
+            }
+        }
+        Arrays.sort(likedMovies, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || likedMovies[distinct - 1] != likedMovies[i]) {
+                likedMovies[distinct++] = likedMovies[i];
+            }
+        }
+        return distinct == likedMovies.length ? likedMovies : Arrays.copyOf(likedMovies, distinct);
+    }
+
+    private void collectCandidates(CandidateSet recommended, int[] likedMovies) {
+        recommended.beginGenres();
+
+        for (int likedMovie : likedMovies) {
+            for (int genre : index.genres(likedMovie)) {
+                if (recommended.markGenre(genre)) {
+                    recommended.or(index.genreMovies(genre));
+                }
+            }
+        }
+
+        for (int likedMovie : likedMovies) {
+            recommended.remove(likedMovie);
+        }
+    }
+
+    // Packs (genre matches, liked-movie matches, catalog position) into one long that
+    // orders candidates from worst to best.
+    private long rankKey(CandidateSet recommended, LikedGenres liked, int movie) {
+        int genreMatches = 0;
+        int firstRow = -1;
+        for (int genre : index.genres(movie)) {
+            if (!recommended.isGenreMarked(genre)) {
+                continue;
+            }
+            int row = liked.row(genre);
+            if (genreMatches == 0) {
+                firstRow = row;
+            } else if (genreMatches == 1) {
+                System.arraycopy(liked.rows[firstRow], 0, liked.union, 0, liked.union.length);
+                liked.or(row);
+            } else {
+                liked.or(row);
+            }
+            genreMatches++;
+        }
 
-            for (String genre : likedMovie.getGenres()) {
-                Set<String> moviesInGenre = genreToMovieIds.get(genre);
-                if (moviesInGenre != null) {
-                    recommendedIds.addAll(moviesInGenre);
+        // Liked movies sharing a genre with the candidate, each counted once.
+        int movieMatches = genreMatches == 0 ? 0
+                : genreMatches == 1 ? liked.counts[firstRow]
+                : liked.unionCount();
+
+        return ((long) Math.min(genreMatches, SCORE_LIMIT) << 47)
+                | ((long) Math.min(movieMatches, SCORE_LIMIT) << 31)
+                | (Integer.MAX_VALUE - movie);
+    }
+
+    // The liked movies of one request by genre, built once so that ranking a candidate costs
+    // a few word operations per genre instead of a comparison with every liked movie: for
+    // each liked genre a bitset over the indexes of the liked movies that have it.
+    private class LikedGenres {
+        final int[] genres;
+        final long[][] rows;
+        final int[] counts;
+        final long[] union;
+
+        LikedGenres(int[] likedMovies) {
+            int count = 0;
+            for (int likedMovie : likedMovies) {
+                count += index.genres(likedMovie).length;
+            }
+            int[] all = new int[count];
+            int i = 0;
+            for (int likedMovie : likedMovies) {
+                for (int genre : index.genres(likedMovie)) {
+                    all[i++] = genre;
+                }
+            }
+            Arrays.sort(all);
+            int distinct = 0;
+            for (int j = 0; j < all.length; j++) {
+                if (distinct == 0 || all[distinct - 1] != all[j]) {
+                    all[distinct++] = all[j];
+                }
+            }
+            genres = Arrays.copyOf(all, distinct);
+
+            int words = (likedMovies.length + 63) >>> 6;
+            rows = new long[distinct][words];
+            counts = new int[distinct];
+            union = new long[words];
+            for (int l = 0; l < likedMovies.length; l++) {
+                for (int genre : index.genres(likedMovies[l])) {
+                    int row = row(genre);
+                    if ((rows[row][l >>> 6] & 1L << l) == 0) {
+                        rows[row][l >>> 6] |= 1L << l;
+                        counts[row]++;
+                    }
                 }
             }
         }
 
-        recommendedIds.removeAll(likedIds);
+        int row(int genre) {
+            return Arrays.binarySearch(genres, genre);
+        }
 
-        List<String> recommendedTitles = new ArrayList<>();
-        for (String movieId : recommendedIds) {
-            Movie movie = movieById.get(movieId);
-            if (movie != null) {
-                recommendedTitles.add(movie.getTitle());
+        void or(int row) {
+            long[] bits = rows[row];
+            for (int w = 0; w < union.length; w++) {
+                union[w] |= bits[w];
             }
         }
 
-        return new UserRecommendation(user.getName(), user.getId(), recommendedTitles);
+        int unionCount() {
+            int count = 0;
+            for (long word : union) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+    }
+
+    private static class GenreSignature {
+        final int[] genres;
+        final int hash;
+
+        GenreSignature(int[] genres) {
+            this.genres = genres;
+            this.hash = Arrays.hashCode(genres);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof GenreSignature && Arrays.equals(genres, ((GenreSignature) other).genres);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
\ No newline at end of file
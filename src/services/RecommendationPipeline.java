@@ -0,0 +1,217 @@
+package services;
+
+import models.IncrementalResult;
+import models.User;
+import models.UserRecommendation;
+import parsers.UserParser;
+import parsers.UserReader;
+import exceptions.ValidationException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+// Streams users through the engine one record at a time, so only the catalog and the
+// user currently being processed are held in memory. If a user record fails validation
+// the exception propagates after the records before it have been written; callers that
+// keep the fail-first contract overwrite the output with writeError.
+public class RecommendationPipeline {
+    public static final int UNLIMITED = -1;
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int CHECKPOINT_INTERVAL = 100000;
+
+    private RecommendationEngine engine;
+    private RecommendationWriter writer;
+    private int limit;
+
+    public RecommendationPipeline(RecommendationEngine engine, RecommendationWriter writer) {
+        this(engine, writer, UNLIMITED);
+    }
+
+    // With a limit, each user gets at most that many ranked recommendations.
+    public RecommendationPipeline(RecommendationEngine engine, RecommendationWriter writer, int limit) {
+        this.engine = engine;
+        this.writer = writer;
+        this.limit = limit;
+    }
+
+    public int run(UserReader users, String outputFile) throws ValidationException, IOException {
+        int count = 0;
+
+        try (RecommendationStream out = writer.open(outputFile)) {
+            User user;
+            while ((user = users.readUser()) != null) {
+                out.write(recommend(user));
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    // Reads users in batches and generates each batch on a ForkJoin pool with `parallelism`
+    // workers. A batch is written in input order before the next one is read, so the output
+    // is byte-for-byte the same as run().
+    public int runParallel(UserReader users, String outputFile, int parallelism)
+            throws ValidationException, IOException {
+        int count = 0;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+
+        try (RecommendationStream out = writer.open(outputFile)) {
+            List<User> batch = new ArrayList<>(BATCH_SIZE);
+            boolean endOfInput = false;
+
+            while (!endOfInput) {
+                ValidationException failure = null;
+                batch.clear();
+                try {
+                    User user;
+                    while (batch.size() < BATCH_SIZE && (user = users.readUser()) != null) {
+                        batch.add(user);
+                    }
+                } catch (ValidationException e) {
+                    failure = e;
+                }
+                endOfInput = batch.size() < BATCH_SIZE;
+
+                for (UserRecommendation rec : recommendAll(pool, batch)) {
+                    out.write(rec);
+                }
+                count += batch.size();
+
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return count;
+    }
+
+    // Parses, recommends and writes concurrently: a parser thread, `workers` recommendation
+    // threads and an ordered writer joined by bounded queues, so wall-clock time follows the
+    // slowest stage and memory stays flat however large the input is. Output and error
+    // behaviour are the same as run().
+    public int runPipelined(UserReader users, String outputFile, int workers)
+            throws ValidationException, IOException {
+        return new PipelinedRun(this, workers).run(users, outputFile);
+    }
+
+    // runPipelined into any sink, such as a binary store; the sink is not closed.
+    public int runPipelined(UserReader users, RecommendationSink out, int workers)
+            throws ValidationException, IOException {
+        return new PipelinedRun(this, workers).run(users, out, null, 0, 0);
+    }
+
+    // Writes a partitioned output in `directory` with one worker per shard, each generating
+    // and writing its own shard, and commits the manifest once every user is written. On a
+    // validation error the users before it are in the shards but no manifest is written.
+    public int runPartitioned(UserReader users, String directory, int shards, Partitioning partitioning)
+            throws ValidationException, IOException {
+        try (PartitionedOutput output = writer.openPartitioned(directory, shards, partitioning)) {
+            int count = new PartitionedRun(this, output).run(users);
+            output.commit();
+            return count;
+        }
+    }
+
+    // Crash-safe form of runPipelined for long batch runs. Output goes to outputFile + ".partial",
+    // and every CHECKPOINT_INTERVAL users the progress is forced to disk and recorded in
+    // outputFile + ".checkpoint". If a previous run over the same users file, catalog and
+    // limit died, this one truncates the partial file to the last checkpoint and continues
+    // from the recorded input offset. The finished file replaces outputFile with an atomic
+    // rename, so outputFile is never seen half-written. A validation error discards the
+    // partial output; any other failure leaves it for the next run to resume.
+    public int runCheckpointed(UserParser parser, String usersFile, String outputFile, int workers)
+            throws ValidationException, IOException {
+        return runCheckpointed(parser, usersFile, outputFile, workers, CHECKPOINT_INTERVAL);
+    }
+
+    int runCheckpointed(UserParser parser, String usersFile, String outputFile, int workers, int interval)
+            throws ValidationException, IOException {
+        Path partial = Paths.get(outputFile + ".partial");
+        Checkpoint checkpoint = new Checkpoint(outputFile + ".checkpoint", usersFile,
+                engine.getIndex().fingerprint(), limit);
+
+        boolean resume = checkpoint.load() && Files.isRegularFile(partial)
+                && Files.size(partial) >= checkpoint.outputOffset();
+        long inputOffset = resume ? checkpoint.inputOffset() : 0;
+        long outputOffset = resume ? checkpoint.outputOffset() : 0;
+        int usersDone = resume ? checkpoint.usersDone() : 0;
+
+        int count;
+        try (UserReader users = parser.openUsers(usersFile, inputOffset);
+             RecommendationStream out = RecommendationStream.resume(partial.toString(), outputOffset)) {
+            checkpoint.track(out);
+            count = new PipelinedRun(this, workers).run(users, out, checkpoint, interval, usersDone);
+            out.force();
+        } catch (ValidationException e) {
+            Files.deleteIfExists(partial);
+            checkpoint.delete();
+            throw e;
+        }
+
+        if (outputFile.endsWith(".gz")) {
+            // The partial file stays plain so it can be truncated on resume; it is
+            // compressed once, on publish.
+            Path compressed = Paths.get(outputFile + ".tmp");
+            try (OutputStream out = new ParallelGzipOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(compressed), 1 << 16), workers)) {
+                Files.copy(partial, out);
+            }
+            Files.move(compressed, Paths.get(outputFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(partial);
+        } else {
+            Files.move(partial, Paths.get(outputFile), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        checkpoint.delete();
+        return count;
+    }
+
+    // Like run, but starts from the output of the previous incremental run into the same
+    // file: only users whose line or relevant part of the catalog changed are generated, the
+    // others are copied from the old file (see IncrementalRun). Per-user hashes are kept in
+    // outputFile + ".state". The output must be uncompressed. On a validation error
+    // outputFile and its state are left as they were.
+    public IncrementalResult runIncremental(UserReader users, String outputFile)
+            throws ValidationException, IOException {
+        return new IncrementalRun(this, engine.getIndex(), limit).run(users, outputFile);
+    }
+
+    private List<UserRecommendation> recommendAll(ForkJoinPool pool, List<User> batch) throws IOException {
+        try {
+            return pool.submit(() -> batch.parallelStream()
+                    .map(this::recommend)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating recommendations", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    RecommendationStream open(String outputFile) throws IOException {
+        return writer.open(outputFile);
+    }
+
+    UserRecommendation recommend(User user) {
+        return limit == UNLIMITED
+                ? engine.generateRecommendations(user)
+                : engine.generateRecommendations(user, limit);
+    }
+}
\ No newline at end of file
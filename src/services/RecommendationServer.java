@@ -0,0 +1,232 @@
+package services;
+
+import models.User;
+import models.UserRecommendation;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+// Answers recommendation requests over HTTP from an engine that stays loaded between them.
+//
+//   GET /recommend?liked=TDK123,I456[&limit=N]  titles for those liked movie ids
+//   GET /recommend?user=123456789[&limit=N]     "name,id" line and titles, as in the output file
+//                                               (N up to MAX_LIMIT)
+//   GET /stats                                  request count and latency percentiles
+//
+// Titles are comma separated; with a limit they are best first (see
+// RecommendationEngine.generateRecommendations(User, int)). Each request runs on its own
+// virtual thread when the JDK has them, and on a fixed pool of platform threads otherwise.
+// The engine is looked up once per request, so it can be swapped (see CatalogReloader)
+// while requests are running. With a RecommendationCache, results are served from it and
+// /stats also reports its hits, misses and evictions.
+//
+// Small responses wait on Nagle's algorithm and delayed ACKs unless the NO_DELAY system
+// property is "true". The JDK reads it once, when the first HttpServer is created, so set it
+// at startup (as MovieRecommendationApp does, or with -D on the command line).
+public class RecommendationServer implements Closeable {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int MAX_LIMIT = 10000;
+
+    public static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+    private static final int BACKLOG = 1024;
+
+    private final Supplier<RecommendationEngine> engines;
+    private final Map<String, User> users;
+    private final RecommendationCache cache;
+    private final HttpServer server;
+    private final ExecutorService pool;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private RecommendationServer(Supplier<RecommendationEngine> engines, Map<String, User> users,
+                                 RecommendationCache cache, HttpServer server, ExecutorService pool) {
+        this.engines = engines;
+        this.users = users;
+        this.cache = cache;
+        this.server = server;
+        this.pool = pool;
+    }
+
+    public static RecommendationServer start(RecommendationEngine engine, Map<String, User> users, int port)
+            throws IOException {
+        return start(() -> engine, users, port);
+    }
+
+    public static RecommendationServer start(Supplier<RecommendationEngine> engines, Map<String, User> users,
+                                             int port) throws IOException {
+        return start(engines, users, port, null);
+    }
+
+    // users maps user id to user and is only read. Port 0 picks a free port. cache may be
+    // null.
+    public static RecommendationServer start(Supplier<RecommendationEngine> engines, Map<String, User> users,
+                                             int port, RecommendationCache cache) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        ThreadFactory threads = WorkerThreads.factory("http");
+        ExecutorService pool = WorkerThreads.isVirtual()
+                ? null
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, threads);
+        Executor executor = pool != null ? pool : task -> threads.newThread(task).start();
+        server.setExecutor(executor);
+
+        RecommendationServer recommendations = new RecommendationServer(engines, users, cache, server, pool);
+        server.createContext("/recommend", recommendations::recommend);
+        server.createContext("/stats", recommendations::stats);
+        server.start();
+        return recommendations;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return latency.count();
+    }
+
+    // Latency of /recommend requests, from the handler starting until the response is ready to send.
+    public long getLatencyPercentileNanos(double quantile) {
+        return latency.percentile(quantile);
+    }
+
+    public String summary() {
+        return latency.count() + " requests, p50 " + micros(latency.percentile(0.5))
+                + " us, p99 " + micros(latency.percentile(0.99))
+                + " us, p99.9 " + micros(latency.percentile(0.999))
+                + " us, max " + micros(latency.max()) + " us"
+                + (cache == null ? "" : "; cache: " + cache.summary());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // The request is counted before it is answered, so a client that has its answer also
+    // finds it in /stats.
+    private void recommend(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        Answer answer;
+        try {
+            answer = answer(exchange);
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+        respond(exchange, answer.status, answer.body);
+    }
+
+    private Answer answer(HttpExchange exchange) {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            return new Answer(405, "Only GET is supported");
+        }
+        if (!"/recommend".equals(exchange.getRequestURI().getPath())) {
+            return new Answer(404, "Not found");
+        }
+
+        Map<String, String> query;
+        int limit;
+        try {
+            // A malformed % escape fails to decode like a bad number fails to parse.
+            query = query(exchange.getRequestURI().getRawQuery());
+            limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : -1;
+        } catch (IllegalArgumentException e) {
+            query = null;
+            limit = -2;
+        }
+        if (limit < -1 || limit > MAX_LIMIT || query.containsKey("liked") == query.containsKey("user")) {
+            return new Answer(400, "Expected liked=<movie ids> or user=<user id>, and an optional limit of at most "
+                    + MAX_LIMIT);
+        }
+
+        if (query.containsKey("liked")) {
+            User user = new User("", "", Arrays.asList(query.get("liked").split(",")));
+            return new Answer(200, String.join(",", recommend(user, limit).getRecommendedMovieTitles()));
+        }
+
+        User user = users.get(query.get("user"));
+        if (user == null) {
+            return new Answer(404, "Unknown user " + query.get("user"));
+        }
+        UserRecommendation recommendation = recommend(user, limit);
+        return new Answer(200, recommendation.getUserName() + "," + recommendation.getUserId() + "\n"
+                + String.join(",", recommendation.getRecommendedMovieTitles()));
+    }
+
+    private UserRecommendation recommend(User user, int limit) {
+        RecommendationEngine engine = engines.get();
+        if (cache != null) {
+            return cache.recommend(engine, user, limit);
+        }
+        return limit < 0 ? engine.generateRecommendations(user) : engine.generateRecommendations(user, limit);
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        String body = "requests " + latency.count()
+                + "\np50_us " + micros(latency.percentile(0.5))
+                + "\np99_us " + micros(latency.percentile(0.99))
+                + "\np999_us " + micros(latency.percentile(0.999))
+                + "\nmax_us " + micros(latency.max()) + "\n";
+        if (cache != null) {
+            body += "cache_entries " + cache.size()
+                    + "\ncache_hits " + cache.getHits()
+                    + "\ncache_misses " + cache.getMisses()
+                    + "\ncache_evictions " + cache.getEvictions() + "\n";
+        }
+        respond(exchange, 200, body);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+
+    private static class Answer {
+        final int status;
+        final String body;
+
+        Answer(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
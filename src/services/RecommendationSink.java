@@ -0,0 +1,10 @@
+package services;
+
+import models.UserRecommendation;
+import java.io.Closeable;
+import java.io.IOException;
+
+// Destination that takes recommendations one at a time, in the order they are written.
+public interface RecommendationSink extends Closeable {
+    void write(UserRecommendation rec) throws IOException;
+}
@@ -0,0 +1,172 @@
+package services;
+
+import models.UserRecommendation;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read side of the binary recommendations store written by RecommendationStoreWriter.
+// Both files are memory-mapped; lookup() hashes the user id into the index, follows the
+// offset into the data file and decodes that one record, so a lookup touches a few pages
+// however large the store is. Safe for concurrent lookups.
+//
+// <base>.dat (big-endian):
+//   int magic, int version, long build id, long dictionary offset, long user count,
+//   records as (name, id, int title count, int title refs...),
+//   dictionary as (int title count, long offsets[count + 1] into the bytes, UTF-8 bytes).
+// <base>.idx:
+//   int magic, int version, long build id, long user count, int slot bits, int unused,
+//   (1 << slot bits) slots of (long packed user id, long record offset); a zero id is empty.
+// Strings are an int byte length followed by UTF-8 bytes. The build id ties the two files
+// of one store together.
+public class RecommendationStore implements Closeable {
+    static final int DATA_MAGIC = 0x4D524244;
+    static final int INDEX_MAGIC = 0x4D524249;
+    static final int VERSION = 1;
+    static final int DATA_HEADER = 32;
+    static final int INDEX_HEADER = 32;
+    static final int SLOT_SIZE = 16;
+
+    private final MappedFile data;
+    private final MappedFile index;
+    private final long users;
+    private final int slotBits;
+    private final long dictionary;
+    private final int titleCount;
+    private final String[] titles;
+
+    private RecommendationStore(MappedFile data, MappedFile index) throws IOException {
+        this.data = data;
+        this.index = index;
+
+        if (data.size() < DATA_HEADER || index.size() < INDEX_HEADER
+                || data.getInt(0) != DATA_MAGIC || data.getInt(4) != VERSION
+                || index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION) {
+            throw new IOException("Not a recommendations store");
+        }
+        if (data.getLong(8) != index.getLong(8)) {
+            throw new IOException("Data and index files belong to different stores");
+        }
+
+        this.dictionary = data.getLong(16);
+        this.users = data.getLong(24);
+        this.slotBits = index.getInt(24);
+        this.titleCount = data.getInt(dictionary);
+        this.titles = new String[titleCount];
+        if (index.getLong(16) != users || index.size() != INDEX_HEADER + ((long) SLOT_SIZE << slotBits)) {
+            throw new IOException("Index does not match the data file");
+        }
+    }
+
+    public static RecommendationStore open(String baseName) throws IOException {
+        MappedFile data = MappedFile.openReadOnly(Paths.get(baseName + ".dat"));
+        try {
+            MappedFile index = MappedFile.openReadOnly(Paths.get(baseName + ".idx"));
+            try {
+                return new RecommendationStore(data, index);
+            } catch (IOException | RuntimeException e) {
+                index.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return users;
+    }
+
+    // The user's recommendations, or null if the store has no such user.
+    public UserRecommendation lookup(String userId) {
+        long key = packUserId(userId);
+        if (key <= 0) {
+            return null;
+        }
+
+        long mask = (1L << slotBits) - 1;
+        for (long slot = slotOf(key, slotBits); ; slot = (slot + 1) & mask) {
+            long position = INDEX_HEADER + slot * SLOT_SIZE;
+            long stored = index.getLong(position);
+            if (stored == 0) {
+                return null;
+            }
+            if (stored == key) {
+                return readRecord(index.getLong(position + 8));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    private UserRecommendation readRecord(long position) {
+        String name = readString(position);
+        position += 4 + data.getInt(position);
+        String id = readString(position);
+        position += 4 + data.getInt(position);
+
+        int count = data.getInt(position);
+        position += 4;
+        List<String> recommended = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recommended.add(title(data.getInt(position + 4L * i)));
+        }
+        return new UserRecommendation(name, id, recommended);
+    }
+
+    private String title(int ref) {
+        String title = titles[ref];
+        if (title == null) {
+            long offsets = dictionary + 4;
+            long start = data.getLong(offsets + 8L * ref);
+            long end = data.getLong(offsets + 8L * (ref + 1));
+            byte[] bytes = new byte[(int) (end - start)];
+            data.get(offsets + 8L * (titleCount + 1) + start, bytes);
+            title = new String(bytes, StandardCharsets.UTF_8);
+            titles[ref] = title;
+        }
+        return title;
+    }
+
+    private String readString(long position) {
+        byte[] bytes = new byte[data.getInt(position)];
+        data.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Packs an id of up to nine ASCII characters into a positive long, seven bits per
+    // character. Returns -1 for ids that cannot be packed.
+    static long packUserId(String userId) {
+        if (userId.isEmpty() || userId.length() > 9) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < userId.length(); i++) {
+            char c = userId.charAt(i);
+            if (c == 0 || c >= 0x80) {
+                return -1;
+            }
+            key = (key << 7) | c;
+        }
+        return key;
+    }
+
+    static long slotOf(long key, int slotBits) {
+        long h = key;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h = h ^ (h >>> 31);
+        return h >>> (64 - slotBits);
+    }
+}
@@ -0,0 +1,259 @@
+package services;
+
+import models.UserRecommendation;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Writes the binary recommendations store read by RecommendationStore (see there for the
+// layout). Records are appended to the data file as they arrive, and each title is stored
+// once in a dictionary and referenced by int. The (user id, offset) pairs go to a side file
+// so memory stays flat; commit() sizes the hash index from the final user count and builds it
+// directly in a mapped file. Both files are written beside their targets and renamed into
+// place by commit(). Not thread-safe: one writer per store.
+public class RecommendationStoreWriter implements RecommendationSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final Path dataTemp;
+    private final Path indexTemp;
+    private final Path pairsFile;
+
+    private final FileChannel data;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long position = RecommendationStore.DATA_HEADER;
+    private long dictionaryOffset;
+    private final DataOutputStream pairs;
+    private long users;
+    private boolean committed;
+
+    private final Map<String, Integer> titleRefs = new HashMap<>();
+    private final List<byte[]> titleBytes = new ArrayList<>();
+    private MovieIndex refsIndex;
+    private int[] movieRefs;
+
+    RecommendationStoreWriter(String baseName) throws IOException {
+        dataFile = Paths.get(baseName + ".dat");
+        indexFile = Paths.get(baseName + ".idx");
+        dataTemp = Paths.get(baseName + ".dat.tmp");
+        indexTemp = Paths.get(baseName + ".idx.tmp");
+        pairsFile = Paths.get(baseName + ".idx.pairs");
+
+        data = FileChannel.open(dataTemp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        data.position(RecommendationStore.DATA_HEADER);
+        pairs = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pairsFile.toFile()), 1 << 16));
+    }
+
+    @Override
+    public void write(UserRecommendation rec) throws IOException {
+        long key = RecommendationStore.packUserId(rec.getUserId());
+        if (key <= 0) {
+            throw new IllegalArgumentException("User id cannot be indexed: " + rec.getUserId());
+        }
+        pairs.writeLong(key);
+        pairs.writeLong(position);
+        users++;
+
+        putString(rec.getUserName());
+        putString(rec.getUserId());
+
+        List<String> titles = rec.getRecommendedMovieTitles();
+        putInt(titles.size());
+        if (titles instanceof TitleList) {
+            TitleList titleList = (TitleList) titles;
+            for (int i = 0; i < titleList.size(); i++) {
+                putInt(movieRef(titleList.index(), titleList.movieAt(i)));
+            }
+        } else {
+            for (String title : titles) {
+                putInt(titleRef(title));
+            }
+        }
+    }
+
+    // Finishes the store and renames both files into place.
+    public void commit() throws IOException {
+        long buildId = ThreadLocalRandom.current().nextLong();
+        pairs.close();
+        writeDictionary();
+        flush();
+
+        ByteBuffer header = ByteBuffer.allocate(RecommendationStore.DATA_HEADER);
+        header.putInt(RecommendationStore.DATA_MAGIC).putInt(RecommendationStore.VERSION)
+                .putLong(buildId).putLong(dictionaryOffset).putLong(users).flip();
+        while (header.hasRemaining()) {
+            data.write(header, header.position());
+        }
+        data.force(false);
+        data.close();
+
+        writeIndex(buildId);
+        Files.delete(pairsFile);
+
+        Files.move(dataTemp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(indexTemp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    // Without a successful commit() the partial files are removed.
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            pairs.close();
+            data.close();
+        } finally {
+            Files.deleteIfExists(dataTemp);
+            Files.deleteIfExists(indexTemp);
+            Files.deleteIfExists(pairsFile);
+        }
+    }
+
+    private void writeDictionary() throws IOException {
+        dictionaryOffset = position;
+        putInt(titleBytes.size());
+        long offset = 0;
+        putLong(offset);
+        for (byte[] bytes : titleBytes) {
+            offset += bytes.length;
+            putLong(offset);
+        }
+        for (byte[] bytes : titleBytes) {
+            put(bytes);
+        }
+    }
+
+    private void writeIndex(long buildId) throws IOException {
+        int slotBits = 4;
+        while ((1L << slotBits) < 2 * users) {
+            slotBits++;
+        }
+        long mask = (1L << slotBits) - 1;
+        long size = RecommendationStore.INDEX_HEADER + ((long) RecommendationStore.SLOT_SIZE << slotBits);
+
+        try (MappedFile index = MappedFile.create(indexTemp, size, MappedFile.SEGMENT_BITS);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(pairsFile.toFile()), 1 << 16))) {
+            for (long u = 0; u < users; u++) {
+                long key = in.readLong();
+                long offset = in.readLong();
+
+                long slot = RecommendationStore.slotOf(key, slotBits);
+                while (true) {
+                    long at = RecommendationStore.INDEX_HEADER + slot * RecommendationStore.SLOT_SIZE;
+                    long stored = index.getLong(at);
+                    if (stored == 0) {
+                        index.putLong(at, key);
+                        index.putLong(at + 8, offset);
+                        break;
+                    }
+                    if (stored == key) {
+                        throw new IllegalArgumentException("Duplicate user id in store: " + unpack(key));
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+
+            index.putInt(0, RecommendationStore.INDEX_MAGIC);
+            index.putInt(4, RecommendationStore.VERSION);
+            index.putLong(8, buildId);
+            index.putLong(16, users);
+            index.putInt(24, slotBits);
+            index.force();
+        }
+    }
+
+    private int movieRef(MovieIndex index, int movie) {
+        if (index != refsIndex) {
+            refsIndex = index;
+            movieRefs = new int[index.size()];
+        }
+        int ref = movieRefs[movie] - 1;
+        if (ref < 0) {
+            ref = titleRef(index.title(movie));
+            movieRefs[movie] = ref + 1;
+        }
+        return ref;
+    }
+
+    private int titleRef(String title) {
+        Integer ref = titleRefs.get(title);
+        if (ref == null) {
+            ref = titleBytes.size();
+            titleRefs.put(title, ref);
+            titleBytes.add(title.getBytes(StandardCharsets.UTF_8));
+        }
+        return ref;
+    }
+
+    private void putString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        put(bytes);
+    }
+
+    private void putInt(int value) throws IOException {
+        if (buffer.remaining() < 4) {
+            flush();
+        }
+        buffer.putInt(value);
+        position += 4;
+    }
+
+    private void putLong(long value) throws IOException {
+        if (buffer.remaining() < 8) {
+            flush();
+        }
+        buffer.putLong(value);
+        position += 8;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        int written = 0;
+        while (written < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(bytes.length - written, buffer.remaining());
+            buffer.put(bytes, written, length);
+            written += length;
+        }
+        position += bytes.length;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            data.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static String unpack(long key) {
+        StringBuilder id = new StringBuilder();
+        for (; key != 0; key >>>= 7) {
+            id.insert(0, (char) (key & 0x7F));
+        }
+        return id.toString();
+    }
+}
@@ -0,0 +1,227 @@
+package services;
+
+import models.UserRecommendation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Writes recommendations one at a time in the recommendations.txt format, UTF-8 encoded,
+// to a FileChannel or, for compressed output, to an OutputStream. Records are assembled in
+// a byte array and handed to the channel through a direct buffer of the same size, one bulk
+// copy per buffer. Catalog titles are encoded
+// once per stream and then copied as bytes; ASCII names and ids are copied char by char
+// without building intermediate strings. Not thread-safe: one stream has one writer.
+public class RecommendationStream implements RecommendationSink {
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final FileChannel channel;
+    private final OutputStream stream;
+    private final ByteBuffer direct;
+    private final byte[] bytes;
+    private int count;
+    private long flushed;
+    private final CRC32 crc = new CRC32();
+
+    private MovieIndex titlesIndex;
+    private byte[][] titleBytes;
+
+    public RecommendationStream(String filename) throws IOException {
+        this(filename, BUFFER_SIZE);
+    }
+
+    RecommendationStream(String filename, int bufferSize) throws IOException {
+        this(FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), bufferSize);
+    }
+
+    private RecommendationStream(FileChannel channel, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.stream = null;
+        this.direct = ByteBuffer.allocateDirect(bufferSize);
+        this.bytes = new byte[bufferSize];
+        this.flushed = channel.position();
+    }
+
+    // Writes into `stream`, which the stream closes when it is closed.
+    RecommendationStream(OutputStream stream) {
+        this.channel = null;
+        this.stream = stream;
+        this.direct = null;
+        this.bytes = new byte[BUFFER_SIZE];
+    }
+
+    // Continues an existing file: everything after `offset` is discarded and writing
+    // resumes there.
+    static RecommendationStream resume(String filename, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(offset);
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new RecommendationStream(channel, BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(UserRecommendation rec) throws IOException {
+        putString(rec.getUserName());
+        putByte((byte) ',');
+        putString(rec.getUserId());
+        put(LINE_SEPARATOR);
+
+        List<String> titles = rec.getRecommendedMovieTitles();
+        if (titles instanceof TitleList) {
+            TitleList titleList = (TitleList) titles;
+            for (int i = 0; i < titleList.size(); i++) {
+                if (i > 0) {
+                    putByte((byte) ',');
+                }
+                put(titleBytes(titleList.index(), titleList.movieAt(i)));
+            }
+        } else {
+            for (int i = 0; i < titles.size(); i++) {
+                if (i > 0) {
+                    putByte((byte) ',');
+                }
+                putString(titles.get(i));
+            }
+        }
+        put(LINE_SEPARATOR);
+    }
+
+    // Position in the output of the next byte to be written (before any compression).
+    public long position() {
+        return flushed + count;
+    }
+
+    public void flush() throws IOException {
+        crc.update(bytes, 0, count);
+        if (stream != null) {
+            stream.write(bytes, 0, count);
+        } else {
+            direct.clear();
+            direct.put(bytes, 0, count).flip();
+            while (direct.hasRemaining()) {
+                channel.write(direct);
+            }
+        }
+        flushed += count;
+        count = 0;
+    }
+
+    // Appends `length` bytes of `source` starting at `offset`, moved by the file system
+    // without passing through this stream's buffer. Only for channel-backed streams; the
+    // copied bytes are not part of checksum().
+    void copy(FileChannel source, long offset, long length) throws IOException {
+        flush();
+        long done = 0;
+        while (done < length) {
+            long copied = source.transferTo(offset + done, length - done, channel);
+            if (copied <= 0) {
+                throw new IOException("Unexpected end of output while copying at offset " + (offset + done));
+            }
+            done += copied;
+        }
+        flushed += length;
+    }
+
+    // CRC32 of the bytes flushed by this stream so far.
+    long checksum() {
+        return crc.getValue();
+    }
+
+    // Flushes and waits until everything written so far is on the storage device.
+    public void force() throws IOException {
+        flush();
+        if (stream != null) {
+            stream.flush();
+        } else {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (stream != null) {
+                stream.close();
+            } else {
+                channel.close();
+            }
+        }
+    }
+
+    private byte[] titleBytes(MovieIndex index, int movie) {
+        if (index != titlesIndex) {
+            titlesIndex = index;
+            titleBytes = new byte[index.size()][];
+        }
+        byte[] encoded = titleBytes[movie];
+        if (encoded == null) {
+            encoded = index.title(movie).getBytes(StandardCharsets.UTF_8);
+            titleBytes[movie] = encoded;
+        }
+        return encoded;
+    }
+
+    private void putString(String value) throws IOException {
+        int length = value.length();
+        if (bytes.length - count < length) {
+            flush();
+        }
+        if (bytes.length - count >= length) {
+            int start = count;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    count = start;
+                    put(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                bytes[count++] = (byte) c;
+            }
+        } else {
+            put(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void putByte(byte value) throws IOException {
+        if (count == bytes.length) {
+            flush();
+        }
+        bytes[count++] = value;
+    }
+
+    private void put(byte[] value) throws IOException {
+        if (bytes.length - count < value.length) {
+            flush();
+            if (value.length > bytes.length) {
+                crc.update(value, 0, value.length);
+                flushed += value.length;
+                if (stream != null) {
+                    stream.write(value);
+                    return;
+                }
+                ByteBuffer large = ByteBuffer.wrap(value);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                return;
+            }
+        }
+        System.arraycopy(value, 0, bytes, count, value.length);
+        count += value.length;
+    }
+}
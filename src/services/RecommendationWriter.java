@@ -1,31 +1,135 @@
 package services;
 
+import models.CatalogChange;
 import models.UserRecommendation;
+import validators.ValidationReport;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 public class RecommendationWriter {
 
     public void writeRecommendations(String filename, List<UserRecommendation> recommendations)
             throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
+        try (RecommendationStream stream = open(filename)) {
+            for (UserRecommendation rec : recommendations) {
+                stream.write(rec);
+            }
+        }
+    }
+
+    // Opens a stream that takes recommendations one at a time, for outputs too large to
+    // collect into a list first. A filename ending in ".gz" is written gzip-compressed,
+    // with blocks compressed on all cores.
+    public RecommendationStream open(String filename) throws IOException {
+        if (filename.endsWith(".gz")) {
+            OutputStream file = new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+            return new RecommendationStream(
+                    new ParallelGzipOutputStream(file, Runtime.getRuntime().availableProcessors()));
+        }
+        return new RecommendationStream(filename);
+    }
 
-        for (UserRecommendation rec : recommendations) {
-            writer.write(rec.getUserName() + "," + rec.getUserId());
-            writer.newLine();
+    // Opens `shards` shard files in `directory`; see PartitionedOutput.
+    public PartitionedOutput openPartitioned(String directory, int shards, Partitioning partitioning)
+            throws IOException {
+        return new PartitionedOutput(directory, shards, partitioning);
+    }
+
+    // Writes the shards of a committed partitioned output as one file in the usual format
+    // and returns the number of users in it.
+    public int mergePartitions(String directory, String filename) throws IOException {
+        return new PartitionMerger().merge(directory, filename);
+    }
+
+    // Opens a binary store at baseName + ".dat" / ".idx" that RecommendationStore can look
+    // users up in without scanning.
+    public RecommendationStoreWriter openStore(String baseName) throws IOException {
+        return new RecommendationStoreWriter(baseName);
+    }
 
-            writer.write(String.join(",", rec.getRecommendedMovieTitles()));
-            writer.newLine();
+    public void writeStore(String baseName, List<UserRecommendation> recommendations) throws IOException {
+        try (RecommendationStoreWriter store = openStore(baseName)) {
+            for (UserRecommendation rec : recommendations) {
+                store.write(rec);
+            }
+            store.commit();
         }
+    }
 
-        writer.close();
+    public void writeRecommendation(BufferedWriter writer, UserRecommendation rec) throws IOException {
+        writer.write(rec.getUserName() + "," + rec.getUserId());
+        writer.newLine();
+
+        writer.write(String.join(",", rec.getRecommendedMovieTitles()));
+        writer.newLine();
     }
 
+    // Replaces the output with the error, as the fail-first contract requires: a run whose
+    // input does not validate leaves only the error in recommendations.txt, even over the
+    // output of an earlier good run. Written beside the target and renamed over it, so a
+    // crash never leaves a truncated file.
     public void writeError(String filename, String errorMessage) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
+        Path temp = Paths.get(filename + ".tmp");
+        BufferedWriter writer = new BufferedWriter(new FileWriter(temp.toFile()));
         writer.write(errorMessage);
         writer.close();
+        Files.move(temp, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Appends the changes to a catalog change log (see ChangeLogParser for the format) in
+    // one write, so a reader following the log never sees part of an entry from this batch.
+    public void appendChanges(String filename, List<CatalogChange> changes) throws IOException {
+        StringBuilder entries = new StringBuilder();
+        for (CatalogChange change : changes) {
+            entries.append(change.getKind()).append(' ');
+            if (change.getKind() == CatalogChange.Kind.ADD) {
+                entries.append(change.getTitle()).append(',');
+            }
+            entries.append(change.getMovieId()).append('\n');
+            if (change.getKind() != CatalogChange.Kind.REMOVE) {
+                entries.append(String.join(",", change.getGenres())).append('\n');
+            }
+        }
+        try (FileChannel log = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(entries.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                log.write(bytes);
+            }
+            log.force(false);
+        }
+    }
+
+    // One section per input: a summary line, then one line per error in line order.
+    public void writeReport(String filename, ValidationReport... reports) throws IOException {
+        Path temp = Paths.get(filename + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp.toFile()))) {
+            for (ValidationReport report : reports) {
+                writer.write(report.getFile() + ": " + report.getErrorCount() + " errors");
+                writer.newLine();
+                for (ValidationReport.Entry entry : report.getEntries()) {
+                    writer.write(entry.toString());
+                    writer.newLine();
+                }
+                if (report.isTruncated()) {
+                    writer.write("... " + (report.getErrorCount() - report.getEntries().size()) + " more");
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temp, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
-}
\ No newline at end of file
+}
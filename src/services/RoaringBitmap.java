@@ -0,0 +1,318 @@
+package services;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed set of non-negative ints in the style of Roaring bitmaps: values are grouped
+// by their high 16 bits, and each group is stored either as a sorted array of low 16 bits
+// (sparse, up to ARRAY_LIMIT values) or as a 65536-bit bitmap (dense).
+//
+// copy() shares the containers with the original, and the copy clones a container the
+// first time it writes to it, so changing a few values of a large bitmap costs a few
+// containers. The original must not be written to after it has been copied.
+class RoaringBitmap {
+    static final int ARRAY_LIMIT = 4096;
+    static final int BITMAP_WORDS = 1024;
+
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+
+    private char[] keys;
+    private Container[] containers;
+    private boolean[] shared;  // null when no container is shared
+    private int size;
+
+    RoaringBitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    RoaringBitmap copy() {
+        RoaringBitmap copy = new RoaringBitmap();
+        copy.keys = keys.clone();
+        copy.containers = containers.clone();
+        copy.shared = new boolean[keys.length];
+        Arrays.fill(copy.shared, 0, size, true);
+        copy.size = size;
+        return copy;
+    }
+
+    void add(int value) {
+        char key = (char) (value >>> 16);
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+                if (shared != null) {
+                    shared = Arrays.copyOf(shared, size * 2);
+                }
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(containers, i, containers, i + 1, size - i);
+            if (shared != null) {
+                System.arraycopy(shared, i, shared, i + 1, size - i);
+                shared[i] = false;
+            }
+            keys[i] = key;
+            containers[i] = new ArrayContainer();
+            size++;
+        }
+        containers[i] = writable(i).add((char) value);
+    }
+
+    void remove(int value) {
+        int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        if (i < 0 || !containers[i].contains((char) value)) {
+            return;
+        }
+        Container container = writable(i).remove((char) value);
+        if (container.cardinality > 0) {
+            containers[i] = container;
+            return;
+        }
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        if (shared != null) {
+            System.arraycopy(shared, i + 1, shared, i, size - i - 1);
+        }
+        size--;
+        containers[size] = null;
+    }
+
+    boolean contains(int value) {
+        int i = Arrays.binarySearch(keys, 0, size, (char) (value >>> 16));
+        return i >= 0 && containers[i].contains((char) value);
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    void orInto(CandidateSet target) {
+        for (int i = 0; i < size; i++) {
+            target.touch(keys[i]);
+            containers[i].orInto(target.words, keys[i] * BITMAP_WORDS);
+        }
+    }
+
+    private Container writable(int i) {
+        if (shared != null && shared[i]) {
+            containers[i] = containers[i].copy();
+            shared[i] = false;
+        }
+        return containers[i];
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            containers[i].write(out);
+        }
+    }
+
+    static RoaringBitmap read(ByteBuffer buffer) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.size = buffer.getInt();
+        bitmap.keys = new char[Math.max(4, bitmap.size)];
+        bitmap.containers = new Container[bitmap.keys.length];
+        for (int i = 0; i < bitmap.size; i++) {
+            bitmap.keys[i] = buffer.getChar();
+            bitmap.containers[i] = buffer.get() == ARRAY ? ArrayContainer.read(buffer) : BitmapContainer.read(buffer);
+        }
+        return bitmap;
+    }
+
+    private abstract static class Container {
+        int cardinality;
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract Container copy();
+
+        abstract boolean contains(char value);
+
+        abstract void forEach(int high, IntConsumer action);
+
+        abstract void orInto(long[] words, int base);
+
+        abstract void write(DataOutputStream out) throws IOException;
+    }
+
+    private static class ArrayContainer extends Container {
+        char[] values = new char[4];
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                return toBitmap().add(value);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = values.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        void orInto(long[] words, int base) {
+            for (int i = 0; i < cardinality; i++) {
+                words[base + (values[i] >>> 6)] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(ARRAY);
+            out.writeInt(cardinality);
+            for (int i = 0; i < cardinality; i++) {
+                out.writeChar(values[i]);
+            }
+        }
+
+        static ArrayContainer read(ByteBuffer buffer) {
+            ArrayContainer container = new ArrayContainer();
+            container.cardinality = buffer.getInt();
+            container.values = new char[Math.max(4, container.cardinality)];
+            for (int i = 0; i < container.cardinality; i++) {
+                container.values[i] = buffer.getChar();
+            }
+            return container;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            orInto(bitmap.words, 0);
+            bitmap.cardinality = cardinality;
+            return bitmap;
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+        long[] words = new long[BITMAP_WORDS];
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        // Stays a bitmap when it becomes sparse again; only an empty container goes away.
+        @Override
+        Container remove(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) != 0) {
+                words[value >>> 6] &= ~bit;
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            copy.words = words.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        void orInto(long[] target, int base) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                target[base + w] |= words[w];
+            }
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(BITMAP);
+            out.writeInt(cardinality);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+
+        static BitmapContainer read(ByteBuffer buffer) {
+            BitmapContainer container = new BitmapContainer();
+            container.cardinality = buffer.getInt();
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                container.words[w] = buffer.getLong();
+            }
+            return container;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package services;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+// Read-only list of recommended titles backed by the dense movie ids the engine produced,
+// in the order it produced them. Titles are looked up in the index on access, so building
+// a recommendation costs one int[] instead of a list of references, and writers can get
+// at the ids directly.
+class TitleList extends AbstractList<String> implements RandomAccess {
+    private final MovieIndex index;
+    private final int[] movies;
+
+    TitleList(MovieIndex index, int[] movies) {
+        this.index = index;
+        this.movies = movies;
+    }
+
+    @Override
+    public String get(int i) {
+        return index.title(movies[i]);
+    }
+
+    @Override
+    public int size() {
+        return movies.length;
+    }
+
+    int movieAt(int i) {
+        return movies[i];
+    }
+
+    MovieIndex index() {
+        return index;
+    }
+}
@@ -0,0 +1,76 @@
+package services;
+
+import java.util.Arrays;
+
+// Keeps the k largest long keys seen so far in a bounded min-heap. The heap grows as keys
+// arrive, so memory follows the number of keys offered rather than k.
+class TopK {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private long[] heap;
+    private int size;
+
+    TopK(int k) {
+        this.k = k;
+        this.heap = new long[Math.min(k, INITIAL_CAPACITY)];
+    }
+
+    void offer(long key) {
+        if (k == 0) {
+            return;
+        }
+        if (size < k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, (int) Math.min(k, heap.length * 2L));
+            }
+            heap[size] = key;
+            siftUp(size++);
+        } else if (key > heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    // Returns the kept keys, largest first.
+    long[] sortedDescending() {
+        long[] keys = Arrays.copyOf(heap, size);
+        Arrays.sort(keys);
+        for (int i = 0, j = keys.length - 1; i < j; i++, j--) {
+            long tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+        return keys;
+    }
+
+    private void siftUp(int i) {
+        long key = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    private void siftDown(int i) {
+        long key = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = key;
+    }
+}
@@ -0,0 +1,39 @@
+package services;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Creates the threads for blocking workers. On a JDK with virtual threads they are
+// virtual, so parking on a queue or socket costs no carrier thread; the project still
+// compiles for Java 11, so the builder is looked up reflectively and older JDKs fall
+// back to daemon platform threads.
+class WorkerThreads {
+    private static final ThreadFactory VIRTUAL = virtualThreadFactory();
+
+    static boolean isVirtual() {
+        return VIRTUAL != null;
+    }
+
+    static ThreadFactory factory(String name) {
+        if (VIRTUAL != null) {
+            return VIRTUAL;
+        }
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
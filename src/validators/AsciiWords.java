@@ -0,0 +1,69 @@
+package validators;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Classifies eight ASCII bytes at a time packed into a long (SIMD within a register).
+// Words are read big-endian, so the first byte is the most significant one. Every
+// classifier returns the high bit (0x80) of each byte that is in the class. The
+// arithmetic never carries from one byte into the next as long as every byte is
+// below 0x80, so check nonAscii first.
+final class AsciiWords {
+    static final int BYTES = 8;
+
+    static final long HIGH = 0x8080808080808080L;
+    static final long FIRST_BYTE = 0x8000000000000000L;
+    static final long LAST_BYTE = 0x80L;
+
+    private static final long ONES = 0x0101010101010101L;
+
+    private AsciiWords() {
+    }
+
+    static long read(ByteBuffer buffer, int index) {
+        long word = buffer.getLong(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? word : Long.reverseBytes(word);
+    }
+
+    static long nonAscii(long word) {
+        return word & HIGH;
+    }
+
+    // Bytes b with low <= b <= high.
+    static long inRange(long word, int low, int high) {
+        long atLeastLow = word + ONES * (0x80 - low);
+        long aboveHigh = word + ONES * (0x7F - high);
+        return atLeastLow & ~aboveHigh & HIGH;
+    }
+
+    static long digits(long word) {
+        return inRange(word, '0', '9');
+    }
+
+    static long upperCase(long word) {
+        return inRange(word, 'A', 'Z');
+    }
+
+    // Setting bit 0x20 folds upper case onto lower case and maps no other byte into a-z.
+    static long letters(long word) {
+        return inRange(word | ONES * 0x20, 'a', 'z');
+    }
+
+    static long spaces(long word) {
+        return inRange(word, ' ', ' ');
+    }
+
+    // The regex \s class: space, tab, line feed, vertical tab, form feed and carriage return.
+    static long whitespace(long word) {
+        return inRange(word, '\t', '\r') | spaces(word);
+    }
+
+    // Index (0 = first byte) of the first byte flagged in a classifier mask.
+    static int firstByte(long mask) {
+        return Long.numberOfLeadingZeros(mask) >>> 3;
+    }
+
+    static byte byteAt(long word, int index) {
+        return (byte) (word >>> (56 - index * 8));
+    }
+}
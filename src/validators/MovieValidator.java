@@ -1,51 +1,312 @@
 package validators;
 
+import models.CatalogChange;
+import exceptions.ErrorCode;
 import exceptions.MovieTitleException;
 import exceptions.MovieIdLettersException;
 import exceptions.MovieIdNumbersException;
+import exceptions.ValidationException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
 import java.util.HashSet;
 
 public class MovieValidator {
+    // States of the title scan: no character yet, inside a word, after whitespace.
+    private static final int TITLE_START = 0;
+    private static final int TITLE_WORD = 1;
+    private static final int TITLE_GAP = 2;
 
     public void validateTitle(String title) throws MovieTitleException {
-        if (title == null || title.trim().isEmpty()) {
+        if (titleError(title) != null) {
             throw new MovieTitleException(title);
         }
+    }
+
+    public void validateMovieId(String title, String movieId)
+            throws MovieIdLettersException, MovieIdNumbersException {
+        ErrorCode error = movieIdError(title, movieId);
+        if (error == ErrorCode.MOVIE_ID_LETTERS) {
+            throw new MovieIdLettersException(movieId);
+        }
+        if (error != null) {
+            throw new MovieIdNumbersException(movieId);
+        }
+    }
+
+    // Same checks as validateTitle and validateMovieId, returning the error code (or null
+    // when valid) instead of throwing. Valid input is checked without allocating.
+    public ErrorCode checkTitle(CharSequence title) {
+        return isValidTitle(title) ? null : titleError(title == null ? null : title.toString());
+    }
+
+    public ErrorCode checkMovieId(CharSequence title, CharSequence movieId) {
+        return isValidMovieId(title, movieId) ? null : movieIdError(title.toString(), movieId.toString());
+    }
+
+    public void validateTitle(CharSequence title) throws MovieTitleException {
+        if (!isValidTitle(title)) {
+            throw new MovieTitleException(title == null ? null : title.toString());
+        }
+    }
+
+    public void validateMovieId(CharSequence title, CharSequence movieId)
+            throws MovieIdLettersException, MovieIdNumbersException {
+        if (!isValidMovieId(title, movieId)) {
+            validateMovieId(title.toString(), movieId.toString());
+        }
+    }
+
+    // Checks the title and the id in one pass and allocates nothing when both are valid.
+    // On failure the String methods are run so the exception and its message are the same
+    // as calling validateTitle and then validateMovieId.
+    public void validateMovie(CharSequence title, CharSequence movieId)
+            throws MovieTitleException, MovieIdLettersException, MovieIdNumbersException {
+        if (!isValidMovie(title, movieId)) {
+            String titleText = title == null ? null : title.toString();
+            validateTitle(titleText);
+            validateMovieId(titleText, movieId.toString());
+        }
+    }
+
+    // Same as validateMovie(CharSequence, CharSequence) for UTF-8 bytes in
+    // [titleStart, titleEnd) and [idStart, idEnd). Only ASCII is checked in place; any other
+    // byte sends the record through the decoded String path.
+    public void validateMovie(ByteBuffer buffer, int titleStart, int titleEnd, int idStart, int idEnd)
+            throws MovieTitleException, MovieIdLettersException, MovieIdNumbersException {
+        if (!isValidMovie(buffer, titleStart, titleEnd, idStart, idEnd)) {
+            String title = decode(buffer, titleStart, titleEnd);
+            validateTitle(title);
+            validateMovieId(title, decode(buffer, idStart, idEnd));
+        }
+    }
+
+    // An added movie must be valid like a catalog record, and a movie's genres must not be
+    // missing. Whether the movie is in the catalog is checked when the change is applied.
+    public void validateChange(CatalogChange change) throws ValidationException {
+        if (change.getKind() == null || change.getMovieId() == null || change.getMovieId().isEmpty()) {
+            throw new ValidationException(ErrorCode.CHANGE_FORMAT);
+        }
+        if (change.getKind() == CatalogChange.Kind.ADD) {
+            validateMovie(change.getTitle(), change.getMovieId());
+        }
+        if (change.getKind() != CatalogChange.Kind.REMOVE
+                && (change.getGenres() == null || change.getGenres().isEmpty())) {
+            throw new ValidationException(ErrorCode.MISSING_GENRES);
+        }
+    }
+
+    private boolean isValidMovie(CharSequence title, CharSequence movieId) {
+        if (title == null || movieId == null) {
+            return false;
+        }
+
+        int state = TITLE_START;
+        int letters = 0;
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (isWhitespace(c)) {
+                if (state == TITLE_START) {
+                    return false;
+                }
+                state = TITLE_GAP;
+                continue;
+            }
+
+            boolean upper = Character.isUpperCase(c);
+            if (state != TITLE_WORD && !upper) {
+                return false;
+            }
+            if (upper) {
+                if (letters >= movieId.length() || movieId.charAt(letters) != c) {
+                    return false;
+                }
+                letters++;
+            }
+            state = TITLE_WORD;
+        }
+
+        return state != TITLE_START && movieId.length() - letters == 3
+                && uniqueDigits(movieId.charAt(letters), movieId.charAt(letters + 1), movieId.charAt(letters + 2));
+    }
+
+    private boolean isValidMovie(ByteBuffer buffer, int titleStart, int titleEnd, int idStart, int idEnd) {
+        int state = TITLE_START;
+        int id = idStart;
+        int i = titleStart;
+
+        // Eight bytes at a time: a word starts at every non-whitespace byte that follows
+        // whitespace (or the start of the title), and every word start must be a capital.
+        for (; i + AsciiWords.BYTES <= titleEnd; i += AsciiWords.BYTES) {
+            long word = AsciiWords.read(buffer, i);
+            if (AsciiWords.nonAscii(word) != 0) {
+                return false;
+            }
+
+            long whitespace = AsciiWords.whitespace(word);
+            long upperCase = AsciiWords.upperCase(word);
+            if (state == TITLE_START && (whitespace & AsciiWords.FIRST_BYTE) != 0) {
+                return false;
+            }
+
+            long afterGap = (whitespace >>> 8) | (state == TITLE_WORD ? 0 : AsciiWords.FIRST_BYTE);
+            if ((afterGap & ~whitespace & ~upperCase & AsciiWords.HIGH) != 0) {
+                return false;
+            }
+
+            for (long capitals = upperCase; capitals != 0; capitals ^= Long.highestOneBit(capitals)) {
+                byte capital = AsciiWords.byteAt(word, AsciiWords.firstByte(capitals));
+                if (id >= idEnd || buffer.get(id) != capital) {
+                    return false;
+                }
+                id++;
+            }
+
+            state = (whitespace & AsciiWords.LAST_BYTE) != 0 ? TITLE_GAP : TITLE_WORD;
+        }
+
+        for (; i < titleEnd; i++) {
+            byte b = buffer.get(i);
+            if (b < 0) {
+                return false;
+            }
+            if (isWhitespace((char) b)) {
+                if (state == TITLE_START) {
+                    return false;
+                }
+                state = TITLE_GAP;
+                continue;
+            }
+
+            boolean upper = b >= 'A' && b <= 'Z';
+            if (state != TITLE_WORD && !upper) {
+                return false;
+            }
+            if (upper) {
+                if (id >= idEnd || buffer.get(id) != b) {
+                    return false;
+                }
+                id++;
+            }
+            state = TITLE_WORD;
+        }
+
+        return state != TITLE_START && idEnd - id == 3
+                && uniqueDigits((char) buffer.get(id), (char) buffer.get(id + 1), (char) buffer.get(id + 2));
+    }
+
+    // Three ASCII digits, no two alike, tracked as bits of a mask. Other digit characters
+    // are left to the String path.
+    private static boolean uniqueDigits(char first, char second, char third) {
+        int seen = digitBit(first);
+        int bit = digitBit(second);
+        if (seen == 0 || bit == 0 || (seen & bit) != 0) {
+            return false;
+        }
+        seen |= bit;
+        bit = digitBit(third);
+        return bit != 0 && (seen & bit) == 0;
+    }
+
+    private static int digitBit(char c) {
+        return c >= '0' && c <= '9' ? 1 << (c - '0') : 0;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isValidTitle(CharSequence title) {
+        if (title == null || title.length() == 0 || isWhitespace(title.charAt(0))) {
+            return false;
+        }
+
+        boolean wordStart = true;
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (isWhitespace(c)) {
+                wordStart = true;
+            } else {
+                if (wordStart && !Character.isUpperCase(c)) {
+                    return false;
+                }
+                wordStart = false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isValidMovieId(CharSequence title, CharSequence movieId) {
+        if (title == null || movieId == null) {
+            return false;
+        }
+
+        int letters = 0;
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (letters >= movieId.length() || movieId.charAt(letters) != c) {
+                    return false;
+                }
+                letters++;
+            }
+        }
+
+        if (movieId.length() - letters != 3) {
+            return false;
+        }
+
+        return uniqueDigits(movieId.charAt(letters), movieId.charAt(letters + 1), movieId.charAt(letters + 2));
+    }
+
+    // Same character class as the regex \s used by validateTitle(String).
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private ErrorCode titleError(String title) {
+        if (title == null || title.trim().isEmpty()) {
+            return ErrorCode.MOVIE_TITLE;
+        }
 
         String[] words = title.split("\\s+");
         for (String word : words) {
             if (word.isEmpty() || !Character.isUpperCase(word.charAt(0))) {
-                throw new MovieTitleException(title);
+                return ErrorCode.MOVIE_TITLE;
             }
         }
+        return null;
     }
 
-    public void validateMovieId(String title, String movieId)
-            throws MovieIdLettersException, MovieIdNumbersException {
-
+    private ErrorCode movieIdError(String title, String movieId) {
         String expectedLetters = extractCapitalLetters(title);
+        if (!movieId.startsWith(expectedLetters)) {
+            return ErrorCode.MOVIE_ID_LETTERS;
+        }
 
         String numbersPart = movieId.substring(expectedLetters.length());
-
-        if (!movieId.startsWith(expectedLetters) ||
-                (!numbersPart.isEmpty() && Character.isLetter(numbersPart.charAt(0)))) {
-            throw new MovieIdLettersException(movieId);
+        if (!numbersPart.isEmpty() && Character.isLetter(numbersPart.charAt(0))) {
+            return ErrorCode.MOVIE_ID_LETTERS;
         }
 
         if (numbersPart.length() != 3) {
-            throw new MovieIdNumbersException(movieId);
+            return ErrorCode.MOVIE_ID_NUMBERS;
         }
 
         for (char c : numbersPart.toCharArray()) {
             if (!Character.isDigit(c)) {
-                throw new MovieIdNumbersException(movieId);
+                return ErrorCode.MOVIE_ID_NUMBERS;
             }
         }
 
         if (!areDigitsUnique(numbersPart)) {
-            throw new MovieIdNumbersException(movieId);
+            return ErrorCode.MOVIE_ID_NUMBERS;
         }
+        return null;
     }
 
     private String extractCapitalLetters(String title) {
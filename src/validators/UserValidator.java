@@ -1,30 +1,96 @@
 package validators;
 
+import exceptions.ErrorCode;
 import exceptions.UserNameException;
 import exceptions.UserIdException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 public class UserValidator {
 
     public void validateUserName(String name) throws UserNameException {
-        if (name == null || name.isEmpty() || name.startsWith(" ")) {
+        if (userNameError(name) != null) {
             throw new UserNameException(name);
         }
+    }
+
+    public void validateUserId(String userId) throws UserIdException {
+        if (userIdError(userId) != null) {
+            throw new UserIdException(userId);
+        }
+    }
+
+    // The CharSequence and byte range methods check in one pass and allocate nothing when
+    // the input is valid. On failure the String methods are run, so the exception and its
+    // message are the same.
+    public void validateUserName(CharSequence name) throws UserNameException {
+        if (!isValidUserName(name)) {
+            validateUserName(name == null ? null : name.toString());
+        }
+    }
+
+    public void validateUserId(CharSequence userId) throws UserIdException {
+        if (!isValidUserId(userId)) {
+            validateUserId(userId == null ? null : userId.toString());
+        }
+    }
+
+    public void validateUser(CharSequence name, CharSequence userId)
+            throws UserNameException, UserIdException {
+        validateUserName(name);
+        validateUserId(userId);
+    }
+
+    // UTF-8 bytes in [nameStart, nameEnd) and [idStart, idEnd). Only ASCII is checked in
+    // place; any other byte sends the field through the decoded String path.
+    public void validateUser(ByteBuffer buffer, int nameStart, int nameEnd, int idStart, int idEnd)
+            throws UserNameException, UserIdException {
+        if (!isValidUserName(buffer, nameStart, nameEnd)) {
+            validateUserName(decode(buffer, nameStart, nameEnd));
+        }
+        if (!isValidUserId(buffer, idStart, idEnd)) {
+            validateUserId(decode(buffer, idStart, idEnd));
+        }
+    }
+
+    // Same checks as validateUserName and validateUserId, returning the error code (or null
+    // when valid) instead of throwing. Valid input is checked without allocating.
+    public ErrorCode checkUserName(CharSequence name) {
+        return isValidUserName(name) ? null : userNameError(name == null ? null : name.toString());
+    }
+
+    public ErrorCode checkUserId(CharSequence userId) {
+        return isValidUserId(userId) ? null : userIdError(userId == null ? null : userId.toString());
+    }
+
+    public void validateUniqueUserId(String userId, Set<String> existingIds)
+            throws UserIdException {
+        if (existingIds.contains(userId)) {
+            throw new UserIdException(ErrorCode.DUPLICATE_USER_ID, userId);
+        }
+    }
+
+    private ErrorCode userNameError(String name) {
+        if (name == null || name.isEmpty() || name.startsWith(" ")) {
+            return ErrorCode.USER_NAME;
+        }
 
         for (char c : name.toCharArray()) {
             if (!Character.isLetter(c) && c != ' ') {
-                throw new UserNameException(name);
+                return ErrorCode.USER_NAME;
             }
         }
+        return null;
     }
 
-    public void validateUserId(String userId) throws UserIdException {
+    private ErrorCode userIdError(String userId) {
         if (userId == null || userId.length() != 9) {
-            throw new UserIdException(userId);
+            return ErrorCode.USER_ID;
         }
 
         if (!Character.isDigit(userId.charAt(0))) {
-            throw new UserIdException(userId);
+            return ErrorCode.USER_ID;
         }
 
         char lastChar = userId.charAt(8);
@@ -34,23 +100,92 @@ public class UserValidator {
 
         for (int i = 0; i < digitCount; i++) {
             if (!Character.isDigit(userId.charAt(i))) {
-                throw new UserIdException(userId);
+                return ErrorCode.USER_ID;
             }
         }
 
         if (lastIsLetter) {
             for (int i = 0; i < 8; i++) {
                 if (Character.isLetter(userId.charAt(i))) {
-                    throw new UserIdException(userId);
+                    return ErrorCode.USER_ID;
                 }
             }
         }
+        return null;
     }
 
-    public void validateUniqueUserId(String userId, Set<String> existingIds)
-            throws UserIdException {
-        if (existingIds.contains(userId)) {
-            throw new UserIdException(userId);
+    private boolean isValidUserName(CharSequence name) {
+        if (name == null || name.length() == 0 || name.charAt(0) == ' ') {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != ' ' && !Character.isLetter(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Nine characters: nine digits, or eight digits and a letter.
+    private boolean isValidUserId(CharSequence userId) {
+        if (userId == null || userId.length() != 9) {
+            return false;
+        }
+        for (int i = 0; i < 8; i++) {
+            if (!Character.isDigit(userId.charAt(i))) {
+                return false;
+            }
+        }
+        char last = userId.charAt(8);
+        return Character.isDigit(last) || Character.isLetter(last);
+    }
+
+    private boolean isValidUserName(ByteBuffer buffer, int start, int end) {
+        if (start >= end || buffer.get(start) == ' ') {
+            return false;
+        }
+
+        int i = start;
+        for (; i + AsciiWords.BYTES <= end; i += AsciiWords.BYTES) {
+            long word = AsciiWords.read(buffer, i);
+            if (AsciiWords.nonAscii(word) != 0
+                    || (AsciiWords.letters(word) | AsciiWords.spaces(word)) != AsciiWords.HIGH) {
+                return false;
+            }
+        }
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && !isAsciiLetter(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isValidUserId(ByteBuffer buffer, int start, int end) {
+        if (end - start != 9) {
+            return false;
+        }
+        long word = AsciiWords.read(buffer, start);
+        byte last = buffer.get(start + 8);
+        return AsciiWords.nonAscii(word) == 0 && AsciiWords.digits(word) == AsciiWords.HIGH
+                && (isAsciiDigit(last) || isAsciiLetter(last));
+    }
+
+    private static boolean isAsciiDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isAsciiLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
         }
+        return new String(bytes, StandardCharsets.UTF_8);
     }
-}
\ No newline at end of file
+}
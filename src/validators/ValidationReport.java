@@ -0,0 +1,101 @@
+package validators;
+
+import exceptions.ErrorCode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Every validation error found in one input file, in line order. Errors are counted by
+// code without limit, but only the first `limit` of them are kept with their details so a
+// file that is wrong throughout cannot exhaust memory.
+public class ValidationReport {
+    public static final int DEFAULT_LIMIT = 1_000_000;
+
+    private final String file;
+    private final int limit;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<ErrorCode, Long> counts = new EnumMap<>(ErrorCode.class);
+    private long errorCount;
+
+    public ValidationReport(String file) {
+        this(file, DEFAULT_LIMIT);
+    }
+
+    public ValidationReport(String file, int limit) {
+        this.file = file;
+        this.limit = limit;
+    }
+
+    // Errors must be added in line order.
+    public void add(long line, ErrorCode code, String value) {
+        errorCount++;
+        counts.merge(code, 1L, Long::sum);
+        if (entries.size() < limit) {
+            entries.add(new Entry(line, code, value));
+        }
+    }
+
+    // Counts errors that were dropped before reaching the report because they fall past
+    // the detail limit.
+    public void count(ErrorCode code, long errors) {
+        errorCount += errors;
+        counts.merge(code, errors, Long::sum);
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public boolean isValid() {
+        return errorCount == 0;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getCount(ErrorCode code) {
+        return counts.getOrDefault(code, 0L);
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public boolean isTruncated() {
+        return errorCount > entries.size();
+    }
+
+    public static class Entry {
+        private final long line;
+        private final ErrorCode code;
+        private final String value;
+
+        Entry(long line, ErrorCode code, String value) {
+            this.line = line;
+            this.code = code;
+            this.value = value;
+        }
+
+        // 1-based line number in the input file.
+        public long getLine() {
+            return line;
+        }
+
+        public ErrorCode getCode() {
+            return code;
+        }
+
+        // Same text as the exception the fail-first parser throws for this error.
+        public String getMessage() {
+            return code.message(value);
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + code + ": " + getMessage();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+// Generates large, valid input files for the benchmarks.
+class BenchmarkData {
+    private static final String[] WORDS = {
+            "The", "Dark", "Knight", "Inception", "Shawshank", "Redemption", "Finding",
+            "Nemo", "Godfather", "Interstellar", "Lost", "City", "River", "Moon", "Night"
+    };
+    private static final String[] GENRES = {
+            "action", "thriller", "drama", "sci-fi", "crime", "animation",
+            "adventure", "comedy", "horror", "romance", "mystery", "fantasy"
+    };
+
+    static void writeMovies(File file, int count) throws IOException {
+        Random random = new Random(42);
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            StringBuilder letters = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w > 0) {
+                    title.append(' ');
+                }
+                title.append(word);
+                letters.append(word.charAt(0));
+            }
+
+            writer.write(title + "," + letters + uniqueDigits(i));
+            writer.newLine();
+
+            int genres = 1 + random.nextInt(3);
+            for (int g = 0; g < genres; g++) {
+                if (g > 0) {
+                    writer.write(',');
+                }
+                writer.write(GENRES[random.nextInt(GENRES.length)]);
+            }
+            writer.newLine();
+        }
+
+        writer.close();
+    }
+
+    static String uniqueDigits(int seed) {
+        int first = seed % 10;
+        int second = (first + 1 + (seed / 10) % 9) % 10;
+        int third = first;
+        for (int step = 1 + (seed / 90) % 8; third == first || third == second; step++) {
+            third = (second + step) % 10;
+        }
+        return "" + first + second + third;
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import models.Movie;
+import parsers.MovieParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MovieParserBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int movieCount;
+
+    private MovieParser parser;
+    private File moviesFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new MovieParser();
+        moviesFile = File.createTempFile("bench_movies", ".txt");
+        BenchmarkData.writeMovies(moviesFile, movieCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        moviesFile.delete();
+    }
+
+    @Benchmark
+    public List<Movie> parseBufferedReader() throws Exception {
+        return parser.parseMovies(moviesFile.getPath());
+    }
+
+    @Benchmark
+    public List<Movie> parseMapped() throws Exception {
+        return parser.parseMoviesMapped(moviesFile.getPath());
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import models.Movie;
+import models.RecommendationBatch;
+import models.User;
+import services.RecommendationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Shared-signature batch against one call per user, for users with many liked movies in a
+// few genres: every user has a large candidate set and a long exclusion list, which is
+// where the batch path has to stay at least as fast as the per-user one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecommendationBatchBenchmark {
+
+    @Param({"200000"})
+    public int movieCount;
+
+    @Param({"50"})
+    public int likedPerUser;
+
+    private RecommendationEngine engine;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < movieCount; i++) {
+            movies.add(new Movie("Movie " + i, "M" + i, Arrays.asList(
+                    "genre" + random.nextInt(4), "genre" + random.nextInt(4))));
+        }
+        engine = new RecommendationEngine(movies);
+
+        users = new ArrayList<>();
+        for (int u = 0; u < 64; u++) {
+            List<String> liked = new ArrayList<>();
+            for (int j = 0; j < likedPerUser; j++) {
+                liked.add("M" + random.nextInt(movieCount));
+            }
+            users.add(new User("User", String.valueOf(100000000 + u), liked));
+        }
+    }
+
+    @Benchmark
+    public RecommendationBatch batch() {
+        return engine.generateRecommendations(users);
+    }
+
+    @Benchmark
+    public void perUser(Blackhole blackhole) {
+        for (User user : users) {
+            blackhole.consume(engine.generateRecommendations(user));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package benchmarks;
+
+import models.Movie;
+import models.User;
+import models.UserRecommendation;
+import services.RecommendationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Per-user cost of the bitmap engine against the original HashSet-of-ids algorithm.
+// Run with -prof gc to compare allocation per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecommendationEngineBenchmark {
+
+    @Param({"100000"})
+    public int movieCount;
+
+    @Param({"12"})
+    public int genreCount;
+
+    private RecommendationEngine engine;
+    private HashSetEngine baseline;
+    private User[] users;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < movieCount; i++) {
+            movies.add(new Movie("Movie " + i, "M" + i, Arrays.asList(
+                    "genre" + random.nextInt(genreCount), "genre" + random.nextInt(genreCount))));
+        }
+        engine = new RecommendationEngine(movies);
+        baseline = new HashSetEngine(movies);
+
+        users = new User[1024];
+        for (int u = 0; u < users.length; u++) {
+            users[u] = new User("User", "123456789", Arrays.asList(
+                    "M" + random.nextInt(movieCount), "M" + random.nextInt(movieCount)));
+        }
+    }
+
+    @Benchmark
+    public UserRecommendation bitmapEngine() {
+        return engine.generateRecommendations(users[next++ & 1023]);
+    }
+
+    @Benchmark
+    public UserRecommendation hashSetBaseline() {
+        return baseline.generateRecommendations(users[next++ & 1023]);
+    }
+
+    // The String-keyed algorithm RecommendationEngine used before the dense index.
+    static class HashSetEngine {
+        private final Map<String, Movie> movieById = new HashMap<>();
+        private final Map<String, Set<String>> genreToMovieIds = new HashMap<>();
+
+        HashSetEngine(List<Movie> movies) {
+            for (Movie movie : movies) {
+                movieById.put(movie.getId(), movie);
+                for (String genre : movie.getGenres()) {
+                    genreToMovieIds.computeIfAbsent(genre, k -> new HashSet<>()).add(movie.getId());
+                }
+            }
+        }
+
+        UserRecommendation generateRecommendations(User user) {
+            Set<String> recommendedIds = new HashSet<>();
+            for (String likedMovieId : user.getLikedMovieIds()) {
+                Movie likedMovie = movieById.get(likedMovieId);
+                if (likedMovie == null) continue;
+                for (String genre : likedMovie.getGenres()) {
+                    Set<String> moviesInGenre = genreToMovieIds.get(genre);
+                    if (moviesInGenre != null) {
+                        recommendedIds.addAll(moviesInGenre);
+                    }
+                }
+            }
+            recommendedIds.removeAll(new HashSet<>(user.getLikedMovieIds()));
+
+            List<String> titles = new ArrayList<>();
+            for (String movieId : recommendedIds) {
+                titles.add(movieById.get(movieId).getTitle());
+            }
+            return new UserRecommendation(user.getName(), user.getId(), titles);
+        }
+    }
+}
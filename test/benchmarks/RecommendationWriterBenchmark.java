@@ -0,0 +1,90 @@
+package benchmarks;
+
+import models.Movie;
+import models.User;
+import models.UserRecommendation;
+import services.RecommendationEngine;
+import services.RecommendationStream;
+import services.RecommendationWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Time to write a whole output file of engine results through the original BufferedWriter
+// path and through the pre-encoded channel stream. Run with -prof gc to compare allocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RecommendationWriterBenchmark {
+
+    @Param({"100000"})
+    public int userCount;
+
+    private RecommendationWriter writer;
+    private List<UserRecommendation> recommendations;
+    private File outputFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            movies.add(new Movie("Movie Title " + i, "M" + i, Arrays.asList("genre" + random.nextInt(500))));
+        }
+        RecommendationEngine engine = new RecommendationEngine(movies);
+
+        recommendations = new ArrayList<>(userCount);
+        for (int u = 0; u < userCount; u++) {
+            User user = new User("User Name", String.valueOf(100000000 + u),
+                    Arrays.asList("M" + random.nextInt(movies.size())));
+            recommendations.add(engine.generateRecommendations(user));
+        }
+
+        writer = new RecommendationWriter();
+        outputFile = File.createTempFile("bench_recommendations", ".txt");
+    }
+
+    @TearDown
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public void writeBufferedWriter() throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(outputFile))) {
+            for (UserRecommendation rec : recommendations) {
+                writer.writeRecommendation(out, rec);
+            }
+        }
+    }
+
+    @Benchmark
+    public void writeStream() throws IOException {
+        try (RecommendationStream out = writer.open(outputFile.getPath())) {
+            for (UserRecommendation rec : recommendations) {
+                out.write(rec);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package benchmarks;
+
+import validators.MovieValidator;
+import validators.UserValidator;
+import exceptions.ValidationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Validation of one valid record through the original String methods, the single-pass
+// CharSequence methods and the byte range methods. Scores are per record; run with
+// -prof gc and compare gc.alloc.rate.norm for the bytes allocated per record.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ValidatorBenchmark {
+    private static final int RECORDS = 1024;
+
+    private final MovieValidator movieValidator = new MovieValidator();
+    private final UserValidator userValidator = new UserValidator();
+
+    private String[] titles;
+    private String[] movieIds;
+    private String[] names;
+    private String[] userIds;
+
+    private ByteBuffer movieBytes;
+    private int[] movieOffsets;
+    private ByteBuffer userBytes;
+    private int[] userOffsets;
+
+    @Setup
+    public void setUp() {
+        String[] words = {"The", "Dark", "Knight", "Return", "Of", "King", "Lost", "City"};
+        titles = new String[RECORDS];
+        movieIds = new String[RECORDS];
+        names = new String[RECORDS];
+        userIds = new String[RECORDS];
+
+        for (int i = 0; i < RECORDS; i++) {
+            StringBuilder title = new StringBuilder();
+            StringBuilder capitals = new StringBuilder();
+            for (int w = 0; w < 2 + i % 3; w++) {
+                String word = words[(i + w * 3) % words.length];
+                title.append(w == 0 ? "" : " ").append(word);
+                capitals.append(word.charAt(0));
+            }
+            titles[i] = title.toString();
+            movieIds[i] = capitals.toString() + (i % 10) + ((i + 1) % 10) + ((i + 2) % 10);
+            names[i] = i % 2 == 0 ? "John Smith" : "Alice Johnson";
+            userIds[i] = String.valueOf(100000000 + i);
+        }
+
+        movieOffsets = new int[RECORDS * 4];
+        movieBytes = encode(titles, movieIds, movieOffsets);
+        userOffsets = new int[RECORDS * 4];
+        userBytes = encode(names, userIds, userOffsets);
+    }
+
+    private static ByteBuffer encode(String[] first, String[] second, int[] offsets) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < first.length; i++) {
+            offsets[i * 4] = text.length();
+            text.append(first[i]);
+            offsets[i * 4 + 1] = text.length();
+            text.append(',');
+            offsets[i * 4 + 2] = text.length();
+            text.append(second[i]);
+            offsets[i * 4 + 3] = text.length();
+            text.append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(text.length());
+        buffer.put(text.toString().getBytes(StandardCharsets.US_ASCII));
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void movieStringMethods() throws ValidationException {
+        for (int i = 0; i < RECORDS; i++) {
+            movieValidator.validateTitle(titles[i]);
+            movieValidator.validateMovieId(titles[i], movieIds[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void movieSinglePass() throws ValidationException {
+        for (int i = 0; i < RECORDS; i++) {
+            movieValidator.validateMovie(titles[i], movieIds[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void movieByteRange() throws ValidationException {
+        for (int i = 0; i < RECORDS; i++) {
+            int o = i * 4;
+            movieValidator.validateMovie(movieBytes,
+                    movieOffsets[o], movieOffsets[o + 1], movieOffsets[o + 2], movieOffsets[o + 3]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void userStringMethods() throws ValidationException {
+        for (int i = 0; i < RECORDS; i++) {
+            userValidator.validateUserName(names[i]);
+            userValidator.validateUserId(userIds[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void userSinglePass() throws ValidationException {
+        for (int i = 0; i < RECORDS; i++) {
+            userValidator.validateUser(names[i], userIds[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void userByteRange() throws ValidationException {
+        for (int i = 0; i < RECORDS; i++) {
+            int o = i * 4;
+            userValidator.validateUser(userBytes,
+                    userOffsets[o], userOffsets[o + 1], userOffsets[o + 2], userOffsets[o + 3]);
+        }
+    }
+}
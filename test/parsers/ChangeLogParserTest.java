@@ -0,0 +1,157 @@
+package parsers;
+
+import models.CatalogChange;
+import exceptions.ErrorCode;
+import exceptions.MovieIdLettersException;
+import exceptions.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeLogParserTest {
+    private ChangeLogParser parser;
+    private String testFile;
+
+    @BeforeEach
+    public void setUp() {
+        parser = new ChangeLogParser();
+        testFile = "test_movies.txt.changes";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(testFile).delete();
+    }
+
+    @Test
+    public void testParseChanges_AllKinds() throws Exception {
+        createTestFile(
+                "ADD The Matrix,TM123",
+                "action, sci-fi",
+                "REMOVE TDK123",
+                "GENRES I456",
+                "drama"
+        );
+
+        List<CatalogChange> changes = parser.parseChanges(testFile);
+
+        assertEquals(3, changes.size());
+        assertEquals(CatalogChange.Kind.ADD, changes.get(0).getKind());
+        assertEquals("The Matrix", changes.get(0).getTitle());
+        assertEquals("TM123", changes.get(0).getMovieId());
+        assertEquals(Arrays.asList("action", "sci-fi"), changes.get(0).getGenres());
+        assertEquals(CatalogChange.Kind.REMOVE, changes.get(1).getKind());
+        assertEquals("TDK123", changes.get(1).getMovieId());
+        assertNull(changes.get(1).getGenres());
+        assertEquals(CatalogChange.Kind.GENRES, changes.get(2).getKind());
+        assertEquals(Arrays.asList("drama"), changes.get(2).getGenres());
+    }
+
+    @Test
+    public void testParseChanges_InvalidAddedMovie() {
+        createTestFile(
+                "ADD The Matrix,XM123",
+                "action"
+        );
+
+        assertThrows(MovieIdLettersException.class, () -> parser.parseChanges(testFile));
+    }
+
+    @Test
+    public void testParseChanges_UnknownKind() {
+        createTestFile("RENAME TM123");
+
+        ValidationException e = assertThrows(ValidationException.class, () -> parser.parseChanges(testFile));
+        assertEquals(ErrorCode.CHANGE_FORMAT, e.getCode());
+    }
+
+    @Test
+    public void testParseChanges_MissingGenresLine() {
+        createTestFile("GENRES TM123");
+
+        ValidationException e = assertThrows(ValidationException.class, () -> parser.parseChanges(testFile));
+        assertEquals(ErrorCode.MISSING_GENRES, e.getCode());
+    }
+
+    @Test
+    public void testOpenChanges_ContinuesAtPosition() throws Exception {
+        createTestFile(
+                "REMOVE TDK123",
+                "GENRES I456",
+                "drama"
+        );
+
+        long position;
+        try (ChangeLogReader reader = parser.openChanges(testFile, 0)) {
+            assertEquals("TDK123", reader.readChange().getMovieId());
+            position = reader.position();
+        }
+        try (ChangeLogReader reader = parser.openChanges(testFile, position)) {
+            assertEquals("I456", reader.readChange().getMovieId());
+            assertNull(reader.readChange());
+        }
+    }
+
+    @Test
+    public void testOpenChanges_LeavesUnfinishedEntryUnread() throws Exception {
+        append("REMOVE TDK123\nADD The Matrix,TM123\n");
+        long position;
+        try (ChangeLogReader reader = parser.openChanges(testFile, 0)) {
+            assertEquals("TDK123", reader.readChange().getMovieId());
+            assertNull(reader.readChange());
+            position = reader.position();
+        }
+        assertEquals("REMOVE TDK123\n".length(), position);
+
+        // The genres line arrives without its line terminator first.
+        append("action");
+        try (ChangeLogReader reader = parser.openChanges(testFile, position)) {
+            assertNull(reader.readChange());
+            assertEquals(position, reader.position());
+        }
+
+        append("\nREMOVE I456");
+        try (ChangeLogReader reader = parser.openChanges(testFile, position)) {
+            CatalogChange change = reader.readChange();
+            assertEquals("TM123", change.getMovieId());
+            assertEquals(Arrays.asList("action"), change.getGenres());
+            assertNull(reader.readChange());
+            position = reader.position();
+        }
+
+        append("\n");
+        try (ChangeLogReader reader = parser.openChanges(testFile, position)) {
+            assertEquals("I456", reader.readChange().getMovieId());
+            assertNull(reader.readChange());
+        }
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(Paths.get(testFile), text.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void createTestFile(String... lines) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(testFile));
+            for (String line : lines) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.close();
+        } catch (IOException e) {
+            fail("Failed to create test file: " + e.getMessage());
+        }
+    }
+}
@@ -10,9 +10,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MovieParserTest {
@@ -184,6 +187,120 @@ public class MovieParserTest {
         assertEquals(4, movies.get(0).getGenres().size());
     }
 
+    @Test
+    public void testParseMoviesMapped_SameResultAsBufferedReader() throws Exception {
+        createTestFile(
+                "  The Dark Knight  ,  TDK123  ",
+                "  action  ,  thriller  ",
+                "Inception,I456",
+                "action,sci-fi,thriller,",
+                "The Shawshank Redemption,TSR789",
+                "drama"
+        );
+
+        List<Movie> expected = parser.parseMovies(testFile);
+        List<Movie> movies = parser.parseMoviesMapped(testFile);
+
+        assertEquals(expected.size(), movies.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTitle(), movies.get(i).getTitle());
+            assertEquals(expected.get(i).getId(), movies.get(i).getId());
+            assertEquals(expected.get(i).getGenres(), movies.get(i).getGenres());
+        }
+    }
+
+    @Test
+    public void testParseMovies_GzipInput() throws Exception {
+        createTestFile(
+                "The Dark Knight,TDK123",
+                "action,thriller",
+                "Inception,I456",
+                "action,sci-fi,thriller"
+        );
+        List<Movie> expected = parser.parseMovies(testFile);
+
+        String gzipFile = testFile + ".gz";
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            out.write(Files.readAllBytes(new File(testFile).toPath()));
+        }
+
+        try {
+            for (List<Movie> movies : List.of(parser.parseMovies(gzipFile), parser.parseMoviesMapped(gzipFile))) {
+                assertEquals(expected.size(), movies.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getTitle(), movies.get(i).getTitle());
+                    assertEquals(expected.get(i).getGenres(), movies.get(i).getGenres());
+                }
+            }
+        } finally {
+            new File(gzipFile).delete();
+        }
+    }
+
+    @Test
+    public void testParseMoviesMapped_RecordsSpanningMappingWindows() throws Exception {
+        createTestFile(
+                "The Dark Knight,TDK123",
+                "action,thriller",
+                "Inception,I456",
+                "action,sci-fi,thriller",
+                "The Godfather,TG345",
+                "crime,drama"
+        );
+
+        List<Movie> movies = new MovieParser(48).parseMoviesMapped(testFile);
+
+        assertEquals(3, movies.size());
+        assertEquals("The Dark Knight", movies.get(0).getTitle());
+        assertEquals("Inception", movies.get(1).getTitle());
+        assertEquals("The Godfather", movies.get(2).getTitle());
+        assertEquals(2, movies.get(2).getGenres().size());
+    }
+
+    @Test
+    public void testParseMoviesMapped_InvalidTitle() {
+        createTestFile(
+                "The Dark Knight,TDK123",
+                "action,thriller",
+                "inception,I456",
+                "action,sci-fi"
+        );
+
+        MovieTitleException e = assertThrows(MovieTitleException.class,
+                () -> parser.parseMoviesMapped(testFile));
+        assertEquals("ERROR: Movie Title inception is wrong", e.getMessage());
+    }
+
+    @Test
+    public void testParseMoviesMapped_InvalidMovieId() {
+        createTestFile(
+                "The Dark Knight,TDKX123",
+                "action,thriller"
+        );
+
+        assertThrows(MovieIdLettersException.class,
+                () -> parser.parseMoviesMapped(testFile));
+    }
+
+    @Test
+    public void testParseMoviesMapped_MissingGenresLine() {
+        createTestFile(
+                "The Dark Knight,TDK123"
+        );
+
+        assertThrows(ValidationException.class,
+                () -> parser.parseMoviesMapped(testFile));
+    }
+
+    @Test
+    public void testParseMoviesMapped_EmptyFile() throws Exception {
+        createTestFile();
+
+        List<Movie> movies = parser.parseMoviesMapped(testFile);
+
+        assertEquals(0, movies.size());
+    }
+
     // Helper method to create test file
     private void createTestFile(String... lines) {
         try {
@@ -0,0 +1,136 @@
+package parsers;
+
+import models.User;
+import exceptions.ValidationException;
+import exceptions.UserNameException;
+import exceptions.UserIdException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelUserParserTest {
+    private UserParser parser;
+    private String testFile;
+
+    @BeforeEach
+    public void setUp() {
+        parser = new UserParser();
+        testFile = "test_parallel_users.txt";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        File file = new File(testFile);
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testParse_SameUsersForEveryChunkCount() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            content.append("User Number,1000000").append(i < 10 ? "0" : "").append(i).append("\n");
+            content.append("TDK123,I456,TSR789".substring(0, 6 + (i % 3) * 5)).append("\n");
+        }
+        createTestFile(content.toString());
+
+        List<User> expected = parser.parseUsers(testFile);
+
+        for (int chunks = 1; chunks <= 64; chunks++) {
+            List<User> users = new ParallelUserParser(parser, 4, chunks).parse(testFile);
+            assertEquals(expected.size(), users.size(), "chunks=" + chunks);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), users.get(i).getId(), "chunks=" + chunks);
+                assertEquals(expected.get(i).getLikedMovieIds(), users.get(i).getLikedMovieIds());
+            }
+        }
+    }
+
+    @Test
+    public void testParse_CarriageReturnLineEndings() throws Exception {
+        createTestFile("John Smith,123456789\r\nTDK123,I456\r\nAlice Johnson,987654321\r\nTSR789\r\n"
+                + "Bob Williams,123456780\rFN012\r");
+
+        for (int chunks = 1; chunks <= 20; chunks++) {
+            List<User> users = new ParallelUserParser(parser, 3, chunks).parse(testFile);
+            assertEquals(3, users.size(), "chunks=" + chunks);
+            assertEquals("Alice Johnson", users.get(1).getName());
+            assertEquals("FN012", users.get(2).getLikedMovieIds().get(0));
+        }
+    }
+
+    @Test
+    public void testParse_DuplicateAcrossChunks() {
+        createTestFile("John Smith,123456789\nTDK123\nAlice Johnson,987654321\nTSR789\n"
+                + "Bob Williams,123456789\nFN012\n");
+
+        for (int chunks = 1; chunks <= 10; chunks++) {
+            ParallelUserParser parallel = new ParallelUserParser(parser, 2, chunks);
+            UserIdException e = assertThrows(UserIdException.class, () -> parallel.parse(testFile));
+            assertEquals("ERROR: User Id 123456789 is wrong", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParse_ReportsFirstErrorInFileOrder() {
+        createTestFile("John Smith,123456789\nTDK123\nAlice Johnson,123456789\nTSR789\n"
+                + "Bob123,123456780\nFN012\n");
+
+        for (int chunks = 1; chunks <= 10; chunks++) {
+            ParallelUserParser parallel = new ParallelUserParser(parser, 2, chunks);
+            assertThrows(UserIdException.class, () -> parallel.parse(testFile));
+        }
+    }
+
+    @Test
+    public void testParse_InvalidNameBeforeDuplicate() {
+        createTestFile("John Smith,123456789\nTDK123\nAlice123,987654321\nTSR789\n"
+                + "Bob Williams,123456789\nFN012\n");
+
+        for (int chunks = 1; chunks <= 10; chunks++) {
+            ParallelUserParser parallel = new ParallelUserParser(parser, 2, chunks);
+            assertThrows(UserNameException.class, () -> parallel.parse(testFile));
+        }
+    }
+
+    @Test
+    public void testParse_DuplicateBeforeMissingLikedLine() {
+        createTestFile("John Smith,123456789\nTDK123\nAlice Johnson,123456789\n");
+
+        assertThrows(UserIdException.class,
+                () -> new ParallelUserParser(parser, 2, 2).parse(testFile));
+    }
+
+    @Test
+    public void testParse_MissingLikedMoviesLine() {
+        createTestFile("John Smith,123456789\nTDK123\nAlice Johnson,987654321");
+
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> new ParallelUserParser(parser, 2, 2).parse(testFile));
+        assertEquals("Missing liked movies line", e.getMessage());
+    }
+
+    @Test
+    public void testParse_EmptyFile() throws Exception {
+        createTestFile("");
+
+        assertEquals(0, parser.parseUsersParallel(testFile).size());
+    }
+
+    private void createTestFile(String content) {
+        try {
+            FileOutputStream out = new FileOutputStream(testFile);
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.close();
+        } catch (IOException e) {
+            fail("Failed to create test file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package parsers;
+
+import validators.ValidationReport;
+import exceptions.ErrorCode;
+import exceptions.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportScannerTest {
+    private String testFile;
+
+    @BeforeEach
+    public void setUp() {
+        testFile = "test_report.txt";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(testFile).delete();
+        new File(testFile + ".gz").delete();
+    }
+
+    @Test
+    public void testValidateMovies_EveryErrorWithLineNumber() throws Exception {
+        writeFile("The Dark Knight,TDK123\n"
+                + "Action\n"
+                + "the Lion King,TLK123\n"          // line 3: title
+                + "Animation\n"
+                + "No Comma Here\n"                 // line 5: format
+                + "Drama\n"
+                + "Finding Nemo,FN112\n"            // line 7: repeated digits
+                + "Animation\n"
+                + "Inception,X123\n"                // line 9: letters
+                + "Sci-Fi\n"
+                + "Up,U123\n");                     // line 11: missing genres
+
+        ValidationReport report = new MovieParser().validateMovies(testFile, 2);
+
+        assertEquals(5, report.getErrorCount());
+        assertEquals(List.of(3L, 5L, 7L, 9L, 11L), lines(report));
+        assertEquals(ErrorCode.MOVIE_TITLE, report.getEntries().get(0).getCode());
+        assertEquals("ERROR: Movie Title the Lion King is wrong", report.getEntries().get(0).getMessage());
+        assertEquals(ErrorCode.MOVIE_FORMAT, report.getEntries().get(1).getCode());
+        assertEquals(ErrorCode.MOVIE_ID_NUMBERS, report.getEntries().get(2).getCode());
+        assertEquals(ErrorCode.MOVIE_ID_LETTERS, report.getEntries().get(3).getCode());
+        assertEquals(ErrorCode.MISSING_GENRES, report.getEntries().get(4).getCode());
+    }
+
+    @Test
+    public void testValidateMovies_ValidFile() throws Exception {
+        writeFile("The Dark Knight,TDK123\nAction\nInception,I456\nSci-Fi\n");
+
+        ValidationReport report = new MovieParser().validateMovies(testFile);
+
+        assertTrue(report.isValid());
+        assertTrue(report.getEntries().isEmpty());
+    }
+
+    @Test
+    public void testValidateUsers_FirstEntryMatchesFailFirstException() throws Exception {
+        writeFile("John Smith,123456789\n"
+                + "TDK123\n"
+                + "alice9,98765432\n"               // line 3: name and id
+                + "I456\n"
+                + "Bob Williams,123456789\n"        // line 5: duplicate
+                + "TDK123\n");
+
+        ValidationException failFirst = assertThrows(ValidationException.class,
+                () -> new UserParser().parseUsers(testFile));
+        ValidationReport report = new UserParser().validateUsers(testFile, 2);
+
+        assertEquals(3, report.getErrorCount());
+        assertEquals(failFirst.getMessage(), report.getEntries().get(0).getMessage());
+        assertEquals(failFirst.getCode(), report.getEntries().get(0).getCode());
+        assertEquals(List.of(3L, 3L, 5L), lines(report));
+        assertEquals(ErrorCode.USER_ID, report.getEntries().get(1).getCode());
+        assertEquals(ErrorCode.DUPLICATE_USER_ID, report.getEntries().get(2).getCode());
+        assertEquals("ERROR: User Id 123456789 is wrong", report.getEntries().get(2).getMessage());
+    }
+
+    @Test
+    public void testScan_SameReportForEveryChunkCount() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            String id = String.valueOf(100000000 + (i % 7 == 0 ? 1 : i));
+            String name = i % 11 == 0 ? "Bad Name 1" : "Good Name";
+            content.append(name).append(',').append(id).append(i % 13 == 0 ? "" : "\n");
+            content.append(i % 13 == 0 ? "\r\n" : "TDK123\n");
+        }
+        writeFile(content.toString());
+
+        UserParser parser = new UserParser();
+        String expected = null;
+        for (int chunks = 1; chunks <= 9; chunks += 2) {
+            ValidationReport report = new ReportScanner(3, chunks, ValidationReport.DEFAULT_LIMIT, UserIdSet.UNLIMITED)
+                    .scan(testFile, parser::checkUser);
+            String entries = report.getEntries().toString();
+            if (expected == null) {
+                expected = entries;
+                assertTrue(report.getCount(ErrorCode.DUPLICATE_USER_ID) > 0);
+                assertTrue(report.getCount(ErrorCode.USER_NAME) > 0);
+            }
+            assertEquals(expected, entries, "chunks=" + chunks);
+        }
+    }
+
+    @Test
+    public void testScan_DuplicatesAmongPackedAndUnpackedIds() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            // Every 100th record repeats an earlier id, alternately one that packs and one with
+            // Arabic-Indic digits, which does not.
+            int n = i % 100 != 99 ? i : i / 100 % 2 == 0 ? i - 50 : i - 51;
+            String id = n % 2 == 0 ? String.valueOf(100000000 + n) : String.format("%07d\u0668\u0669", n);
+            content.append("Good Name,").append(id).append("\nTDK123\n");
+        }
+        writeFile(content.toString());
+
+        for (int chunks = 1; chunks <= 5; chunks += 2) {
+            ValidationReport report = new ReportScanner(3, chunks, ValidationReport.DEFAULT_LIMIT, 0)
+                    .scan(testFile, new UserParser()::checkUser);
+
+            assertEquals(30, report.getErrorCount(), "chunks=" + chunks);
+            assertEquals(30, report.getCount(ErrorCode.DUPLICATE_USER_ID));
+            assertEquals(199L, report.getEntries().get(0).getLine());
+            assertEquals("ERROR: User Id " + String.format("%07d\u0668\u0669", 49) + " is wrong",
+                    report.getEntries().get(0).getMessage());
+            assertEquals(399L, report.getEntries().get(1).getLine());
+            assertEquals("ERROR: User Id 100000148 is wrong", report.getEntries().get(1).getMessage());
+        }
+    }
+
+    @Test
+    public void testScan_LimitKeepsFirstEntriesAndCountsAll() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append("bad name1,123456789\nTDK123\n");
+        }
+        writeFile(content.toString());
+
+        ValidationReport report = new ReportScanner(2, 4, 10, UserIdSet.UNLIMITED)
+                .scan(testFile, new UserParser()::checkUser);
+
+        assertEquals(99, report.getErrorCount());
+        assertEquals(50, report.getCount(ErrorCode.USER_NAME));
+        assertEquals(49, report.getCount(ErrorCode.DUPLICATE_USER_ID));
+        assertEquals(10, report.getEntries().size());
+        assertTrue(report.isTruncated());
+        assertEquals(List.of(1L, 3L, 3L, 5L, 5L, 7L, 7L, 9L, 9L, 11L), lines(report));
+    }
+
+    @Test
+    public void testValidateUsers_GzipInput() throws Exception {
+        byte[] content = "John Smith,123456789\nTDK123\nJohn Smith,123456789\nTDK123\n"
+                .getBytes(StandardCharsets.UTF_8);
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(testFile + ".gz"))) {
+            out.write(content);
+        }
+
+        ValidationReport report = new UserParser().validateUsers(testFile + ".gz");
+
+        assertEquals(1, report.getErrorCount());
+        assertEquals(3, report.getEntries().get(0).getLine());
+    }
+
+    private static List<Long> lines(ValidationReport report) {
+        return report.getEntries().stream()
+                .map(ValidationReport.Entry::getLine)
+                .collect(Collectors.toList());
+    }
+
+    private void writeFile(String content) throws IOException {
+        Files.write(new File(testFile).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
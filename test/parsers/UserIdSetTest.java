@@ -0,0 +1,91 @@
+package parsers;
+
+import org.junit.jupiter.api.Test;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserIdSetTest {
+
+    @Test
+    public void testPack_RoundTrip() {
+        for (String id : new String[] {"000000000", "123456789", "99999999z", "12345678A", "00000001a"}) {
+            long key = UserIdSet.pack(id);
+            assertTrue(key >= 0, id);
+            assertEquals(id, UserIdSet.unpack(key));
+        }
+    }
+
+    @Test
+    public void testPack_OtherStringsNotPacked() {
+        assertEquals(-1, UserIdSet.pack("12345678"));
+        assertEquals(-1, UserIdSet.pack("1234567890"));
+        assertEquals(-1, UserIdSet.pack("A23456789"));
+        assertEquals(-1, UserIdSet.pack("12345678@"));
+        assertEquals(-1, UserIdSet.pack("\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669"));
+    }
+
+    @Test
+    public void testAddContains_InMemory() throws Exception {
+        try (UserIdSet ids = new UserIdSet()) {
+            assertTrue(ids.add("123456789"));
+            assertTrue(ids.add("12345678A"));
+            assertTrue(ids.add("1234567\u0668\u0669"));
+            assertFalse(ids.add("123456789"));
+            assertFalse(ids.add("1234567\u0668\u0669"));
+
+            assertTrue(ids.contains("12345678A"));
+            assertFalse(ids.contains("12345678a"));
+            assertTrue(ids.contains("1234567\u0668\u0669"));
+            assertEquals(3, ids.size());
+            assertEquals(0, ids.runCount());
+        }
+    }
+
+    @Test
+    public void testSpill_SameContentsAsHashSet() throws Exception {
+        Random random = new Random(5);
+        Set<String> expected = new HashSet<>();
+
+        try (UserIdSet ids = new UserIdSet(0)) {
+            for (int i = 0; i < 30000; i++) {
+                String id = String.format("%08d%c", random.nextInt(100000), i % 3 == 0 ? 'x' : '7');
+                assertEquals(expected.add(id), ids.add(id), id);
+            }
+
+            assertTrue(ids.runCount() > 0);
+            assertEquals(expected.size(), ids.size());
+            for (String id : expected) {
+                assertTrue(ids.contains(id), id);
+            }
+            assertFalse(ids.contains("99999999Z"));
+            assertEquals(expected, new HashSet<>(ids));
+        }
+    }
+
+    @Test
+    public void testSpill_RunsStayFewAndFilesSmall() throws Exception {
+        Random random = new Random(9);
+        Set<String> expected = new HashSet<>();
+
+        // 768 keys per spill and at most 1000 keys per file: about 260 spills, merged into
+        // runs of up to 64 spills' worth over four tiers.
+        try (UserIdSet ids = new UserIdSet(0, 1000)) {
+            for (int i = 0; i < 200000; i++) {
+                String id = String.format("%08d%c", random.nextInt(50000000), 'a' + i % 26);
+                assertEquals(expected.add(id), ids.add(id), id);
+                assertTrue(ids.runCount() <= 3 * 5, String.valueOf(ids.runCount()));
+            }
+
+            assertTrue(ids.runFileCount() > ids.runCount() * 10,
+                    ids.runFileCount() + " files in " + ids.runCount() + " runs");
+            assertEquals(expected.size(), ids.size());
+            for (String id : expected) {
+                assertTrue(ids.contains(id), id);
+            }
+            assertFalse(ids.contains("99999999Z"));
+            assertEquals(expected, new HashSet<>(ids));
+        }
+    }
+}
@@ -9,9 +9,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UserParserTest {
@@ -273,6 +276,192 @@ public class UserParserTest {
         assertEquals("Bob Williams", users.get(2).getName());
     }
 
+    @Test
+    public void testOpenUsers_ReadsOneUserAtATime() throws Exception {
+        createTestFile(
+                "John Smith,123456789",
+                "TDK123,I456",
+                "Alice Johnson,987654321",
+                "TSR789"
+        );
+
+        try (UserReader reader = parser.openUsers(testFile)) {
+            User first = reader.readUser();
+            assertEquals("John Smith", first.getName());
+            assertEquals(2, first.getLikedMovieIds().size());
+
+            User second = reader.readUser();
+            assertEquals("Alice Johnson", second.getName());
+
+            assertNull(reader.readUser());
+        }
+    }
+
+    @Test
+    public void testOpenUsers_ErrorReportedWhenRecordIsReached() throws Exception {
+        createTestFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice Johnson,123456789",  // Duplicate ID
+                "TSR789"
+        );
+
+        try (UserReader reader = parser.openUsers(testFile)) {
+            assertEquals("John Smith", reader.readUser().getName());
+            UserIdException e = assertThrows(UserIdException.class, reader::readUser);
+            assertEquals("ERROR: User Id 123456789 is wrong", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testOpenUsers_ResumeAtPosition() throws Exception {
+        createTestFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice Johnson,987654321",
+                "TSR789",
+                "Bob Williams,123456780",
+                "FN012"
+        );
+
+        long afterFirst;
+        try (UserReader reader = parser.openUsers(testFile)) {
+            assertEquals(0, reader.position());
+            reader.readUser();
+            afterFirst = reader.position();
+        }
+        assertEquals("John Smith,123456789\nTDK123\n".length(), afterFirst);
+
+        try (UserReader reader = parser.openUsers(testFile, afterFirst)) {
+            assertEquals("Alice Johnson", reader.readUser().getName());
+            assertEquals("Bob Williams", reader.readUser().getName());
+            assertNull(reader.readUser());
+        }
+    }
+
+    @Test
+    public void testOpenUsers_ResumeStillChecksEarlierIds() throws Exception {
+        createTestFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice Johnson,123456789",  // Duplicate ID
+                "TSR789"
+        );
+
+        long afterFirst;
+        try (UserReader reader = parser.openUsers(testFile)) {
+            reader.readUser();
+            afterFirst = reader.position();
+        }
+
+        try (UserReader reader = parser.openUsers(testFile, afterFirst)) {
+            assertThrows(UserIdException.class, reader::readUser);
+        }
+    }
+
+    @Test
+    public void testParseUsers_DuplicateFoundAfterIdsSpillToDisk() throws Exception {
+        String[] lines = new String[2 * 5001];
+        for (int i = 0; i < 5000; i++) {
+            lines[2 * i] = "John Smith," + (100000000 + i * 7);
+            lines[2 * i + 1] = "TDK123";
+        }
+        lines[10000] = "Alice Johnson,100000007";
+        lines[10001] = "TDK123";
+        createTestFile(lines);
+
+        UserParser smallBudget = new UserParser(0);
+        UserIdException e = assertThrows(UserIdException.class, () -> smallBudget.parseUsers(testFile));
+        assertEquals("ERROR: User Id 100000007 is wrong", e.getMessage());
+
+        e = assertThrows(UserIdException.class, () -> smallBudget.parseUsersParallel(testFile, 2));
+        assertEquals("ERROR: User Id 100000007 is wrong", e.getMessage());
+    }
+
+    @Test
+    public void testParseUsers_WithoutValidationSkipsFieldAndDuplicateChecks() throws Exception {
+        createTestFile(
+                "Alice123,123456789",
+                "TDK123",
+                "Alice Johnson,123456789",
+                "TSR789"
+        );
+
+        UserParser trusted = new UserParser(UserIdSet.UNLIMITED, false);
+        assertEquals(2, trusted.parseUsers(testFile).size());
+        assertEquals(2, trusted.parseUsersParallel(testFile, 2).size());
+    }
+
+    @Test
+    public void testParseUsers_WithoutValidationStillRejectsBrokenRecords() {
+        createTestFile(
+                "John Smith 123456789",
+                "TDK123"
+        );
+
+        UserParser trusted = new UserParser(UserIdSet.UNLIMITED, false);
+        assertThrows(ValidationException.class, () -> trusted.parseUsers(testFile));
+    }
+
+    @Test
+    public void testOpenUsers_MixedLineEndingsAndLongLines() throws Exception {
+        StringBuilder liked = new StringBuilder("M000");
+        for (int i = 1; i < 30000; i++) {
+            liked.append(",M").append(i);
+        }
+        try (FileWriter writer = new FileWriter(testFile)) {
+            writer.write("John Smith,123456789\r\n" + liked + "\r");
+            writer.write("Alice Johnson,987654321\rTSR789\n");
+            writer.write("Bob Williams,123456780\nFN012");
+        }
+
+        try (UserReader reader = parser.openUsers(testFile)) {
+            assertEquals(30000, reader.readUser().getLikedMovieIds().size());
+            long position = reader.position();
+            assertEquals(List.of("TSR789"), reader.readUser().getLikedMovieIds());
+            assertEquals(List.of("FN012"), reader.readUser().getLikedMovieIds());
+            assertNull(reader.readUser());
+            assertEquals(new File(testFile).length(), reader.position());
+
+            try (UserReader resumed = parser.openUsers(testFile, position)) {
+                assertEquals("Alice Johnson", resumed.readUser().getName());
+            }
+        }
+    }
+
+    @Test
+    public void testOpenUsers_GzipInput() throws Exception {
+        createTestFile(
+                "John Smith,123456789",
+                "TDK123,I456",
+                "Alice Johnson,987654321",
+                "TSR789",
+                "Bob Williams,123456780",
+                "FN012"
+        );
+        String gzipFile = testFile + ".gz";
+        try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            out.write(Files.readAllBytes(new File(testFile).toPath()));
+        }
+
+        try {
+            long afterFirst;
+            try (UserReader reader = parser.openUsers(gzipFile)) {
+                assertEquals("John Smith", reader.readUser().getName());
+                afterFirst = reader.position();
+            }
+            try (UserReader reader = parser.openUsers(gzipFile, afterFirst)) {
+                assertEquals("Alice Johnson", reader.readUser().getName());
+            }
+
+            List<User> users = parser.parseUsersParallel(gzipFile, 2);
+            assertEquals(3, users.size());
+            assertEquals("Bob Williams", users.get(2).getName());
+        } finally {
+            new File(gzipFile).delete();
+        }
+    }
+
     // Helper method to create test file
     private void createTestFile(String... lines) {
         try {
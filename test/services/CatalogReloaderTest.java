@@ -0,0 +1,181 @@
+package services;
+
+import models.CatalogChange;
+import models.Movie;
+import models.User;
+import parsers.MovieParser;
+import exceptions.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogReloaderTest {
+    private final String moviesFile = "test_reload_movies.txt";
+    private final User user = new User("John Smith", "123456789", Arrays.asList("TDK123"));
+    private CatalogReloader reloader;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        write("The Dark Knight,TDK123", "action,thriller", "Inception,I456", "action,sci-fi");
+        RecommendationEngine initial = new RecommendationEngine(new MovieParser().parseMovies(moviesFile));
+        reloader = new CatalogReloader(moviesFile, initial);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        reloader.close();
+        new File(moviesFile).delete();
+        new File(moviesFile + ".snapshot").delete();
+        new File(moviesFile + ".changes").delete();
+    }
+
+    @Test
+    public void testReload_PicksUpChangedCatalog() throws IOException {
+        RecommendationEngine before = reloader.get();
+        write("The Dark Knight,TDK123", "action,thriller", "Inception,I456", "action,sci-fi",
+                "Heat,H789", "action");
+
+        assertTrue(reloader.reload());
+
+        assertNotSame(before, reloader.get());
+        assertEquals(Arrays.asList("Inception", "Heat"), titles(reloader.get()));
+        assertEquals(Arrays.asList("Inception"), titles(before));
+    }
+
+    @Test
+    public void testReload_InvalidCatalogKeepsCurrentEngine() throws IOException {
+        RecommendationEngine before = reloader.get();
+        write("the dark knight,TDK123", "action");
+
+        assertFalse(reloader.reload());
+
+        assertSame(before, reloader.get());
+        assertNotNull(reloader.getLastError());
+        assertEquals(0, reloader.getReloadCount());
+    }
+
+    @Test
+    public void testWatch_ReloadsWhenFileChanges() throws Exception {
+        write("The Dark Knight,TDK123", "action,thriller", "Heat,H789", "action");
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reloader.getReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, reloader.getReloadCount());
+        assertEquals(Arrays.asList("Heat"), titles(reloader.get()));
+    }
+
+    @Test
+    public void testChangeLog_AppliedWithoutFullReload() throws Exception {
+        new RecommendationWriter().appendChanges(moviesFile + ".changes", Arrays.asList(
+                CatalogChange.add(new Movie("Heat", "H789", Arrays.asList("action")))));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reloader.getAppliedChangeCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, reloader.getAppliedChangeCount());
+        assertEquals(0, reloader.getReloadCount());
+        assertEquals(Arrays.asList("Inception", "Heat"), titles(reloader.get()));
+    }
+
+    @Test
+    public void testWatch_KeepsWatchingAfterUnexpectedFailure() throws Exception {
+        reloader.close();
+        AtomicInteger calls = new AtomicInteger();
+        RecommendationEngine failsOnce = new RecommendationEngine(new MovieParser().parseMovies(moviesFile)) {
+            @Override
+            public RecommendationEngine apply(List<CatalogChange> changes) throws ValidationException {
+                if (calls.incrementAndGet() == 1) {
+                    throw new IllegalStateException("broken");
+                }
+                return super.apply(changes);
+            }
+        };
+        reloader = new CatalogReloader(moviesFile, failsOnce);
+
+        new RecommendationWriter().appendChanges(moviesFile + ".changes", Arrays.asList(
+                CatalogChange.add(new Movie("Heat", "H789", Arrays.asList("action")))));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reloader.getLastError() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("java.lang.IllegalStateException: broken", reloader.getLastError());
+        assertSame(failsOnce, reloader.get());
+
+        // The watcher is still running, and the failed entry is applied with the next one.
+        new RecommendationWriter().appendChanges(moviesFile + ".changes", Arrays.asList(
+                CatalogChange.add(new Movie("Ronin", "R123", Arrays.asList("action")))));
+        deadline = System.currentTimeMillis() + 10_000;
+        while (reloader.getAppliedChangeCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(2, reloader.getAppliedChangeCount());
+        assertNull(reloader.getLastError());
+        assertEquals(Arrays.asList("Inception", "Heat", "Ronin"), titles(reloader.get()));
+    }
+
+    @Test
+    public void testChangeLog_EntryWrittenInTwoStepsApplied() throws Exception {
+        Path changes = Paths.get(moviesFile + ".changes");
+        Files.write(changes, "ADD The Matrix,TM123\n".getBytes(StandardCharsets.UTF_8));
+        reloader.applyChanges();
+
+        assertEquals(0, reloader.getAppliedChangeCount());
+        assertNull(reloader.getLastError());
+
+        Files.write(changes, "action\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        reloader.applyChanges();
+
+        assertEquals(1, reloader.getAppliedChangeCount());
+        assertNull(reloader.getLastError());
+        assertEquals(Arrays.asList("Inception", "The Matrix"), titles(reloader.get()));
+    }
+
+    @Test
+    public void testChangeLog_InvalidEntrySkipped() throws Exception {
+        new RecommendationWriter().appendChanges(moviesFile + ".changes", Arrays.asList(
+                CatalogChange.remove("X999"),
+                CatalogChange.remove("I456")));
+        reloader.applyChanges();
+
+        assertEquals(1, reloader.getAppliedChangeCount());
+        assertEquals(Arrays.asList(), titles(reloader.get()));
+        assertNotNull(reloader.getLastError());
+    }
+
+    @Test
+    public void testReload_AppliesChangeLogAgain() throws Exception {
+        new RecommendationWriter().appendChanges(moviesFile + ".changes", Arrays.asList(
+                CatalogChange.remove("I456")));
+        reloader.applyChanges();
+        write("The Dark Knight,TDK123", "action,thriller", "Inception,I456", "action,sci-fi",
+                "Heat,H789", "action");
+
+        assertTrue(reloader.reload());
+
+        assertEquals(Arrays.asList("Heat"), titles(reloader.get()));
+    }
+
+    private List<String> titles(RecommendationEngine engine) {
+        return engine.generateRecommendations(user).getRecommendedMovieTitles();
+    }
+
+    private void write(String... lines) throws IOException {
+        Files.write(Paths.get(moviesFile), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
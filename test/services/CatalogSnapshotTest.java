@@ -0,0 +1,124 @@
+package services;
+
+import models.Movie;
+import models.User;
+import models.UserRecommendation;
+import exceptions.MovieTitleException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogSnapshotTest {
+    private String moviesFile;
+    private String snapshotFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        moviesFile = "test_snapshot_movies.txt";
+        snapshotFile = "test_snapshot_movies.txt.snapshot";
+        createMoviesFile(
+                "The Dark Knight,TDK123",
+                "action,thriller",
+                "Inception,I456",
+                "action,sci-fi,thriller",
+                "The Shawshank Redemption,TSR789",
+                "drama",
+                "The Godfather,TG345",
+                "crime,drama"
+        );
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(moviesFile).delete();
+        new File(snapshotFile).delete();
+    }
+
+    @Test
+    public void testLoad_SameRecommendationsAsTextCatalog() throws Exception {
+        List<Movie> movies = CatalogSnapshot.compile(moviesFile, snapshotFile);
+        RecommendationEngine fromText = new RecommendationEngine(movies);
+
+        RecommendationEngine fromSnapshot = CatalogSnapshot.load(snapshotFile, moviesFile);
+
+        assertNotNull(fromSnapshot);
+        for (String liked : Arrays.asList("TDK123", "I456", "TSR789", "TG345")) {
+            User user = new User("John Smith", "123456789", Arrays.asList(liked));
+            UserRecommendation expected = fromText.generateRecommendations(user);
+            UserRecommendation actual = fromSnapshot.generateRecommendations(user);
+            assertEquals(new HashSet<>(expected.getRecommendedMovieTitles()),
+                    new HashSet<>(actual.getRecommendedMovieTitles()));
+        }
+    }
+
+    @Test
+    public void testLoad_StaleWhenSourceChanges() throws Exception {
+        CatalogSnapshot.compile(moviesFile, snapshotFile);
+
+        createMoviesFile(
+                "Inception,I456",
+                "action,sci-fi,thriller"
+        );
+
+        assertNull(CatalogSnapshot.load(snapshotFile, moviesFile));
+    }
+
+    @Test
+    public void testLoad_StaleWhenModificationTimeChanges() throws Exception {
+        CatalogSnapshot.compile(moviesFile, snapshotFile);
+
+        File source = new File(moviesFile);
+        source.setLastModified(source.lastModified() - 60000);
+
+        assertNull(CatalogSnapshot.load(snapshotFile, moviesFile));
+    }
+
+    @Test
+    public void testLoad_CorruptSnapshot() throws Exception {
+        CatalogSnapshot.compile(moviesFile, snapshotFile);
+
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+        file.seek(40);
+        int b = file.read();
+        file.seek(40);
+        file.write(b ^ 0xFF);
+        file.close();
+
+        assertNull(CatalogSnapshot.load(snapshotFile, moviesFile));
+    }
+
+    @Test
+    public void testLoad_MissingSnapshot() throws Exception {
+        assertNull(CatalogSnapshot.load(snapshotFile, moviesFile));
+    }
+
+    @Test
+    public void testCompile_InvalidCatalog() throws Exception {
+        createMoviesFile(
+                "the dark knight,TDK123",
+                "action"
+        );
+
+        assertThrows(MovieTitleException.class,
+                () -> CatalogSnapshot.compile(moviesFile, snapshotFile));
+        assertFalse(new File(snapshotFile).exists());
+    }
+
+    private void createMoviesFile(String... lines) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(moviesFile));
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.close();
+    }
+}
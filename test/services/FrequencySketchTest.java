@@ -0,0 +1,79 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void testFrequency_CountsUpToFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency(42));
+
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment(42);
+            assertEquals(Math.min(i, 15), sketch.frequency(42));
+        }
+        assertEquals(0, sketch.frequency(43));
+    }
+
+    @Test
+    public void testFrequency_NeverUnderestimates() {
+        FrequencySketch sketch = new FrequencySketch(256);
+        for (int key = 0; key < 256; key++) {
+            for (int i = 0; i < key % 8; i++) {
+                sketch.increment(key * 0x9E3779B9);
+            }
+        }
+        int exact = 0;
+        for (int key = 0; key < 256; key++) {
+            int frequency = sketch.frequency(key * 0x9E3779B9);
+            assertTrue(frequency >= key % 8);
+            if (frequency == key % 8) {
+                exact++;
+            }
+        }
+        assertTrue(exact > 200, String.valueOf(exact));
+    }
+
+    @Test
+    public void testReset_HalvesCounts() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(7);
+        }
+        for (int i = 0; i < 3; i++) {
+            sketch.increment(8);
+        }
+
+        sketch.reset();
+
+        assertEquals(5, sketch.frequency(7));
+        assertEquals(1, sketch.frequency(8));
+    }
+
+    @Test
+    public void testIncrement_AgesOldCounts() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(7);
+        }
+        // Sixteen expected keys: counts are halved every 160 increments.
+        for (int key = 1000; key < 1160; key++) {
+            sketch.increment(key * 0x9E3779B9);
+        }
+        assertTrue(sketch.frequency(7) < 15, String.valueOf(sketch.frequency(7)));
+    }
+
+    @Test
+    public void testEnsureCapacity_StartsOverWhenGrown() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        sketch.increment(7);
+
+        sketch.ensureCapacity(16);
+        assertEquals(1, sketch.frequency(7));
+
+        sketch.ensureCapacity(100000);
+        assertEquals(0, sketch.frequency(7));
+    }
+}
@@ -0,0 +1,38 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentile_Empty() {
+        assertEquals(0, new LatencyHistogram().percentile(0.99));
+    }
+
+    @Test
+    public void testPercentile_WithinOneSixteenthOfExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 99_000_000L && p99 <= 99_000_000L * 17 / 16, String.valueOf(p99));
+        assertEquals(100_000_000L, histogram.max());
+        assertEquals(100_000, histogram.count());
+    }
+
+    @Test
+    public void testBucket_UpperBoundCoversValue() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < value);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+}
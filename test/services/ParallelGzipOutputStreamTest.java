@@ -0,0 +1,112 @@
+package services;
+
+import models.UserRecommendation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelGzipOutputStreamTest {
+    private String outputFile;
+
+    @BeforeEach
+    public void setUp() {
+        outputFile = "test_output.txt.gz";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(outputFile).delete();
+    }
+
+    @Test
+    public void testRoundTrip_BlockBoundaries() throws IOException {
+        int block = ParallelGzipOutputStream.BLOCK_SIZE;
+        for (int size : new int[] {0, 1, 1000, block - 1, block, block + 1, 3 * block + block / 2}) {
+            byte[] data = sampleData(size);
+            assertArrayEquals(data, gunzip(gzip(data, 3)));
+        }
+    }
+
+    @Test
+    public void testRoundTrip_FlushAndSmallWrites() throws IOException {
+        byte[] data = sampleData(5 * ParallelGzipOutputStream.BLOCK_SIZE);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, 4)) {
+            for (int i = 0; i < data.length; i += 777) {
+                out.write(data, i, Math.min(777, data.length - i));
+                if (i % 100000 < 777) {
+                    out.flush();
+                }
+            }
+            out.write('!');
+        }
+
+        byte[] expected = Arrays.copyOf(data, data.length + 1);
+        expected[data.length] = '!';
+        assertArrayEquals(expected, gunzip(compressed.toByteArray()));
+    }
+
+    @Test
+    public void testCompressesRepeatedTitles() throws IOException {
+        byte[] data = sampleData(2 * ParallelGzipOutputStream.BLOCK_SIZE);
+        assertTrue(gzip(data, 2).length < data.length / 4);
+    }
+
+    @Test
+    public void testWriterOpensGzipForGzSuffix() throws IOException {
+        RecommendationWriter writer = new RecommendationWriter();
+        List<UserRecommendation> recommendations = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            recommendations.add(new UserRecommendation("User Number", String.valueOf(100000000 + i),
+                    Arrays.asList("The Dark Knight", "Inception", "The Godfather")));
+        }
+
+        writer.writeRecommendations(outputFile, recommendations);
+
+        String text = new String(gunzip(Files.readAllBytes(new File(outputFile).toPath())),
+                StandardCharsets.UTF_8);
+        String[] lines = text.split(System.lineSeparator());
+        assertEquals(40000, lines.length);
+        assertEquals("User Number,100019999", lines[39998]);
+        assertEquals("The Dark Knight,Inception,The Godfather", lines[39999]);
+    }
+
+    private static byte[] sampleData(int size) {
+        String[] titles = {"The Dark Knight", "Inception", "The Shawshank Redemption", "The Godfather"};
+        Random random = new Random(size);
+        StringBuilder text = new StringBuilder(size + 64);
+        while (text.length() < size) {
+            text.append("User Number,").append(100000000 + random.nextInt(900000000)).append('\n')
+                    .append(titles[random.nextInt(4)]).append(',').append(titles[random.nextInt(4)]).append('\n');
+        }
+        return Arrays.copyOf(text.toString().getBytes(StandardCharsets.UTF_8), size);
+    }
+
+    private static byte[] gzip(byte[] data, int threads) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, threads)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package services;
+
+import models.Movie;
+import parsers.MovieParser;
+import parsers.UserParser;
+import exceptions.UserNameException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParseCacheTest {
+    private final String cacheFile = "test_parse_cache";
+    private final String moviesFile = "test_parse_cache_movies.txt";
+    private final String snapshotFile = "test_parse_cache_movies.txt.snapshot";
+    private final String usersFile = "test_parse_cache_users.txt";
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        write(moviesFile, "The Dark Knight,TDK123", "action,thriller", "Inception,I456", "action,sci-fi");
+        write(usersFile, "John Smith,123456789", "TDK123");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(cacheFile).delete();
+        new File(moviesFile).delete();
+        new File(snapshotFile).delete();
+        new File(usersFile).delete();
+    }
+
+    @Test
+    public void testUsers_HitAfterValidatedRun() throws Exception {
+        ParseCache first = new ParseCache(cacheFile, false);
+        first.userParser(usersFile, 1 << 20).parseUsers(usersFile);
+        first.validated(usersFile);
+        assertEquals(0, first.getHits());
+        assertEquals(1, first.getMisses());
+
+        ParseCache second = new ParseCache(cacheFile, false);
+        UserParser parser = second.userParser(usersFile, 1 << 20);
+        assertEquals(1, parser.parseUsers(usersFile).size());
+        assertEquals(1, second.getHits());
+        assertEquals(0, second.getMisses());
+    }
+
+    @Test
+    public void testUsers_MissWithoutValidatedRun() throws Exception {
+        ParseCache first = new ParseCache(cacheFile, false);
+        first.userParser(usersFile, 1 << 20);
+
+        ParseCache second = new ParseCache(cacheFile, false);
+        second.userParser(usersFile, 1 << 20);
+        assertEquals(1, second.getMisses());
+    }
+
+    @Test
+    public void testUsers_MissAfterFileChanged() throws Exception {
+        ParseCache first = new ParseCache(cacheFile, false);
+        first.userParser(usersFile, 1 << 20);
+        first.validated(usersFile);
+
+        write(usersFile, "John Smith1,123456789", "TDK123", "Alice Johnson,987654321", "I456");
+        ParseCache second = new ParseCache(cacheFile, false);
+        UserParser parser = second.userParser(usersFile, 1 << 20);
+        assertEquals(1, second.getMisses());
+        assertThrows(UserNameException.class, () -> parser.parseUsers(usersFile));
+    }
+
+    @Test
+    public void testUsers_ContentHashCatchesEditKeepingSizeAndTime() throws Exception {
+        FileTime modified = Files.getLastModifiedTime(Paths.get(usersFile));
+        ParseCache first = new ParseCache(cacheFile, true);
+        first.userParser(usersFile, 1 << 20);
+        first.validated(usersFile);
+
+        write(usersFile, "John Smit1,123456789", "TDK123");
+        Files.setLastModifiedTime(Paths.get(usersFile), modified);
+
+        ParseCache hashed = new ParseCache(cacheFile, true);
+        UserParser parser = hashed.userParser(usersFile, 1 << 20);
+        assertEquals(1, hashed.getMisses());
+        assertThrows(UserNameException.class, () -> parser.parseUsers(usersFile));
+    }
+
+    @Test
+    public void testCatalog_HitAfterStore() throws Exception {
+        ParseCache first = new ParseCache(cacheFile, true);
+        assertNull(first.loadCatalog(snapshotFile, moviesFile));
+        List<Movie> movies = new MovieParser().parseMovies(moviesFile);
+        first.storeCatalog(snapshotFile, moviesFile, movies);
+
+        ParseCache second = new ParseCache(cacheFile, true);
+        assertNotNull(second.loadCatalog(snapshotFile, moviesFile));
+        assertEquals(1, second.getHits());
+        assertEquals("Parse cache: 1 hit, 0 misses", second.summary());
+    }
+
+    @Test
+    public void testCatalog_EditDuringParseLeavesStaleSnapshot() throws Exception {
+        ParseCache first = new ParseCache(cacheFile, false);
+        assertNull(first.loadCatalog(snapshotFile, moviesFile));
+        List<Movie> movies = new MovieParser().parseMovies(moviesFile);
+
+        // The catalog changes after it was parsed but before the snapshot is written.
+        FileTime modified = Files.getLastModifiedTime(Paths.get(moviesFile));
+        write(moviesFile, "The Dark Knight,TDK123", "action,thriller", "Inception,I456", "action,sci-fi",
+                "Heat,H901", "crime,drama");
+        Files.setLastModifiedTime(Paths.get(moviesFile), FileTime.fromMillis(modified.toMillis() + 5000));
+        first.storeCatalog(snapshotFile, moviesFile, movies);
+
+        ParseCache second = new ParseCache(cacheFile, false);
+        assertNull(second.loadCatalog(snapshotFile, moviesFile));
+        assertEquals(1, second.getMisses());
+    }
+
+    @Test
+    public void testLoad_MalformedCacheFileIsEmpty() throws Exception {
+        write(cacheFile, "not a cache entry");
+
+        ParseCache cache = new ParseCache(cacheFile, false);
+        cache.userParser(usersFile, 1 << 20);
+        assertEquals(1, cache.getMisses());
+    }
+
+    private static void write(String file, String... lines) throws IOException {
+        Files.write(Paths.get(file), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package services;
+
+import models.Movie;
+import parsers.UserParser;
+import parsers.UserReader;
+import exceptions.UserIdException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedOutputTest {
+    private RecommendationPipeline pipeline;
+    private RecommendationWriter writer;
+    private String usersFile;
+    private String outputFile;
+    private String mergedFile;
+    private String directory;
+
+    @BeforeEach
+    public void setUp() {
+        List<Movie> movies = Arrays.asList(
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("action", "thriller")),
+                new Movie("Inception", "I456", Arrays.asList("action", "sci-fi", "thriller")),
+                new Movie("The Shawshank Redemption", "TSR789", Arrays.asList("drama")),
+                new Movie("The Godfather", "TG345", Arrays.asList("crime", "drama"))
+        );
+        writer = new RecommendationWriter();
+        pipeline = new RecommendationPipeline(new RecommendationEngine(movies), writer);
+        usersFile = "test_partitioned_users.txt";
+        outputFile = "test_partitioned_output.txt";
+        mergedFile = "test_partitioned_merged.txt";
+        directory = "test_partitioned_output";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(usersFile).delete();
+        new File(outputFile).delete();
+        new File(mergedFile).delete();
+        File[] files = new File(directory).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        new File(directory).delete();
+    }
+
+    @Test
+    public void testRangePartitions_MergeRestoresInputOrder() throws Exception {
+        createNumberedUsersFile(10000);
+        List<String> expected = runSingleFile();
+
+        int count;
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            count = pipeline.runPartitioned(users, directory, 3, Partitioning.RANGE);
+        }
+
+        assertEquals(10000, count);
+        assertEquals(10000, writer.mergePartitions(directory, mergedFile));
+        assertEquals(expected, Files.readAllLines(Paths.get(mergedFile)));
+    }
+
+    @Test
+    public void testHashPartitions_SameRecordsGroupedByShard() throws Exception {
+        createNumberedUsersFile(5000);
+        List<String> expected = runSingleFile();
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.runPartitioned(users, directory, 4, Partitioning.HASH);
+        }
+
+        PartitionManifest manifest = PartitionManifest.read(Paths.get(directory));
+        for (int k = 0; k < 4; k++) {
+            List<String> shard = Files.readAllLines(Paths.get(directory, manifest.files[k]));
+            assertEquals(2 * manifest.counts[k], shard.size());
+            for (int i = 0; i < shard.size(); i += 2) {
+                String userId = shard.get(i).split(",")[1];
+                assertEquals(k, Math.floorMod(userId.hashCode(), 4));
+            }
+        }
+
+        writer.mergePartitions(directory, mergedFile);
+        assertEquals(records(expected), records(Files.readAllLines(Paths.get(mergedFile))));
+    }
+
+    @Test
+    public void testMerge_RejectsCorruptedShard() throws Exception {
+        createNumberedUsersFile(100);
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.runPartitioned(users, directory, 2, Partitioning.HASH);
+        }
+
+        try (RandomAccessFile shard = new RandomAccessFile(new File(directory, PartitionManifest.shardFile(1)), "rw")) {
+            shard.seek(0);
+            shard.write('X');
+        }
+
+        assertThrows(IOException.class, () -> writer.mergePartitions(directory, mergedFile));
+        assertFalse(new File(mergedFile).exists());
+    }
+
+    @Test
+    public void testValidationError_NoManifest() throws Exception {
+        createUsersFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice Johnson,123456789",
+                "TSR789"
+        );
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            assertThrows(UserIdException.class,
+                    () -> pipeline.runPartitioned(users, directory, 2, Partitioning.RANGE));
+        }
+
+        assertFalse(new File(directory, PartitionManifest.FILE_NAME).exists());
+        assertThrows(IOException.class, () -> writer.mergePartitions(directory, mergedFile));
+    }
+
+    private List<String> runSingleFile() throws Exception {
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.run(users, outputFile);
+        }
+        return Files.readAllLines(Paths.get(outputFile));
+    }
+
+    private static List<String> records(List<String> lines) {
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i += 2) {
+            records.add(lines.get(i) + "\n" + lines.get(i + 1));
+        }
+        Collections.sort(records);
+        return records;
+    }
+
+    private void createNumberedUsersFile(int count) throws IOException {
+        String[] lines = new String[2 * count];
+        String[] liked = {"TDK123", "I456", "TSR789", "TG345", "TDK123,TSR789", "UNKNOWN1"};
+        for (int i = 0; i < count; i++) {
+            lines[2 * i] = "User Number," + (100000000 + i);
+            lines[2 * i + 1] = liked[i % liked.length];
+        }
+        createUsersFile(lines);
+    }
+
+    private void createUsersFile(String... lines) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(usersFile));
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.close();
+    }
+}
@@ -0,0 +1,222 @@
+package services;
+
+import models.CatalogChange;
+import models.Movie;
+import models.User;
+import models.UserRecommendation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationCacheTest {
+    private static final int UNLIMITED = RecommendationPipeline.UNLIMITED;
+
+    private List<Movie> movies;
+    private RecommendationEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        movies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            movies.add(new Movie("Movie " + i, "M" + i, Arrays.asList("g" + i % 20, "g" + i % 7)));
+        }
+        engine = new RecommendationEngine(movies);
+    }
+
+    @Test
+    public void testRecommend_SameAsEngine() {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(1000);
+        Random random = new Random(3);
+
+        for (int i = 0; i < 2000; i++) {
+            User user = randomUser(random, i);
+            int limit = random.nextBoolean() ? UNLIMITED : random.nextInt(20);
+            assertSameRecommendation(expected(engine, user, limit), cache.recommend(engine, user, limit));
+        }
+        assertTrue(cache.getHits() > 0);
+        assertEquals(2000, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    public void testRecommend_EquivalentLikedSetsShareAnEntry() {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(100);
+
+        UserRecommendation first = cache.recommend(engine, user("100000001", "M1", "M40"), UNLIMITED);
+        UserRecommendation reordered = cache.recommend(engine, user("100000002", "M40", "M1"), UNLIMITED);
+        UserRecommendation repeated = cache.recommend(engine, user("100000003", "M1", "M40", "M1", "UNKNOWN1"), UNLIMITED);
+
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(first.getRecommendedMovieTitles(), reordered.getRecommendedMovieTitles());
+        assertEquals(first.getRecommendedMovieTitles(), repeated.getRecommendedMovieTitles());
+        assertEquals("100000003", repeated.getUserId());
+
+        cache.recommend(engine, user("100000004", "M1", "M40"), 5);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testRecommend_NewEngineInvalidates() throws Exception {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(100);
+        User user = user("100000001", "M1");
+        cache.recommend(engine, user, UNLIMITED);
+
+        RecommendationEngine changed = engine.apply(Collections.singletonList(
+                CatalogChange.add(new Movie("Brand New", "BN123", Arrays.asList("g1")))));
+        UserRecommendation afterChange = cache.recommend(changed, user, UNLIMITED);
+
+        assertEquals(2, cache.getMisses());
+        assertTrue(afterChange.getRecommendedMovieTitles().contains("Brand New"));
+        assertSameRecommendation(expected(changed, user, UNLIMITED), cache.recommend(changed, user, UNLIMITED));
+        assertEquals(1, cache.getHits());
+
+        // A request still running on the old engine gets the old catalog's answer and
+        // does not disturb the cache.
+        UserRecommendation old = cache.recommend(engine, user, UNLIMITED);
+        assertFalse(old.getRecommendedMovieTitles().contains("Brand New"));
+        cache.recommend(changed, user, UNLIMITED);
+        assertEquals(2, cache.getHits());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void testRecommend_NewEngineEmptiesEveryStripe() throws Exception {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(10000);
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            cache.recommend(engine, randomUser(random, i), UNLIMITED);
+        }
+        assertTrue(cache.size() > 50, String.valueOf(cache.size()));
+
+        RecommendationEngine changed = engine.apply(Collections.singletonList(CatalogChange.remove("M199")));
+        cache.recommend(changed, user("100000001", "M1"), UNLIMITED);
+
+        // Stripes that the new engine has not looked up yet no longer hold old results.
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRecommend_StaysWithinMaxEntries() {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(64);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 10000; i++) {
+            cache.recommend(engine, randomUser(random, i), UNLIMITED);
+            assertTrue(cache.size() <= 64);
+        }
+        assertTrue(cache.getEvictions() > 0);
+        assertTrue(cache.getEvictions() >= cache.getMisses() - 64);
+    }
+
+    @Test
+    public void testRecommend_StaysWithinMaxBytes() {
+        RecommendationCache cache = RecommendationCache.withMaxBytes(10000);
+        Random random = new Random(5);
+
+        for (int i = 0; i < 2000; i++) {
+            cache.recommend(engine, randomUser(random, i), UNLIMITED);
+        }
+        // Every entry weighs at least its fixed overhead of 96 bytes.
+        assertTrue(cache.size() > 0 && cache.size() <= 10000 / 96);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    public void testRecommend_PopularEntriesSurviveAScan() {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(2000);
+        List<User> popular = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            popular.add(user(String.valueOf(100000000 + i), "M" + i, "M" + (i + 100)));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (User user : popular) {
+                cache.recommend(engine, user, UNLIMITED);
+            }
+        }
+
+        // Every other pair of movies, each asked for once: far more than the cache holds.
+        for (int a = 0; a < 200; a++) {
+            for (int b = a + 1; b < 200; b++) {
+                if (a % 100 != b % 100 || a >= 50) {
+                    cache.recommend(engine, user("200000000", "M" + a, "M" + b), UNLIMITED);
+                }
+            }
+        }
+
+        long hitsBefore = cache.getHits();
+        for (User user : popular) {
+            cache.recommend(engine, user, UNLIMITED);
+        }
+        // A plain LRU would have lost all of them; the sketch only approximates
+        // frequencies, so a one-off key now and then looks popular enough to get in.
+        assertTrue(cache.getHits() - hitsBefore >= 45, String.valueOf(cache.getHits() - hitsBefore));
+    }
+
+    @Test
+    public void testRecommend_Concurrent() throws Exception {
+        RecommendationCache cache = RecommendationCache.withMaxEntries(256);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                results.add(threads.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 5000; i++) {
+                        User user = randomUser(random, i);
+                        int limit = random.nextBoolean() ? UNLIMITED : 10;
+                        assertSameRecommendation(expected(engine, user, limit), cache.recommend(engine, user, limit));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertEquals(40000, cache.getHits() + cache.getMisses());
+        assertTrue(cache.size() <= 256);
+    }
+
+    @Test
+    public void testWithMaxEntries_RejectsNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> RecommendationCache.withMaxEntries(0));
+        assertThrows(IllegalArgumentException.class, () -> RecommendationCache.withMaxBytes(-1));
+    }
+
+    private User randomUser(Random random, int i) {
+        // Skewed towards a few movies, so that liked sets repeat.
+        List<String> liked = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        for (int j = 0; j < count; j++) {
+            int movie = random.nextInt(random.nextInt(4) == 0 ? movies.size() : 12);
+            liked.add("M" + movie);
+        }
+        return new User("User Number", String.valueOf(100000000 + i), liked);
+    }
+
+    private static User user(String id, String... liked) {
+        return new User("User Number", id, Arrays.asList(liked));
+    }
+
+    private static UserRecommendation expected(RecommendationEngine engine, User user, int limit) {
+        return limit == UNLIMITED ? engine.generateRecommendations(user) : engine.generateRecommendations(user, limit);
+    }
+
+    private static void assertSameRecommendation(UserRecommendation expected, UserRecommendation actual) {
+        assertEquals(expected.getUserName(), actual.getUserName());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getRecommendedMovieTitles(), actual.getRecommendedMovieTitles());
+    }
+}
@@ -1,12 +1,24 @@
 package services;
 
+import models.CatalogChange;
 import models.Movie;
+import models.RecommendationBatch;
 import models.User;
 import models.UserRecommendation;
+import exceptions.ErrorCode;
+import exceptions.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class RecommendationEngineTest {
@@ -119,4 +131,480 @@ public class RecommendationEngineTest {
         assertEquals("Test User", rec.getUserName());
         assertEquals(0, rec.getRecommendedMovieTitles().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRecommendations_DuplicateMovieIdUsesLastMovie() {
+        engine = new RecommendationEngine(Arrays.asList(
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("action")),
+                new Movie("Inception", "I456", Arrays.asList("drama")),
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("drama"))
+        ));
+
+        User user = new User("Test User", "666666666", Arrays.asList("I456"));
+        UserRecommendation rec = engine.generateRecommendations(user);
+
+        assertEquals(Arrays.asList("The Dark Knight"), rec.getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testRecommendations_LargeCatalogMatchesGenreUnion() {
+        List<Movie> catalog = new ArrayList<>();
+        String[] genres = {"action", "thriller", "drama", "sci-fi", "crime", "animation"};
+        Random random = new Random(11);
+        for (int i = 0; i < 150000; i++) {
+            catalog.add(new Movie("Movie " + i, "M" + i,
+                    Arrays.asList(genres[random.nextInt(genres.length)], genres[random.nextInt(3)])));
+        }
+        engine = new RecommendationEngine(catalog);
+
+        for (int u = 0; u < 20; u++) {
+            List<String> liked = Arrays.asList("M" + random.nextInt(150000), "M" + random.nextInt(150000));
+            UserRecommendation rec = engine.generateRecommendations(new User("Test User", "777777777", liked));
+
+            Set<String> likedGenres = new HashSet<>();
+            for (String id : liked) {
+                likedGenres.addAll(catalog.get(Integer.parseInt(id.substring(1))).getGenres());
+            }
+            Set<String> expected = new HashSet<>();
+            for (Movie movie : catalog) {
+                if (!liked.contains(movie.getId()) && !Collections.disjoint(likedGenres, movie.getGenres())) {
+                    expected.add(movie.getTitle());
+                }
+            }
+
+            assertEquals(expected.size(), rec.getRecommendedMovieTitles().size());
+            assertEquals(expected, new HashSet<>(rec.getRecommendedMovieTitles()));
+        }
+    }
+
+    @Test
+    public void testRankedRecommendations_OrderedByMatchingGenres() {
+        // User likes I456 (action, sci-fi, thriller)
+        // TDK123 matches action and thriller, I678 matches sci-fi only
+        User user = new User("Test User", "888888888", Arrays.asList("I456"));
+        UserRecommendation rec = engine.generateRecommendations(user, 10);
+
+        assertEquals(Arrays.asList("The Dark Knight", "Interstellar"), rec.getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testRankedRecommendations_LimitKeepsBest() {
+        User user = new User("Test User", "888888888", Arrays.asList("I456"));
+        UserRecommendation rec = engine.generateRecommendations(user, 1);
+
+        assertEquals(Arrays.asList("The Dark Knight"), rec.getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testRankedRecommendations_MoreLikedMoviesRankHigher() {
+        // User likes TSR789 (drama) and FN012 (animation, adventure)
+        // I678 matches drama and adventure (both liked movies), TG345 only drama
+        User user = new User("Test User", "888888888", Arrays.asList("TSR789", "FN012"));
+        UserRecommendation rec = engine.generateRecommendations(user, 5);
+
+        assertEquals(Arrays.asList("Interstellar", "The Godfather"), rec.getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testRankedRecommendations_EqualScoresInCatalogOrder() {
+        // User likes TG345 (crime, drama): TSR789 and I678 each match drama only
+        User user = new User("Test User", "888888888", Arrays.asList("TG345"));
+        UserRecommendation rec = engine.generateRecommendations(user, 5);
+
+        assertEquals(Arrays.asList("The Shawshank Redemption", "Interstellar"), rec.getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testRankedRecommendations_HugeLimitReturnsEveryCandidate() {
+        User user = new User("Test User", "888888888", Arrays.asList("TSR789", "FN012"));
+
+        assertEquals(engine.generateRecommendations(user, 5).getRecommendedMovieTitles(),
+                engine.generateRecommendations(user, Integer.MAX_VALUE).getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testRankedRecommendations_HugeLimitGrowsPastInitialHeap() {
+        List<Movie> many = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            many.add(new Movie("Movie " + i, "M" + i, Arrays.asList("drama")));
+        }
+        RecommendationEngine manyEngine = new RecommendationEngine(many);
+        User user = new User("Test User", "888888888", Arrays.asList("M0"));
+
+        List<String> titles = manyEngine.generateRecommendations(user, Integer.MAX_VALUE).getRecommendedMovieTitles();
+
+        assertEquals(99, titles.size());
+        assertEquals("Movie 1", titles.get(0));
+        assertEquals("Movie 99", titles.get(98));
+    }
+
+    @Test
+    public void testRankedRecommendations_ManyLikedMoviesSameAsReference() {
+        Random random = new Random(17);
+        List<String> genres = new ArrayList<>();
+        for (int g = 0; g < 12; g++) {
+            genres.add("genre" + g);
+        }
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Set<String> movieGenres = new HashSet<>();
+            for (int j = 0, count = 1 + random.nextInt(4); j < count; j++) {
+                movieGenres.add(genres.get(random.nextInt(genres.size())));
+            }
+            catalog.add(new Movie("Movie " + i, "M" + (1000 + i), new ArrayList<>(movieGenres)));
+        }
+        RecommendationEngine manyEngine = new RecommendationEngine(catalog);
+
+        for (int u = 0; u < 20; u++) {
+            List<String> liked = new ArrayList<>();
+            for (int i = 0, count = 1 + random.nextInt(300); i < count; i++) {
+                // Repeats and unknown ids are ignored.
+                liked.add(i % 50 == 49 ? "UNKNOWN1" : catalog.get(random.nextInt(catalog.size())).getId());
+            }
+            User user = new User("Test User", "888888888", liked);
+            int limit = 1 + random.nextInt(30);
+
+            assertEquals(rankedReference(catalog, liked, limit),
+                    manyEngine.generateRecommendations(user, limit).getRecommendedMovieTitles(), "user " + u);
+        }
+    }
+
+    // The ranking of generateRecommendations(User, int), computed directly from its definition.
+    private static List<String> rankedReference(List<Movie> catalog, List<String> likedIds, int limit) {
+        List<Movie> liked = new ArrayList<>();
+        Set<String> likedGenres = new HashSet<>();
+        for (Movie movie : catalog) {
+            if (likedIds.contains(movie.getId())) {
+                liked.add(movie);
+                likedGenres.addAll(movie.getGenres());
+            }
+        }
+        List<int[]> scored = new ArrayList<>();
+        for (int m = 0; m < catalog.size(); m++) {
+            Movie movie = catalog.get(m);
+            int genreMatches = 0;
+            for (String genre : movie.getGenres()) {
+                if (likedGenres.contains(genre)) {
+                    genreMatches++;
+                }
+            }
+            int movieMatches = 0;
+            for (Movie likedMovie : liked) {
+                if (!Collections.disjoint(likedMovie.getGenres(), movie.getGenres())) {
+                    movieMatches++;
+                }
+            }
+            if (genreMatches > 0 && !liked.contains(movie)) {
+                scored.add(new int[] {genreMatches, movieMatches, m});
+            }
+        }
+        scored.sort((a, b) -> a[0] != b[0] ? b[0] - a[0] : a[1] != b[1] ? b[1] - a[1] : a[2] - b[2]);
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, scored.size()); i++) {
+            titles.add(catalog.get(scored.get(i)[2]).getTitle());
+        }
+        return titles;
+    }
+
+    @Test
+    public void testRankedRecommendations_ZeroLimit() {
+        User user = new User("Test User", "888888888", Arrays.asList("I456"));
+
+        assertEquals(0, engine.generateRecommendations(user, 0).getRecommendedMovieTitles().size());
+        assertThrows(IllegalArgumentException.class, () -> engine.generateRecommendations(user, -1));
+    }
+
+    @Test
+    public void testBatchRecommendations_SameAsPerUser() {
+        List<User> users = Arrays.asList(
+                new User("John Smith", "123456789", Arrays.asList("TSR789")),
+                new User("Alice Johnson", "987654321", Arrays.asList("TG345", "I678")),
+                new User("Bob Williams", "123456780", Arrays.asList("TDK123")),
+                new User("Test User", "111111111", Arrays.asList("INVALID123")),
+                new User("Other User", "222222222", Arrays.asList("I456"))
+        );
+
+        RecommendationBatch batch = engine.generateRecommendations(users);
+
+        assertEquals(users.size(), batch.getRecommendations().size());
+        for (int i = 0; i < users.size(); i++) {
+            UserRecommendation expected = engine.generateRecommendations(users.get(i));
+            UserRecommendation actual = batch.getRecommendations().get(i);
+            assertEquals(expected.getUserId(), actual.getUserId());
+            assertEquals(expected.getRecommendedMovieTitles(), actual.getRecommendedMovieTitles());
+        }
+    }
+
+    @Test
+    public void testBatchRecommendations_HeavyUsersSameAsPerUser() {
+        Random random = new Random(11);
+        List<Movie> many = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            many.add(new Movie("Movie " + i, "M" + i, Arrays.asList("g" + random.nextInt(6), "g" + random.nextInt(6))));
+        }
+        RecommendationEngine manyEngine = new RecommendationEngine(many);
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < 40; u++) {
+            List<String> liked = new ArrayList<>();
+            for (int j = 0; j < 50; j++) {
+                liked.add("M" + random.nextInt(5000));
+            }
+            liked.add("UNKNOWN1");
+            users.add(new User("User", String.valueOf(100000000 + u), liked));
+        }
+
+        RecommendationBatch batch = manyEngine.generateRecommendations(users);
+
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(manyEngine.generateRecommendations(users.get(i)).getRecommendedMovieTitles(),
+                    batch.getRecommendations().get(i).getRecommendedMovieTitles());
+        }
+        assertTrue(batch.getDistinctSignatures() < users.size());
+    }
+
+    @Test
+    public void testBatchRecommendations_SharesSameGenreSignature() {
+        // TDK123 (action, thriller) and I456 (action, sci-fi, thriller) differ,
+        // the first two users both reduce to {drama}
+        List<User> users = Arrays.asList(
+                new User("John Smith", "123456789", Arrays.asList("TSR789")),
+                new User("Alice Johnson", "987654321", Arrays.asList("TSR789", "TSR789")),
+                new User("Bob Williams", "123456780", Arrays.asList("TDK123")),
+                new User("Test User", "111111111", Arrays.asList("I456"))
+        );
+
+        RecommendationBatch batch = engine.generateRecommendations(users);
+
+        assertEquals(3, batch.getDistinctSignatures());
+        assertEquals(1, batch.getSharedComputations());
+    }
+
+    @Test
+    public void testRecommendations_CatalogOrder() {
+        // Shuffled copies of the same catalog recommend in their own catalog order
+        User user = new User("Bob Williams", "123456780", Arrays.asList("FN012", "I678"));
+
+        for (long seed = 0; seed < 5; seed++) {
+            List<Movie> shuffled = new ArrayList<>(movies);
+            Collections.shuffle(shuffled, new Random(seed));
+
+            List<String> expected = new ArrayList<>();
+            for (Movie movie : shuffled) {
+                if (!movie.getId().equals("FN012") && !movie.getId().equals("I678")
+                        && !Collections.disjoint(movie.getGenres(), Arrays.asList("animation", "adventure", "sci-fi", "drama"))) {
+                    expected.add(movie.getTitle());
+                }
+            }
+
+            RecommendationEngine shuffledEngine = new RecommendationEngine(shuffled);
+            assertEquals(expected, shuffledEngine.generateRecommendations(user).getRecommendedMovieTitles());
+            assertEquals(expected, shuffledEngine.generateRecommendations(user).getRecommendedMovieTitles());
+        }
+    }
+
+    @Test
+    public void testApply_SameAsRebuiltCatalog() throws Exception {
+        Random random = new Random(3);
+        List<String> genres = Arrays.asList("action", "drama", "comedy", "horror", "sci-fi", "romance", "war");
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            catalog.add(new Movie("Movie " + i, "M" + (100 + i), randomGenres(random, genres)));
+        }
+        RecommendationEngine applied = new RecommendationEngine(catalog);
+        int next = 300;
+
+        for (int round = 0; round < 20; round++) {
+            List<CatalogChange> changes = new ArrayList<>();
+            for (int c = 0; c < 10; c++) {
+                int kind = random.nextInt(3);
+                if (kind == 0 || catalog.isEmpty()) {
+                    Movie movie = new Movie("Movie " + next, "M" + (100 + next), randomGenres(random, genres));
+                    next++;
+                    catalog.add(movie);
+                    changes.add(CatalogChange.add(movie));
+                } else if (kind == 1) {
+                    Movie movie = catalog.remove(random.nextInt(catalog.size()));
+                    changes.add(CatalogChange.remove(movie.getId()));
+                } else {
+                    int i = random.nextInt(catalog.size());
+                    Movie old = catalog.get(i);
+                    Movie movie = new Movie(old.getTitle(), old.getId(), randomGenres(random, genres));
+                    catalog.set(i, movie);
+                    changes.add(CatalogChange.genres(movie.getId(), movie.getGenres()));
+                }
+            }
+            RecommendationEngine before = applied;
+            User probe = randomUser(random, catalog);
+            List<String> beforeTitles = new ArrayList<>(before.generateRecommendations(probe).getRecommendedMovieTitles());
+            applied = applied.apply(changes);
+            assertEquals(beforeTitles, before.generateRecommendations(probe).getRecommendedMovieTitles());
+
+            RecommendationEngine rebuilt = new RecommendationEngine(catalog);
+            for (int u = 0; u < 20; u++) {
+                User user = randomUser(random, catalog);
+                assertEquals(rebuilt.generateRecommendations(user).getRecommendedMovieTitles(),
+                        applied.generateRecommendations(user).getRecommendedMovieTitles());
+                assertEquals(rebuilt.generateRecommendations(user, 5).getRecommendedMovieTitles(),
+                        applied.generateRecommendations(user, 5).getRecommendedMovieTitles());
+            }
+        }
+    }
+
+    @Test
+    public void testApply_ManySmallBatchesSameAsRebuiltCatalog() throws Exception {
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 9000; i++) {
+            catalog.add(new Movie("Movie " + i, "M" + i, Arrays.asList("g" + i % 50)));
+        }
+        RecommendationEngine applied = new RecommendationEngine(catalog);
+
+        for (int batch = 0; batch < 15; batch++) {
+            List<CatalogChange> changes = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                int n = 9000 + batch * 100 + i;
+                Movie movie = new Movie("Movie " + n, "M" + n, Arrays.asList("g" + n % 60));
+                catalog.add(movie);
+                changes.add(CatalogChange.add(movie));
+                changes.add(CatalogChange.genres("M" + (n - 9000), Arrays.asList("g" + n % 40)));
+                catalog.set(n - 9000, new Movie("Movie " + (n - 9000), "M" + (n - 9000), Arrays.asList("g" + n % 40)));
+            }
+            applied = applied.apply(changes);
+        }
+
+        RecommendationEngine rebuilt = new RecommendationEngine(catalog);
+        for (String liked : Arrays.asList("M0", "M1499", "M1500", "M9000", "M10499")) {
+            User user = new User("John Smith", "123456789", Arrays.asList(liked));
+            assertEquals(rebuilt.generateRecommendations(user).getRecommendedMovieTitles(),
+                    applied.generateRecommendations(user).getRecommendedMovieTitles());
+        }
+    }
+
+    @Test
+    public void testApply_ThousandsOfSingleChangesSameAsRebuiltCatalog() throws Exception {
+        Random random = new Random(11);
+        List<Movie> catalog = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            catalog.add(new Movie("Movie " + i, "M" + i, Arrays.asList("g" + i % 30)));
+        }
+        RecommendationEngine applied = new RecommendationEngine(catalog);
+        List<String> removed = new ArrayList<>();
+        RecommendationEngine midway = null;
+        List<Movie> midwayCatalog = null;
+
+        for (int batch = 0; batch < 3000; batch++) {
+            CatalogChange change;
+            int kind = random.nextInt(4);
+            if (kind == 0 && !removed.isEmpty()) {
+                // Ids come back after being removed, so a newer change has to hide an older one.
+                String id = removed.remove(random.nextInt(removed.size()));
+                Movie movie = new Movie("Back " + batch, id, Arrays.asList("g" + batch % 30));
+                catalog.add(movie);
+                change = CatalogChange.add(movie);
+            } else if (kind == 1) {
+                Movie movie = catalog.remove(random.nextInt(catalog.size()));
+                removed.add(movie.getId());
+                change = CatalogChange.remove(movie.getId());
+            } else {
+                int i = random.nextInt(catalog.size());
+                Movie old = catalog.get(i);
+                Movie movie = new Movie(old.getTitle(), old.getId(), Arrays.asList("g" + random.nextInt(30)));
+                catalog.set(i, movie);
+                change = CatalogChange.genres(movie.getId(), movie.getGenres());
+            }
+            applied = applied.apply(Collections.singletonList(change));
+            if (batch == 1500) {
+                midway = applied;
+                midwayCatalog = new ArrayList<>(catalog);
+            }
+        }
+
+        RecommendationEngine rebuilt = new RecommendationEngine(catalog);
+        RecommendationEngine midwayRebuilt = new RecommendationEngine(midwayCatalog);
+        for (int u = 0; u < 50; u++) {
+            User user = randomUser(random, catalog);
+            assertEquals(rebuilt.generateRecommendations(user).getRecommendedMovieTitles(),
+                    applied.generateRecommendations(user).getRecommendedMovieTitles());
+            // Later batches share the earlier overlay but must not change what it holds.
+            user = randomUser(random, midwayCatalog);
+            assertEquals(midwayRebuilt.generateRecommendations(user).getRecommendedMovieTitles(),
+                    midway.generateRecommendations(user).getRecommendedMovieTitles());
+        }
+        for (String id : removed) {
+            User user = new User("John Smith", "123456789", Arrays.asList(id));
+            assertEquals(rebuilt.generateRecommendations(user).getRecommendedMovieTitles(),
+                    applied.generateRecommendations(user).getRecommendedMovieTitles());
+        }
+    }
+
+    @Test
+    public void testApply_LeavesOriginalEngineUnchanged() throws Exception {
+        User user = new User("John Smith", "123456789", Arrays.asList("TSR789"));
+        List<String> before = engine.generateRecommendations(user).getRecommendedMovieTitles();
+
+        RecommendationEngine changed = engine.apply(Arrays.asList(
+                CatalogChange.remove("TG345"),
+                CatalogChange.add(new Movie("Heat", "H901", Arrays.asList("crime", "drama")))));
+
+        assertEquals(before, engine.generateRecommendations(user).getRecommendedMovieTitles());
+        assertEquals(Arrays.asList("Interstellar", "Heat"),
+                changed.generateRecommendations(user).getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testApply_InvalidChangeAppliesNothing() {
+        ValidationException e = assertThrows(ValidationException.class, () -> engine.apply(Arrays.asList(
+                CatalogChange.remove("TG345"),
+                CatalogChange.add(new Movie("Inception", "I456", Arrays.asList("drama"))))));
+        assertEquals(ErrorCode.MOVIE_EXISTS, e.getCode());
+
+        e = assertThrows(ValidationException.class,
+                () -> engine.apply(Arrays.asList(CatalogChange.genres("X999", Arrays.asList("drama")))));
+        assertEquals(ErrorCode.UNKNOWN_MOVIE, e.getCode());
+
+        User user = new User("John Smith", "123456789", Arrays.asList("TSR789"));
+        assertEquals(Arrays.asList("The Godfather", "Interstellar"),
+                engine.generateRecommendations(user).getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testApply_RemoveThenAddAgainComesLast() throws Exception {
+        RecommendationEngine changed = engine.apply(Arrays.asList(
+                CatalogChange.remove("TSR789"),
+                CatalogChange.add(new Movie("The Shawshank Redemption", "TSR789", Arrays.asList("drama")))));
+
+        User user = new User("John Smith", "123456789", Arrays.asList("TG345"));
+        assertEquals(Arrays.asList("Interstellar", "The Shawshank Redemption"),
+                changed.generateRecommendations(user).getRecommendedMovieTitles());
+    }
+
+    @Test
+    public void testApply_IndexWithRemovedMovieRoundTrips() throws Exception {
+        RecommendationEngine changed = engine.apply(Arrays.asList(CatalogChange.remove("TG345")));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        changed.getIndex().write(new DataOutputStream(bytes));
+
+        RecommendationEngine read = new RecommendationEngine(MovieIndex.read(ByteBuffer.wrap(bytes.toByteArray())));
+
+        User user = new User("John Smith", "123456789", Arrays.asList("TSR789"));
+        assertEquals(Arrays.asList("Interstellar"), read.generateRecommendations(user).getRecommendedMovieTitles());
+        assertEquals(-1, read.getIndex().denseId("TG345"));
+        assertEquals(changed.getIndex().fingerprint(), read.getIndex().fingerprint());
+    }
+
+    private static List<String> randomGenres(Random random, List<String> genres) {
+        List<String> chosen = new ArrayList<>();
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            chosen.add(genres.get(random.nextInt(genres.size())));
+        }
+        return chosen;
+    }
+
+    private static User randomUser(Random random, List<Movie> catalog) {
+        List<String> liked = new ArrayList<>();
+        for (int i = 0; i < 1 + random.nextInt(3); i++) {
+            liked.add(catalog.get(random.nextInt(catalog.size())).getId());
+        }
+        return new User("John Smith", "123456789", liked);
+    }
+}
@@ -0,0 +1,492 @@
+package services;
+
+import models.CatalogChange;
+import models.IncrementalResult;
+import models.Movie;
+import models.User;
+import models.UserRecommendation;
+import parsers.UserParser;
+import parsers.UserReader;
+import exceptions.UserIdException;
+import exceptions.UserNameException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationPipelineTest {
+    private List<Movie> movies;
+    private RecommendationEngine engine;
+    private RecommendationPipeline pipeline;
+    private String usersFile;
+    private String outputFile;
+
+    @BeforeEach
+    public void setUp() {
+        movies = Arrays.asList(
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("action", "thriller")),
+                new Movie("Inception", "I456", Arrays.asList("action", "sci-fi", "thriller")),
+                new Movie("The Shawshank Redemption", "TSR789", Arrays.asList("drama")),
+                new Movie("The Godfather", "TG345", Arrays.asList("crime", "drama"))
+        );
+        engine = new RecommendationEngine(movies);
+        pipeline = new RecommendationPipeline(engine, new RecommendationWriter());
+        usersFile = "test_pipeline_users.txt";
+        outputFile = "test_pipeline_output.txt";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(usersFile).delete();
+        new File(outputFile).delete();
+        new File(outputFile + ".partial").delete();
+        new File(outputFile + ".checkpoint").delete();
+        new File(outputFile + ".state").delete();
+        new File(outputFile + ".expected").delete();
+    }
+
+    @Test
+    public void testRun_SameOutputAsListBasedWriter() throws Exception {
+        createUsersFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice Johnson,987654321",
+                "TSR789"
+        );
+
+        List<UserRecommendation> expected = new ArrayList<>();
+        for (User user : new UserParser().parseUsers(usersFile)) {
+            expected.add(engine.generateRecommendations(user));
+        }
+        new RecommendationWriter().writeRecommendations(outputFile, expected);
+        List<String> expectedLines = readFile(outputFile);
+
+        int count;
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            count = pipeline.run(users, outputFile);
+        }
+
+        assertEquals(2, count);
+        assertEquals(expectedLines, readFile(outputFile));
+    }
+
+    @Test
+    public void testRun_StopsAtFirstInvalidUser() throws Exception {
+        createUsersFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice123,987654321",
+                "TSR789"
+        );
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            assertThrows(UserNameException.class, () -> pipeline.run(users, outputFile));
+        }
+
+        List<String> lines = readFile(outputFile);
+        assertEquals(2, lines.size());
+        assertEquals("John Smith,123456789", lines.get(0));
+    }
+
+    @Test
+    public void testRun_EmptyFile() throws Exception {
+        createUsersFile();
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            assertEquals(0, pipeline.run(users, outputFile));
+        }
+
+        assertEquals(0, readFile(outputFile).size());
+    }
+
+    @Test
+    public void testRunParallel_SameBytesAsSequentialRun() throws Exception {
+        String[] lines = new String[2 * 10000];
+        String[] liked = {"TDK123", "I456", "TSR789", "TG345", "TDK123,TSR789", "UNKNOWN1"};
+        for (int i = 0; i < 10000; i++) {
+            lines[2 * i] = "User Number," + (100000000 + i);
+            lines[2 * i + 1] = liked[i % liked.length];
+        }
+        createUsersFile(lines);
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.run(users, outputFile);
+        }
+        List<String> expected = readFile(outputFile);
+
+        int count;
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            count = pipeline.runParallel(users, outputFile, 4);
+        }
+
+        assertEquals(10000, count);
+        assertEquals(expected, readFile(outputFile));
+    }
+
+    @Test
+    public void testRunParallel_WritesUsersBeforeInvalidRecord() throws Exception {
+        createUsersFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice Johnson,98765432",
+                "TSR789"
+        );
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            assertThrows(UserIdException.class, () -> pipeline.runParallel(users, outputFile, 2));
+        }
+
+        List<String> lines = readFile(outputFile);
+        assertEquals(2, lines.size());
+        assertEquals("John Smith,123456789", lines.get(0));
+    }
+
+    @Test
+    public void testRunPipelined_SameBytesAsSequentialRun() throws Exception {
+        String[] lines = new String[2 * 10000];
+        String[] liked = {"TDK123", "I456", "TSR789", "TG345", "TDK123,TSR789", "UNKNOWN1"};
+        for (int i = 0; i < 10000; i++) {
+            lines[2 * i] = "User Number," + (100000000 + i);
+            lines[2 * i + 1] = liked[i % liked.length];
+        }
+        createUsersFile(lines);
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.run(users, outputFile);
+        }
+        List<String> expected = readFile(outputFile);
+
+        for (int workers = 1; workers <= 4; workers++) {
+            int count;
+            try (UserReader users = new UserParser().openUsers(usersFile)) {
+                count = pipeline.runPipelined(users, outputFile, workers);
+            }
+
+            assertEquals(10000, count);
+            assertEquals(expected, readFile(outputFile));
+        }
+    }
+
+    @Test
+    public void testRunPipelined_WritesUsersBeforeInvalidRecord() throws Exception {
+        String[] lines = new String[2 * 500 + 2];
+        for (int i = 0; i < 500; i++) {
+            lines[2 * i] = "User Number," + (100000000 + i);
+            lines[2 * i + 1] = "TDK123";
+        }
+        lines[1000] = "Alice123,123456789";
+        lines[1001] = "TSR789";
+        createUsersFile(lines);
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            assertThrows(UserNameException.class, () -> pipeline.runPipelined(users, outputFile, 3));
+        }
+
+        List<String> output = readFile(outputFile);
+        assertEquals(1000, output.size());
+        assertEquals("User Number,100000499", output.get(998));
+    }
+
+    @Test
+    public void testRunPipelined_EmptyFile() throws Exception {
+        createUsersFile();
+
+        int count;
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            count = pipeline.runPipelined(users, outputFile, 2);
+        }
+
+        assertEquals(0, count);
+        assertEquals(0, readFile(outputFile).size());
+    }
+
+    @Test
+    public void testRunCheckpointed_SameBytesAsSequentialRun() throws Exception {
+        createNumberedUsersFile(1000);
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.run(users, outputFile);
+        }
+        List<String> expected = readFile(outputFile);
+
+        int count = pipeline.runCheckpointed(new UserParser(), usersFile, outputFile, 2, 100);
+
+        assertEquals(1000, count);
+        assertEquals(expected, readFile(outputFile));
+        assertFalse(new File(outputFile + ".partial").exists());
+        assertFalse(new File(outputFile + ".checkpoint").exists());
+    }
+
+    @Test
+    public void testRunCheckpointed_GzipOutput() throws Exception {
+        createNumberedUsersFile(1000);
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.run(users, outputFile);
+        }
+        byte[] expected = Files.readAllBytes(Paths.get(outputFile));
+
+        String gzipFile = outputFile + ".gz";
+        try {
+            pipeline.runCheckpointed(new UserParser(), usersFile, gzipFile, 2, 100);
+
+            try (InputStream in = new GZIPInputStream(new FileInputStream(gzipFile))) {
+                assertArrayEquals(expected, in.readAllBytes());
+            }
+            assertFalse(new File(gzipFile + ".partial").exists());
+        } finally {
+            new File(gzipFile).delete();
+        }
+    }
+
+    @Test
+    public void testRunCheckpointed_ResumesAfterCrash() throws Exception {
+        createNumberedUsersFile(1000);
+
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            pipeline.run(users, outputFile);
+        }
+        List<String> expected = readFile(outputFile);
+        new File(outputFile).delete();
+
+        CountingEngine crashing = new CountingEngine(movies, "100000650");
+        RecommendationPipeline first = new RecommendationPipeline(crashing, new RecommendationWriter());
+        assertThrows(IllegalStateException.class,
+                () -> first.runCheckpointed(new UserParser(), usersFile, outputFile, 2, 100));
+        assertFalse(new File(outputFile).exists());
+        assertTrue(new File(outputFile + ".checkpoint").exists());
+
+        CountingEngine resumed = new CountingEngine(movies, null);
+        RecommendationPipeline second = new RecommendationPipeline(resumed, new RecommendationWriter());
+        int count = second.runCheckpointed(new UserParser(), usersFile, outputFile, 2, 100);
+
+        assertEquals(1000, count);
+        assertEquals(400, resumed.calls.get());
+        assertEquals(expected, readFile(outputFile));
+        assertFalse(new File(outputFile + ".checkpoint").exists());
+    }
+
+    @Test
+    public void testRunCheckpointed_IgnoresCheckpointOfOtherLimit() throws Exception {
+        createNumberedUsersFile(1000);
+
+        CountingEngine crashing = new CountingEngine(movies, "100000650");
+        RecommendationPipeline first = new RecommendationPipeline(crashing, new RecommendationWriter());
+        assertThrows(IllegalStateException.class,
+                () -> first.runCheckpointed(new UserParser(), usersFile, outputFile, 2, 100));
+
+        CountingEngine restarted = new CountingEngine(movies, null);
+        RecommendationPipeline second = new RecommendationPipeline(restarted, new RecommendationWriter(), 1);
+        int count = second.runCheckpointed(new UserParser(), usersFile, outputFile, 2, 100);
+
+        assertEquals(1000, count);
+        assertEquals(1000, restarted.calls.get());
+    }
+
+    @Test
+    public void testRunCheckpointed_ValidationErrorDiscardsPartialOutput() throws Exception {
+        createUsersFile(
+                "John Smith,123456789",
+                "TDK123",
+                "Alice123,987654321",
+                "TSR789"
+        );
+
+        assertThrows(UserNameException.class,
+                () -> pipeline.runCheckpointed(new UserParser(), usersFile, outputFile, 2, 1));
+
+        assertFalse(new File(outputFile).exists());
+        assertFalse(new File(outputFile + ".partial").exists());
+        assertFalse(new File(outputFile + ".checkpoint").exists());
+    }
+
+    @Test
+    public void testRunIncremental_FirstRunGeneratesEveryUser() throws Exception {
+        createNumberedUsersFile(1000);
+
+        IncrementalResult result = runIncremental(pipeline);
+
+        assertEquals(1000, result.getUsers());
+        assertEquals(1000, result.getRecomputed());
+        assertEquals(0, result.getCopiedBytes());
+        assertArrayEquals(fullRun(engine, RecommendationPipeline.UNLIMITED), Files.readAllBytes(Paths.get(outputFile)));
+        assertTrue(new File(outputFile + ".state").exists());
+        assertFalse(new File(outputFile + ".partial").exists());
+    }
+
+    @Test
+    public void testRunIncremental_UnchangedInputsCopyEverything() throws Exception {
+        createNumberedUsersFile(1000);
+        runIncremental(pipeline);
+        byte[] first = Files.readAllBytes(Paths.get(outputFile));
+
+        IncrementalResult result = runIncremental(pipeline);
+
+        assertEquals(1000, result.getUsers());
+        assertEquals(0, result.getRecomputed());
+        assertEquals(first.length, result.getCopiedBytes());
+        assertArrayEquals(first, Files.readAllBytes(Paths.get(outputFile)));
+    }
+
+    @Test
+    public void testRunIncremental_RecomputesOnlyChangedUsers() throws Exception {
+        createNumberedUsersFile(1000);
+        runIncremental(pipeline);
+
+        // Two liked lists and a name change, one user dropped, one added and two swapped.
+        List<String> lines = new ArrayList<>(Files.readAllLines(Paths.get(usersFile)));
+        lines.set(2 * 10 + 1, "TG345");
+        lines.set(2 * 500 + 1, "I456,TG345");
+        lines.set(2 * 700, "Renamed User," + (100000000 + 700));
+        lines.subList(2 * 900, 2 * 900 + 2).clear();
+        lines.addAll(2 * 100, Arrays.asList("New User,123456789", "TSR789"));
+        List<String> swapped = new ArrayList<>(lines.subList(2 * 300, 2 * 300 + 2));
+        lines.subList(2 * 300, 2 * 300 + 2).clear();
+        lines.addAll(2 * 305, swapped);
+        createUsersFile(lines.toArray(new String[0]));
+
+        IncrementalResult result = runIncremental(pipeline);
+
+        assertEquals(1000, result.getUsers());
+        assertEquals(4, result.getRecomputed());
+        assertArrayEquals(fullRun(engine, RecommendationPipeline.UNLIMITED), Files.readAllBytes(Paths.get(outputFile)));
+    }
+
+    @Test
+    public void testRunIncremental_CatalogChangeRecomputesUsersOfChangedGenres() throws Exception {
+        createNumberedUsersFile(600);
+        runIncremental(pipeline);
+
+        RecommendationEngine changed = engine.apply(Arrays.asList(
+                CatalogChange.add(new Movie("Goodfellas", "G111", Arrays.asList("crime")))));
+        IncrementalResult result = runIncremental(new RecommendationPipeline(changed, new RecommendationWriter()));
+
+        // Only users who like The Godfather touch crime.
+        assertEquals(100, result.getRecomputed());
+        assertArrayEquals(fullRun(changed, RecommendationPipeline.UNLIMITED), Files.readAllBytes(Paths.get(outputFile)));
+        assertTrue(readFile(outputFile).contains("The Shawshank Redemption,Goodfellas"));
+    }
+
+    @Test
+    public void testRunIncremental_IgnoresStateOfOtherLimit() throws Exception {
+        createNumberedUsersFile(100);
+        runIncremental(pipeline);
+
+        IncrementalResult result = runIncremental(new RecommendationPipeline(engine, new RecommendationWriter(), 1));
+
+        assertEquals(100, result.getRecomputed());
+        assertArrayEquals(fullRun(engine, 1), Files.readAllBytes(Paths.get(outputFile)));
+    }
+
+    @Test
+    public void testRunIncremental_IgnoresStateOfReplacedOutput() throws Exception {
+        createNumberedUsersFile(100);
+        runIncremental(pipeline);
+        new RecommendationWriter().writeError(outputFile, "Something else");
+
+        IncrementalResult result = runIncremental(pipeline);
+
+        assertEquals(100, result.getRecomputed());
+        assertArrayEquals(fullRun(engine, RecommendationPipeline.UNLIMITED), Files.readAllBytes(Paths.get(outputFile)));
+    }
+
+    @Test
+    public void testRunIncremental_ValidationErrorKeepsPreviousOutput() throws Exception {
+        createNumberedUsersFile(100);
+        runIncremental(pipeline);
+        byte[] output = Files.readAllBytes(Paths.get(outputFile));
+        byte[] state = Files.readAllBytes(Paths.get(outputFile + ".state"));
+
+        createUsersFile("John Smith,123456789", "TDK123", "Alice123,987654321", "I456");
+        assertThrows(UserNameException.class, () -> runIncremental(pipeline));
+
+        assertArrayEquals(output, Files.readAllBytes(Paths.get(outputFile)));
+        assertArrayEquals(state, Files.readAllBytes(Paths.get(outputFile + ".state")));
+        assertFalse(new File(outputFile + ".partial").exists());
+        assertFalse(new File(outputFile + ".state.tmp").exists());
+    }
+
+    private static class CountingEngine extends RecommendationEngine {
+        final AtomicInteger calls = new AtomicInteger();
+        final String failOn;
+
+        CountingEngine(List<Movie> movies, String failOn) {
+            super(movies);
+            this.failOn = failOn;
+        }
+
+        @Override
+        public UserRecommendation generateRecommendations(User user) {
+            if (user.getId().equals(failOn)) {
+                throw new IllegalStateException("Simulated crash");
+            }
+            calls.incrementAndGet();
+            return super.generateRecommendations(user);
+        }
+
+        @Override
+        public UserRecommendation generateRecommendations(User user, int limit) {
+            calls.incrementAndGet();
+            return super.generateRecommendations(user, limit);
+        }
+    }
+
+    private IncrementalResult runIncremental(RecommendationPipeline pipeline) throws Exception {
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            return pipeline.runIncremental(users, outputFile);
+        }
+    }
+
+    private byte[] fullRun(RecommendationEngine engine, int limit) throws Exception {
+        String expectedFile = outputFile + ".expected";
+        try (UserReader users = new UserParser().openUsers(usersFile)) {
+            new RecommendationPipeline(engine, new RecommendationWriter(), limit).run(users, expectedFile);
+        }
+        return Files.readAllBytes(Paths.get(expectedFile));
+    }
+
+    private void createNumberedUsersFile(int count) throws IOException {
+        String[] lines = new String[2 * count];
+        String[] liked = {"TDK123", "I456", "TSR789", "TG345", "TDK123,TSR789", "UNKNOWN1"};
+        for (int i = 0; i < count; i++) {
+            lines[2 * i] = "User Number," + (100000000 + i);
+            lines[2 * i + 1] = liked[i % liked.length];
+        }
+        createUsersFile(lines);
+    }
+
+    private void createUsersFile(String... lines) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(usersFile));
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.close();
+    }
+
+    private List<String> readFile(String filename) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        return lines;
+    }
+}
\ No newline at end of file
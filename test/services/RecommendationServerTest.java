@@ -0,0 +1,155 @@
+package services;
+
+import models.Movie;
+import models.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationServerTest {
+    private RecommendationServer server;
+    private List<Movie> movies;
+    private Map<String, User> users;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        movies = Arrays.asList(
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("action", "thriller")),
+                new Movie("Inception", "I456", Arrays.asList("action", "sci-fi", "thriller")),
+                new Movie("The Shawshank Redemption", "TSR789", Arrays.asList("drama")),
+                new Movie("The Godfather", "TG345", Arrays.asList("crime", "drama"))
+        );
+        users = new HashMap<>();
+        users.put("123456789", new User("John Smith", "123456789", Arrays.asList("TSR789")));
+
+        server = RecommendationServer.start(new RecommendationEngine(movies), users, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testRecommend_LikedMovies() throws IOException {
+        assertEquals("Inception", get("/recommend?liked=TDK123").body);
+        assertEquals("Inception,The Godfather", get("/recommend?liked=TDK123,TSR789").body);
+        assertEquals("Inception,The Godfather", get("/recommend?liked=TDK123%2CTSR789").body);
+        assertEquals("", get("/recommend?liked=UNKNOWN1").body);
+    }
+
+    @Test
+    public void testRecommend_User() throws IOException {
+        Response response = get("/recommend?user=123456789");
+
+        assertEquals(200, response.status);
+        assertEquals("John Smith,123456789\nThe Godfather", response.body);
+    }
+
+    @Test
+    public void testRecommend_Errors() throws IOException {
+        assertEquals(404, get("/recommend?user=987654321").status);
+        assertEquals(400, get("/recommend").status);
+        assertEquals(400, get("/recommend?user=123456789&liked=TDK123").status);
+        assertEquals(400, get("/recommend?liked=TDK123&limit=x").status);
+        assertEquals(404, get("/recommend/more").status);
+        assertEquals(400, get("/recommend?liked=TDK123&limit=2147483647").status);
+        assertEquals(400, get("/recommend?liked=TDK123&limit=" + (RecommendationServer.MAX_LIMIT + 1)).status);
+        assertEquals(400, get("/recommend?liked=TDK%2").status);
+        assertEquals(400, get("/recommend?liked=%ZZ").status);
+        assertEquals("Inception", get("/recommend?liked=TDK123&limit=" + RecommendationServer.MAX_LIMIT).body);
+    }
+
+    @Test
+    public void testStats_CountsRequestsAndReportsPercentiles() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Response>> responses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                responses.add(clients.submit(() -> get("/recommend?liked=TSR789&limit=1")));
+            }
+            for (Future<Response> response : responses) {
+                assertEquals("The Godfather", response.get().body);
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        assertEquals(200, server.getRequestCount());
+        assertTrue(server.getLatencyPercentileNanos(0.99) > 0);
+        String stats = get("/stats").body;
+        assertTrue(stats.startsWith("requests 200\n"), stats);
+        assertTrue(stats.contains("p99_us "), stats);
+    }
+
+    @Test
+    public void testStats_ReportsCache() throws Exception {
+        server.close();
+        RecommendationCache cache = RecommendationCache.withMaxEntries(100);
+        server = RecommendationServer.start(() -> new RecommendationEngine(movies), users, 0, cache);
+
+        assertEquals("Inception,The Godfather", get("/recommend?liked=TDK123,TSR789").body);
+        assertEquals("Inception,The Godfather", get("/recommend?liked=TSR789,TDK123").body);
+        assertEquals("John Smith,123456789\nThe Godfather", get("/recommend?user=123456789").body);
+
+        // Every request gets a new engine here, so nothing is ever found.
+        assertEquals(0, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        String stats = get("/stats").body;
+        assertTrue(stats.contains("cache_hits 0\ncache_misses 3\n"), stats);
+    }
+
+    @Test
+    public void testRecommend_ServedFromCache() throws Exception {
+        server.close();
+        RecommendationCache cache = RecommendationCache.withMaxEntries(100);
+        RecommendationEngine engine = new RecommendationEngine(movies);
+        server = RecommendationServer.start(() -> engine, users, 0, cache);
+
+        assertEquals("Inception,The Godfather", get("/recommend?liked=TDK123,TSR789").body);
+        assertEquals("Inception,The Godfather", get("/recommend?liked=TSR789,TDK123").body);
+        assertEquals("John Smith,123456789\nThe Godfather", get("/recommend?user=123456789").body);
+        assertEquals("The Godfather", get("/recommend?liked=TSR789&limit=1").body);
+
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertTrue(get("/stats").body.contains("cache_entries 3\ncache_hits 1\n"));
+    }
+
+    private Response get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+                .openConnection();
+        try {
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                return new Response(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
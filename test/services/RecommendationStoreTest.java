@@ -0,0 +1,163 @@
+package services;
+
+import models.Movie;
+import models.User;
+import models.UserRecommendation;
+import parsers.UserParser;
+import parsers.UserReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecommendationStoreTest {
+    private RecommendationEngine engine;
+    private RecommendationWriter writer;
+    private String baseName;
+    private String usersFile;
+
+    @BeforeEach
+    public void setUp() {
+        List<Movie> movies = Arrays.asList(
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("action", "thriller")),
+                new Movie("Inception", "I456", Arrays.asList("action", "sci-fi", "thriller")),
+                new Movie("The Shawshank Redemption", "TSR789", Arrays.asList("drama")),
+                new Movie("The Godfather", "TG345", Arrays.asList("crime", "drama"))
+        );
+        engine = new RecommendationEngine(movies);
+        writer = new RecommendationWriter();
+        baseName = "test_store";
+        usersFile = "test_store_users.txt";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new File(baseName + ".dat").delete();
+        new File(baseName + ".idx").delete();
+        new File(usersFile).delete();
+    }
+
+    @Test
+    public void testLookup_FindsEveryUser() throws IOException {
+        List<UserRecommendation> expected = new ArrayList<>();
+        String[] liked = {"TDK123", "I456", "TSR789", "TG345", "UNKNOWN1"};
+        for (int i = 0; i < 5000; i++) {
+            User user = new User("User Number", String.valueOf(100000000 + 7 * i), Arrays.asList(liked[i % liked.length]));
+            expected.add(engine.generateRecommendations(user));
+        }
+
+        writer.writeStore(baseName, expected);
+
+        try (RecommendationStore store = RecommendationStore.open(baseName)) {
+            assertEquals(5000, store.size());
+            for (UserRecommendation rec : expected) {
+                UserRecommendation found = store.lookup(rec.getUserId());
+                assertEquals(rec.getUserName(), found.getUserName());
+                assertEquals(rec.getUserId(), found.getUserId());
+                assertEquals(rec.getRecommendedMovieTitles(), found.getRecommendedMovieTitles());
+            }
+            assertNull(store.lookup("100000001"));
+            assertNull(store.lookup("1234567890"));
+            assertNull(store.lookup(""));
+        }
+    }
+
+    @Test
+    public void testLookup_PlainTitleListsAndEmptyRecommendations() throws IOException {
+        writer.writeStore(baseName, Arrays.asList(
+                new UserRecommendation("John Smith", "123456789", Arrays.asList("Inception", "Am\u00e9lie")),
+                new UserRecommendation("Bob Williams", "12345678A", new ArrayList<>())
+        ));
+
+        try (RecommendationStore store = RecommendationStore.open(baseName)) {
+            assertEquals(Arrays.asList("Inception", "Am\u00e9lie"),
+                    store.lookup("123456789").getRecommendedMovieTitles());
+            assertEquals(0, store.lookup("12345678A").getRecommendedMovieTitles().size());
+        }
+    }
+
+    @Test
+    public void testPipelineIntoStore() throws Exception {
+        BufferedWriter out = new BufferedWriter(new FileWriter(usersFile));
+        for (int i = 0; i < 2000; i++) {
+            out.write("User Number," + (200000000 + i));
+            out.newLine();
+            out.write(i % 2 == 0 ? "TDK123" : "TSR789");
+            out.newLine();
+        }
+        out.close();
+
+        RecommendationPipeline pipeline = new RecommendationPipeline(engine, writer);
+        try (UserReader users = new UserParser().openUsers(usersFile);
+             RecommendationStoreWriter store = writer.openStore(baseName)) {
+            assertEquals(2000, pipeline.runPipelined(users, store, 2));
+            store.commit();
+        }
+
+        try (RecommendationStore store = RecommendationStore.open(baseName)) {
+            assertEquals(Arrays.asList("Inception"), store.lookup("200000000").getRecommendedMovieTitles());
+            assertEquals(Arrays.asList("The Godfather"), store.lookup("200001999").getRecommendedMovieTitles());
+        }
+    }
+
+    @Test
+    public void testUncommittedStoreIsDiscarded() throws IOException {
+        try (RecommendationStoreWriter store = writer.openStore(baseName)) {
+            store.write(new UserRecommendation("John Smith", "123456789", Arrays.asList("Inception")));
+        }
+
+        assertFalse(new File(baseName + ".dat").exists());
+        assertFalse(new File(baseName + ".dat.tmp").exists());
+        assertFalse(new File(baseName + ".idx.pairs").exists());
+    }
+
+    @Test
+    public void testDuplicateUserIdRejected() {
+        assertThrows(IllegalArgumentException.class, () -> writer.writeStore(baseName, Arrays.asList(
+                new UserRecommendation("John Smith", "123456789", Arrays.asList("Inception")),
+                new UserRecommendation("Alice Johnson", "123456789", Arrays.asList("Inception"))
+        )));
+        assertFalse(new File(baseName + ".idx").exists());
+    }
+
+    @Test
+    public void testMismatchedFilesRejected() throws IOException {
+        writer.writeStore(baseName, Arrays.asList(
+                new UserRecommendation("John Smith", "123456789", Arrays.asList("Inception"))));
+
+        try (RandomAccessFile index = new RandomAccessFile(baseName + ".idx", "rw")) {
+            index.seek(8);
+            index.writeLong(index.readLong() ^ 1);
+        }
+
+        assertThrows(IOException.class, () -> RecommendationStore.open(baseName));
+    }
+
+    @Test
+    public void testMappedFile_ValuesAcrossSegments() throws IOException {
+        File file = new File(baseName + ".dat");
+        try (MappedFile mapped = MappedFile.create(file.toPath(), 100, 4)) {
+            mapped.putLong(13, 0x0102030405060708L);
+            mapped.putInt(30, 0x0A0B0C0D);
+            assertEquals(0x0102030405060708L, mapped.getLong(13));
+            assertEquals(0x0A0B0C0D, mapped.getInt(30));
+        }
+
+        try (MappedFile mapped = MappedFile.openReadOnly(Paths.get(file.getPath()), 4)) {
+            assertEquals(0x0102030405060708L, mapped.getLong(13));
+            byte[] bytes = new byte[8];
+            mapped.get(13, bytes);
+            assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, bytes);
+            assertThrows(IndexOutOfBoundsException.class, () -> mapped.getLong(95));
+        }
+    }
+}
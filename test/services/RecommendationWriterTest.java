@@ -1,13 +1,24 @@
 package services;
 
+import models.CatalogChange;
+import models.Movie;
+import models.User;
 import models.UserRecommendation;
+import parsers.ChangeLogParser;
+import validators.ValidationReport;
+import exceptions.ErrorCode;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.List;
@@ -107,6 +118,38 @@ public class RecommendationWriterTest {
         assertEquals(0, lines.size());
     }
 
+    @Test
+    public void testAppendChanges_ParsedBackInOrder() throws Exception {
+        writer.appendChanges(testOutputFile, Arrays.asList(
+                CatalogChange.add(new Movie("The Matrix", "TM123", Arrays.asList("action", "sci-fi"))),
+                CatalogChange.remove("TDK123")));
+        writer.appendChanges(testOutputFile, Arrays.asList(CatalogChange.genres("TM123", Arrays.asList("drama"))));
+
+        List<CatalogChange> changes = new ChangeLogParser().parseChanges(testOutputFile);
+
+        assertEquals(3, changes.size());
+        assertEquals("The Matrix", changes.get(0).getTitle());
+        assertEquals(Arrays.asList("action", "sci-fi"), changes.get(0).getGenres());
+        assertEquals(CatalogChange.Kind.REMOVE, changes.get(1).getKind());
+        assertEquals(Arrays.asList("drama"), changes.get(2).getGenres());
+    }
+
+    @Test
+    public void testWriteReport_SummaryAndEntries() throws IOException {
+        ValidationReport movies = new ValidationReport("movies.txt");
+        ValidationReport users = new ValidationReport("users.txt", 1);
+        users.add(3, ErrorCode.USER_NAME, "John123");
+        users.add(7, ErrorCode.DUPLICATE_USER_ID, "123456789");
+
+        writer.writeReport(testOutputFile, movies, users);
+
+        assertEquals(Arrays.asList(
+                "movies.txt: 0 errors",
+                "users.txt: 2 errors",
+                "line 3: USER_NAME: ERROR: User Name John123 is wrong",
+                "... 1 more"), readFile(testOutputFile));
+    }
+
     @Test
     public void testWriteError_SimpleMessage() throws IOException {
         String errorMessage = "ERROR: Movie Title invalid is wrong";
@@ -176,6 +219,40 @@ public class RecommendationWriterTest {
         assertEquals("Test User,12345678A", lines.get(0));
     }
 
+    @Test
+    public void testStream_SameBytesAsBufferedWriter() throws IOException {
+        RecommendationEngine engine = new RecommendationEngine(Arrays.asList(
+                new Movie("Am\u00e9lie", "A123", Arrays.asList("comedy")),
+                new Movie("The Dark Knight", "TDK123", Arrays.asList("action", "comedy")),
+                new Movie("L\u00e9on", "L456", Arrays.asList("action"))
+        ));
+        List<UserRecommendation> recommendations = Arrays.asList(
+                engine.generateRecommendations(new User("John Smith", "123456789", Arrays.asList("A123"))),
+                engine.generateRecommendations(new User("Jos\u00e9 Garc\u00eda", "987654321", Arrays.asList("L456"))),
+                new UserRecommendation("Test User", "111111111", Arrays.asList("Inception", "Crouching Tiger, \u00dcnicode")),
+                new UserRecommendation("Empty User", "222222222", new ArrayList<>())
+        );
+
+        BufferedWriter expected = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(testOutputFile), StandardCharsets.UTF_8));
+        for (UserRecommendation rec : recommendations) {
+            writer.writeRecommendation(expected, rec);
+        }
+        expected.close();
+        byte[] expectedBytes = Files.readAllBytes(new File(testOutputFile).toPath());
+
+        // Buffer sizes smaller than one line force every flush path
+        for (int bufferSize : new int[] {1, 7, 64, RecommendationStream.BUFFER_SIZE}) {
+            try (RecommendationStream stream = new RecommendationStream(testOutputFile, bufferSize)) {
+                for (UserRecommendation rec : recommendations) {
+                    stream.write(rec);
+                }
+                assertEquals(expectedBytes.length, stream.position());
+            }
+            assertArrayEquals(expectedBytes, Files.readAllBytes(new File(testOutputFile).toPath()));
+        }
+    }
+
     // Helper method to read file
     private List<String> readFile(String filename) throws IOException {
         List<String> lines = new ArrayList<>();
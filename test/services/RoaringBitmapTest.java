@@ -0,0 +1,139 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoaringBitmapTest {
+
+    @Test
+    public void testAdd_SparseValuesInAnyOrder() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(70000);
+        bitmap.add(5);
+        bitmap.add(3);
+        bitmap.add(5);
+
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(3));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(4));
+        assertEquals(List.of(3, 5, 70000), toList(bitmap));
+    }
+
+    @Test
+    public void testAdd_DenseContainerMatchesTreeSet() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(150000);
+            bitmap.add(value);
+            expected.add(value);
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertEquals(new ArrayList<>(expected), toList(bitmap));
+    }
+
+    @Test
+    public void testOrInto_CandidateSetUnionAndRemove() {
+        RoaringBitmap first = new RoaringBitmap();
+        RoaringBitmap second = new RoaringBitmap();
+        for (int i = 0; i < 5000; i++) {
+            first.add(i * 2);
+        }
+        second.add(1);
+        second.add(70001);
+
+        CandidateSet candidates = new CandidateSet(80000, 0);
+        candidates.or(first);
+        candidates.or(second);
+        candidates.remove(0);
+        candidates.remove(70001);
+
+        List<Integer> drained = new ArrayList<>();
+        candidates.drain(drained::add);
+
+        assertEquals(5000, drained.size());
+        assertEquals(1, (int) drained.get(0));
+        assertEquals(2, (int) drained.get(1));
+        assertEquals(9998, (int) drained.get(drained.size() - 1));
+
+        List<Integer> afterDrain = new ArrayList<>();
+        candidates.drain(afterDrain::add);
+        assertEquals(0, afterDrain.size());
+    }
+
+    @Test
+    public void testWriteRead_RoundTrip() throws IOException {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 10000; i++) {
+            bitmap.add(i * 3);
+        }
+        bitmap.add(200000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.write(new DataOutputStream(bytes));
+        RoaringBitmap read = RoaringBitmap.read(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(toList(bitmap), toList(read));
+    }
+
+    @Test
+    public void testCopy_WritesDoNotReachOriginal() {
+        RoaringBitmap original = new RoaringBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(200000);
+            original.add(value);
+            expected.add(value);
+        }
+
+        RoaringBitmap copy = original.copy();
+        TreeSet<Integer> copyExpected = new TreeSet<>(expected);
+        for (int i = 0; i < 5000; i++) {
+            int value = random.nextInt(300000);
+            if (random.nextBoolean()) {
+                copy.add(value);
+                copyExpected.add(value);
+            } else {
+                copy.remove(value);
+                copyExpected.remove(value);
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected), toList(original));
+        assertEquals(new ArrayList<>(copyExpected), toList(copy));
+        assertEquals(copyExpected.size(), copy.cardinality());
+    }
+
+    @Test
+    public void testRemove_EmptiedContainerIsDropped() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(3);
+        bitmap.add(70000);
+        bitmap.add(140000);
+
+        bitmap.remove(70000);
+        bitmap.remove(12);
+
+        assertEquals(List.of(3, 140000), toList(bitmap));
+        bitmap.add(70001);
+        assertEquals(List.of(3, 70001, 140000), toList(bitmap));
+    }
+
+    private List<Integer> toList(RoaringBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
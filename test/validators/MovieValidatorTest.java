@@ -1,10 +1,20 @@
 package validators;
 
+import models.CatalogChange;
+import models.Movie;
+import exceptions.ErrorCode;
 import exceptions.MovieTitleException;
 import exceptions.MovieIdLettersException;
 import exceptions.MovieIdNumbersException;
+import exceptions.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class MovieValidatorTest {
@@ -135,4 +145,200 @@ public class MovieValidatorTest {
         assertDoesNotThrow(() ->
                 validator.validateMovieId("Finding Nemo", "FN012"));
     }
-}
\ No newline at end of file
+
+    // ==================== CharSequence Overload Tests ====================
+
+    @Test
+    public void testValidTitle_CharSequence() {
+        assertDoesNotThrow(() -> validator.validateTitle(new StringBuilder("The Dark Knight")));
+    }
+
+    @Test
+    public void testInvalidTitle_CharSequence_SameMessage() {
+        MovieTitleException e = assertThrows(MovieTitleException.class,
+                () -> validator.validateTitle(new StringBuilder("The dark Knight")));
+        assertEquals("ERROR: Movie Title The dark Knight is wrong", e.getMessage());
+    }
+
+    @Test
+    public void testValidMovieId_CharSequence() {
+        assertDoesNotThrow(() -> validator.validateMovieId(
+                new StringBuilder("The Dark Knight"), new StringBuilder("TDK123")));
+    }
+
+    @Test
+    public void testInvalidMovieId_CharSequence_ExtraLetter() {
+        assertThrows(MovieIdLettersException.class,
+                () -> validator.validateMovieId(new StringBuilder("The Dark Knight"), new StringBuilder("TDKX123")));
+    }
+
+    @Test
+    public void testInvalidMovieId_CharSequence_RepeatedDigits() {
+        assertThrows(MovieIdNumbersException.class,
+                () -> validator.validateMovieId(new StringBuilder("The Dark Knight"), new StringBuilder("TDK121")));
+    }
+
+    // ==================== Catalog Change Validation Tests ====================
+
+    @Test
+    public void testValidateChange_ValidChanges() {
+        assertDoesNotThrow(() -> validator.validateChange(
+                CatalogChange.add(new Movie("The Matrix", "TM123", Arrays.asList("action")))));
+        assertDoesNotThrow(() -> validator.validateChange(CatalogChange.remove("TM123")));
+        assertDoesNotThrow(() -> validator.validateChange(CatalogChange.genres("TM123", Arrays.asList("drama"))));
+    }
+
+    @Test
+    public void testValidateChange_AddedMovieValidatedLikeCatalog() {
+        assertThrows(MovieTitleException.class, () -> validator.validateChange(
+                CatalogChange.add(new Movie("the matrix", "TM123", Arrays.asList("action")))));
+        assertThrows(MovieIdNumbersException.class, () -> validator.validateChange(
+                CatalogChange.add(new Movie("The Matrix", "TM113", Arrays.asList("action")))));
+    }
+
+    @Test
+    public void testValidateChange_MissingFields() {
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> validator.validateChange(CatalogChange.genres("TM123", null)));
+        assertEquals(ErrorCode.MISSING_GENRES, e.getCode());
+
+        e = assertThrows(ValidationException.class, () -> validator.validateChange(CatalogChange.remove("")));
+        assertEquals(ErrorCode.CHANGE_FORMAT, e.getCode());
+    }
+
+    // ==================== Single-Pass Validation Tests ====================
+
+    private static final String[][] MOVIES = {
+            {"The Dark Knight", "TDK123"},
+            {"The Dark Knight  ", "TDK987"},
+            {"Inception", "I012"},
+            {"the Dark Knight", "TDK123"},
+            {"The dark Knight", "TDK123"},
+            {" The Dark Knight", "TDK123"},
+            {"", "123"},
+            {"   ", "123"},
+            {"The Dark Knight", "ABC123"},
+            {"The Dark Knight", "TDKX123"},
+            {"The Dark Knight", "TDK121"},
+            {"The Dark Knight", "TDK12"},
+            {"The Dark Knight", "TDK1234"},
+            {"The Dark Knight", "TDK12A"},
+            {"The\tDark\tKnight", "TDK123"},
+            {"McQueen", "MQ456"},
+            {"\u00c9cole Normale", "\u00c9N123"},
+            {"\u00e9cole", "123"},
+            {"Arabic", "A\u0661\u0662\u0663"},
+    };
+
+    @Test
+    public void testValidateMovie_SameOutcomeAsStringMethods() {
+        for (String[] movie : MOVIES) {
+            String title = movie[0];
+            String id = movie[1];
+            String expected = outcome(() -> {
+                validator.validateTitle(title);
+                validator.validateMovieId(title, id);
+            });
+
+            assertEquals(expected, outcome(() -> validator.validateMovie(title, id)), title + "," + id);
+            assertEquals(expected, outcome(() -> validator.validateMovie(
+                    new StringBuilder(title), new StringBuilder(id))), title + "," + id);
+
+            byte[] titleBytes = title.getBytes(StandardCharsets.UTF_8);
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(titleBytes.length + idBytes.length + 1);
+            buffer.put(titleBytes).put((byte) ',').put(idBytes);
+            int idStart = titleBytes.length + 1;
+            assertEquals(expected, outcome(() -> validator.validateMovie(
+                    buffer, 0, titleBytes.length, idStart, idStart + idBytes.length)), title + "," + id);
+        }
+    }
+
+    @Test
+    public void testCheckMethods_SameCodeAsExceptions() {
+        for (String[] movie : MOVIES) {
+            ErrorCode expected = null;
+            try {
+                validator.validateTitle(movie[0]);
+                validator.validateMovieId(movie[0], movie[1]);
+            } catch (ValidationException e) {
+                expected = e.getCode();
+            }
+
+            ErrorCode actual = validator.checkTitle(movie[0]);
+            if (actual == null) {
+                actual = validator.checkMovieId(movie[0], movie[1]);
+            }
+            assertEquals(expected, actual, movie[0] + "," + movie[1]);
+        }
+    }
+
+    @Test
+    public void testMovieId_ShorterThanTitleLetters() {
+        MovieIdLettersException e = assertThrows(MovieIdLettersException.class,
+                () -> validator.validateMovieId("The Dark Knight", "TD"));
+        assertEquals("ERROR: Movie Id letters TD are wrong", e.getMessage());
+    }
+
+    @Test
+    public void testValidateMovie_TitleCheckedBeforeId() {
+        MovieTitleException e = assertThrows(MovieTitleException.class,
+                () -> validator.validateMovie("the dark knight", "XYZ111"));
+        assertEquals("ERROR: Movie Title the dark knight is wrong", e.getMessage());
+    }
+
+    // Titles are built from words that are mostly valid so that the id check is reached,
+    // with lengths spread around the eight-byte word size of the byte range path.
+    @Test
+    public void testValidateMovie_ByteRange_MatchesStringMethodsOnRandomInput() {
+        String[] words = {"The", "Dark", "K", "dark", "X2", "@Home", "[A]", "Zoo", "ZZ", "\u00c9t\u00e9", "Of"};
+        String[] gaps = {" ", "  ", "\t", " \r", "\u000b", "\f"};
+        Random random = new Random(23);
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder title = new StringBuilder(random.nextInt(8) == 0 ? gaps[random.nextInt(gaps.length)] : "");
+            StringBuilder capitals = new StringBuilder();
+            int wordCount = 1 + random.nextInt(5);
+            for (int w = 0; w < wordCount; w++) {
+                String word = words[random.nextInt(random.nextInt(4) == 0 ? words.length : 3)];
+                title.append(w == 0 ? "" : gaps[random.nextInt(gaps.length)]).append(word);
+                for (char c : word.toCharArray()) {
+                    if (Character.isUpperCase(c)) {
+                        capitals.append(c);
+                    }
+                }
+            }
+            if (random.nextInt(4) == 0) {
+                title.append(gaps[random.nextInt(gaps.length)]);
+            }
+
+            String digits = "" + random.nextInt(10) + random.nextInt(10) + random.nextInt(10);
+            String id = random.nextInt(8) == 0 ? "TDK" + digits : capitals + digits;
+            String titleText = title.toString();
+            String expected = outcome(() -> {
+                validator.validateTitle(titleText);
+                validator.validateMovieId(titleText, id);
+            });
+
+            byte[] titleBytes = titleText.getBytes(StandardCharsets.UTF_8);
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            int offset = random.nextInt(8);
+            ByteBuffer buffer = ByteBuffer.allocate(offset + titleBytes.length + idBytes.length + 1)
+                    .order(n % 3 == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            buffer.position(offset);
+            buffer.put(titleBytes).put((byte) ',').put(idBytes);
+            int idStart = offset + titleBytes.length + 1;
+            assertEquals(expected, outcome(() -> validator.validateMovie(
+                    buffer, offset, offset + titleBytes.length, idStart, idStart + idBytes.length)),
+                    titleText + "," + id);
+        }
+    }
+
+    private static String outcome(Executable validation) {
+        try {
+            validation.execute();
+            return "valid";
+        } catch (Throwable e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package validators;
 
+import exceptions.ErrorCode;
 import exceptions.UserNameException;
 import exceptions.UserIdException;
+import exceptions.ValidationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -177,4 +184,133 @@ public class UserValidatorTest {
         assertThrows(UserIdException.class,
                 () -> validator.validateUniqueUserId("12345678A", existingIds));
     }
-}
\ No newline at end of file
+
+    // ==================== Single-Pass Validation Tests ====================
+
+    private static final String[][] USERS = {
+            {"John Smith", "123456789"},
+            {"Alice", "12345678A"},
+            {"John ", "12345678z"},
+            {" John Smith", "123456789"},
+            {"", "123456789"},
+            {"John123", "123456789"},
+            {"John@Smith", "123456789"},
+            {"John Smith", "12345678"},
+            {"John Smith", "1234567890"},
+            {"John Smith", "A12345678"},
+            {"John Smith", "1234567AB"},
+            {"John Smith", " 12345678"},
+            {"Jos\u00e9", "123456789"},
+            {"Jos\u00e9", "12345678\u00e9"},
+            {"John", "\u0661\u0662\u0663\u0664\u0665\u0666\u0667\u0668\u0669"},
+    };
+
+    @Test
+    public void testValidateUser_SameOutcomeAsStringMethods() {
+        for (String[] user : USERS) {
+            String name = user[0];
+            String id = user[1];
+            String expected = outcome(() -> {
+                validator.validateUserName(name);
+                validator.validateUserId(id);
+            });
+
+            assertEquals(expected, outcome(() -> validator.validateUser(
+                    new StringBuilder(name), new StringBuilder(id))), name + "," + id);
+
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(nameBytes.length + idBytes.length + 1);
+            buffer.put(nameBytes).put((byte) ',').put(idBytes);
+            int idStart = nameBytes.length + 1;
+            assertEquals(expected, outcome(() -> validator.validateUser(
+                    buffer, 0, nameBytes.length, idStart, idStart + idBytes.length)), name + "," + id);
+        }
+    }
+
+    @Test
+    public void testCheckMethods_SameCodeAsExceptions() {
+        for (String[] user : USERS) {
+            ErrorCode expected = null;
+            try {
+                validator.validateUserName(user[0]);
+                validator.validateUserId(user[1]);
+            } catch (ValidationException e) {
+                expected = e.getCode();
+            }
+
+            ErrorCode actual = validator.checkUserName(user[0]);
+            if (actual == null) {
+                actual = validator.checkUserId(user[1]);
+            }
+            assertEquals(expected, actual, user[0] + "," + user[1]);
+        }
+    }
+
+    @Test
+    public void testUniqueUserId_DuplicateCode() {
+        Set<String> existingIds = new HashSet<>();
+        existingIds.add("123456789");
+
+        UserIdException e = assertThrows(UserIdException.class,
+                () -> validator.validateUniqueUserId("123456789", existingIds));
+        assertEquals(ErrorCode.DUPLICATE_USER_ID, e.getCode());
+        assertEquals("ERROR: User Id 123456789 is wrong", e.getMessage());
+    }
+
+    @Test
+    public void testValidateUserName_CharSequenceNull() {
+        UserNameException e = assertThrows(UserNameException.class,
+                () -> validator.validateUserName((CharSequence) null));
+        assertEquals("ERROR: User Name null is wrong", e.getMessage());
+    }
+
+    // The byte range path classifies eight bytes at a time, so the random inputs cover
+    // every length around the word size, bytes on both sides of each character class and
+    // unaligned buffer positions in both byte orders.
+    @Test
+    public void testValidateUser_ByteRange_MatchesStringMethodsOnRandomInput() {
+        String alphabet = "0123456789azAZmM /:@[`{\t\u007f\u00e9";
+        Random random = new Random(17);
+        for (int n = 0; n < 20000; n++) {
+            String name = n % 4 == 0
+                    ? randomString(random, alphabet, random.nextInt(20))
+                    : "J" + randomString(random, "azAZmM ", random.nextInt(20));
+            String id = n % 2 == 0
+                    ? randomString(random, "0123456789", 8) + randomString(random, alphabet, 1)
+                    : randomString(random, alphabet, 7 + random.nextInt(4));
+            String expected = outcome(() -> {
+                validator.validateUserName(name);
+                validator.validateUserId(id);
+            });
+
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            int offset = random.nextInt(8);
+            ByteBuffer buffer = ByteBuffer.allocate(offset + nameBytes.length + idBytes.length + 1)
+                    .order(n % 3 == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            buffer.position(offset);
+            buffer.put(nameBytes).put((byte) ',').put(idBytes);
+            int idStart = offset + nameBytes.length + 1;
+            assertEquals(expected, outcome(() -> validator.validateUser(
+                    buffer, offset, offset + nameBytes.length, idStart, idStart + idBytes.length)), name + "," + id);
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private static String outcome(Executable validation) {
+        try {
+            validation.execute();
+            return "valid";
+        } catch (Throwable e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+}